@@ -30,6 +30,72 @@ java {
     withSourcesJar()
 }
 
+// --- Benchmarks (JMH) ---
+// Offline benchmarks over checked-in fixtures in src/jmh/resources/fixtures.
+// Run with: ./gradlew jmh            (all benchmarks, with -prof gc allocation rates)
+//           ./gradlew jmh -Pjmh.args="RenderBenchmark -p size=huge"
+val jmhSourceSet: SourceSet = sourceSets.create("jmh") {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations["jmhImplementation"].extendsFrom(configurations.implementation.get())
+configurations["jmhRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks, reporting throughput and GC allocation rates."
+    group = "verification"
+    classpath = jmhSourceSet.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val resultFile = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    args("-prof", "gc", "-rf", "json", "-rff", resultFile.absolutePath)
+    (project.findProperty("jmh.args") as String?)?.let { args(it.split(" ")) }
+    doFirst { resultFile.parentFile.mkdirs() }
+}
+
+
+// --- Load tests ---
+// End-to-end client throughput against a local mock server (src/loadtest), reusing the JMH fixtures.
+// Run with: ./gradlew loadTest -PloadTest.args="--concurrency=32 --duration=60 --throttle=0.01"
+val loadtestSourceSet: SourceSet = sourceSets.create("loadtest") {
+    compileClasspath += sourceSets.main.get().output + jmhSourceSet.output
+    runtimeClasspath += sourceSets.main.get().output + jmhSourceSet.output
+}
+
+configurations["loadtestImplementation"].extendsFrom(configurations.implementation.get())
+configurations["loadtestRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the offline load test against a local mock Wattpad server."
+    group = "verification"
+    classpath = loadtestSourceSet.runtimeClasspath
+    mainClass.set("dev.advik.wattpad.loadtest.LoadTest")
+    (project.findProperty("loadTest.args") as String?)?.let { args(it.split(" ")) }
+}
+
+// Run with: ./gradlew clusterTest -PclusterTest.args="--nodes=4 --duration=30"
+tasks.register<JavaExec>("clusterTest") {
+    description = "Runs several cluster-mode clients in one JVM against a local mock Wattpad server."
+    group = "verification"
+    classpath = loadtestSourceSet.runtimeClasspath
+    mainClass.set("dev.advik.wattpad.loadtest.ClusterHarness")
+    (project.findProperty("clusterTest.args") as String?)?.let { args(it.split(" ")) }
+}
+
+// Run with: ./gradlew cacheSnapshot -PcacheSnapshot.args="export cache snapshot.wpcs --families=STORY,PART"
+tasks.register<JavaExec>("cacheSnapshot") {
+    description = "Exports a disk cache to a snapshot archive, or imports one."
+    group = "application"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("dev.advik.wattpad.internal.CacheSnapshot")
+    (project.findProperty("cacheSnapshot.args") as String?)?.let { args(it.split(" ")) }
+}
+
 
 // Add manifest attributes for JAR
 tasks.jar {
@@ -0,0 +1,47 @@
+package dev.advik.wattpad.bench;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import dev.advik.wattpad.adapters.FlexibleLocalDateTimeAdapter;
+import dev.advik.wattpad.adapters.LocalDateTimeAdapter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/** The two LocalDateTime adapters. Every story and part date goes through one of them. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateAdapterBenchmark {
+
+    private final LocalDateTimeAdapter strict = new LocalDateTimeAdapter();
+    private final FlexibleLocalDateTimeAdapter flexible = new FlexibleLocalDateTimeAdapter();
+    private final JsonPrimitive utcTimestamp = new JsonPrimitive("2024-03-18T17:42:05Z");
+    private final JsonPrimitive localTimestamp = new JsonPrimitive("2024-03-18T17:42:05");
+    private final LocalDateTime value = LocalDateTime.of(2024, 3, 18, 17, 42, 5);
+
+    @Benchmark
+    public LocalDateTime strictDeserialize() {
+        return strict.deserialize(utcTimestamp, LocalDateTime.class, null);
+    }
+
+    @Benchmark
+    public JsonElement strictSerialize() {
+        return strict.serialize(value, LocalDateTime.class, null);
+    }
+
+    @Benchmark
+    public LocalDateTime flexibleDeserializeWithOffset() {
+        return flexible.deserialize(utcTimestamp, LocalDateTime.class, null);
+    }
+
+    @Benchmark
+    public LocalDateTime flexibleDeserializeFallback() {
+        // Hits the exception-driven fallback path, the slow case
+        return flexible.deserialize(localTimestamp, LocalDateTime.class, null);
+    }
+}
@@ -0,0 +1,46 @@
+package dev.advik.wattpad.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/** Loads the checked-in benchmark fixtures from the classpath, so benchmarks never touch the network. */
+public final class Fixtures {
+    private Fixtures() {} // Prevent instantiation
+
+    public static final String TEXT_BASE_URI = "https://www.wattpad.com/apiv2/?m=storytext&id=1300000000";
+
+    public static String read(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing fixture: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Chapter HTML by size class: "small" (~15 paragraphs), "medium" (~320 paragraphs, ~80 KB) or
+     * "huge" (the medium chapter repeated to ~2 MB, with unique paragraph ids).
+     */
+    public static String chapter(String size) {
+        switch (size) {
+            case "small":
+                return read("part-small.html");
+            case "medium":
+                return read("part-medium.html");
+            case "huge":
+                String medium = read("part-medium.html");
+                StringBuilder sb = new StringBuilder(medium.length() * 25);
+                for (int copy = 0; copy < 25; copy++) {
+                    sb.append(medium.replace("data-p-id=\"", "data-p-id=\"" + copy + "-"));
+                }
+                return sb.toString();
+            default:
+                throw new IllegalArgumentException("Unknown chapter size: " + size);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package dev.advik.wattpad.bench;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.advik.wattpad.WattpadClient;
+import dev.advik.wattpad.internal.PartHtmlRenderer;
+import dev.advik.wattpad.internal.SimpleDiskCache;
+import dev.advik.wattpad.models.Part;
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.models.html.HTMLContent;
+import dev.advik.wattpad.models.html.HTMLWord;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The renderPart pipeline on small, medium and huge chapters: Jsoup parse, the paragraph/processNodes walk,
+ * both together, and the full client call served from a pre-warmed disk cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private String html;
+    private Document parsed;
+    private List<Element> paragraphs;
+    private Path cacheDir;
+    private WattpadClient client;
+    private Part part;
+
+    @Setup
+    public void setUp() throws IOException {
+        html = Fixtures.chapter(size);
+        parsed = Jsoup.parse(html, Fixtures.TEXT_BASE_URI);
+        paragraphs = parsed.select("p[data-p-id]");
+
+        // Pre-populate a cache so WattpadClient.renderPart never leaves the machine
+        cacheDir = Files.createTempDirectory("wattpad-jmh-render");
+        try (SimpleDiskCache cache = new SimpleDiskCache(cacheDir.toString())) {
+            cache.put(Fixtures.TEXT_BASE_URI, html);
+        }
+        client = new WattpadClient.Builder().cacheDirectory(cacheDir.toString()).build();
+        JsonObject partJson = JsonParser.parseString("{\"id\":1300000000,\"title\":\"Chapter 1\","
+                + "\"text_url\":{\"text\":\"" + Fixtures.TEXT_BASE_URI + "\"}}").getAsJsonObject();
+        part = Part.fromJson(partJson);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Document jsoupParse() {
+        return Jsoup.parse(html, Fixtures.TEXT_BASE_URI);
+    }
+
+    @Benchmark
+    public List<HTMLContent> renderParsed() {
+        return PartHtmlRenderer.render(parsed);
+    }
+
+    @Benchmark
+    public void processNodesWalk(Blackhole blackhole) {
+        List<HTMLWord> words = new ArrayList<>();
+        for (Element paragraph : paragraphs) {
+            PartHtmlRenderer.processNodes(paragraph.childNodes(), words);
+        }
+        blackhole.consume(words);
+    }
+
+    @Benchmark
+    public List<HTMLContent> parseAndRender() {
+        return PartHtmlRenderer.render(Jsoup.parse(html, Fixtures.TEXT_BASE_URI));
+    }
+
+    @Benchmark
+    public RenderedPage clientRenderPartCached() {
+        return client.renderPart(part);
+    }
+}
@@ -0,0 +1,127 @@
+package dev.advik.wattpad.bench;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.advik.wattpad.RenderPipeline;
+import dev.advik.wattpad.WattpadClient;
+import dev.advik.wattpad.models.Part;
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.scheduler.RequestScheduler;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bulk rendering of a batch of parts, one after another on the calling thread versus through a
+ * {@link RenderPipeline}, for a range of CPU stage sizes. Fetches are answered in-process after a simulated
+ * network latency, so with {@code latencyMillis=0} the run is CPU-bound and shows how parsing scales with cores,
+ * and with a latency it shows how much of the network wait the pipeline hides. Scores are parts per second.
+ * {@code cpuParallelism} only applies to the pipeline, so the sequential baseline runs once per latency.
+ * <pre>
+ * ./gradlew jmh -Pjmh.args="RenderPipelineBenchmark -p cpuParallelism=1,2,4,8"
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderPipelineBenchmark {
+
+    private static final int PARTS = 48;
+
+    /** The client, its simulated network and the batch of parts, shared by both benchmarks. */
+    @State(Scope.Benchmark)
+    public static class Network {
+        @Param({"0", "20"})
+        public long latencyMillis;
+
+        @Param({"medium"})
+        public String size;
+
+        WattpadClient client;
+        List<Part> parts;
+
+        @Setup
+        public void setUp() {
+            byte[] html = Fixtures.chapter(size).getBytes(StandardCharsets.UTF_8);
+            long latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+            OkHttpClient fakeNetwork = new OkHttpClient.Builder()
+                    .addInterceptor(chain -> {
+                        if (latencyNanos > 0) {
+                            LockSupport.parkNanos(latencyNanos); // Waiting, not computing, like a real round trip
+                        }
+                        return new Response.Builder()
+                                .request(chain.request())
+                                .protocol(Protocol.HTTP_1_1)
+                                .code(200)
+                                .message("OK")
+                                .body(ResponseBody.create(html, MediaType.get("text/html; charset=utf-8")))
+                                .build();
+                    })
+                    .build();
+            client = new WattpadClient.Builder()
+                    .useCache(false)
+                    .client(fakeNetwork)
+                    .scheduler(new RequestScheduler.Builder().totalLimit(PARTS).build())
+                    .build();
+
+            parts = new ArrayList<>(PARTS);
+            for (int i = 0; i < PARTS; i++) {
+                long id = 1300000000L + i;
+                JsonObject partJson = JsonParser.parseString("{\"id\":" + id + ",\"title\":\"Chapter " + (i + 1) + "\","
+                        + "\"text_url\":{\"text\":\"https://www.wattpad.com/apiv2/?m=storytext&id=" + id + "\"}}")
+                        .getAsJsonObject();
+                parts.add(Part.fromJson(partJson));
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pipeline {
+        @Param({"1", "2", "4", "8"})
+        public int cpuParallelism;
+
+        RenderPipeline pipeline;
+
+        @Setup
+        public void setUp(Network network) {
+            pipeline = new RenderPipeline.Builder(network.client).ioThreads(16).cpuParallelism(cpuParallelism).build();
+        }
+
+        @TearDown
+        public void tearDown() {
+            pipeline.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARTS)
+    public void sequential(Network network, Blackhole blackhole) {
+        for (Part part : network.parts) {
+            blackhole.consume(network.client.renderPart(part));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARTS)
+    public List<RenderedPage> pipelined(Network network, Pipeline pipeline) {
+        return pipeline.pipeline.renderAll(network.parts);
+    }
+}
@@ -0,0 +1,52 @@
+package dev.advik.wattpad.bench;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.advik.wattpad.adapters.FlexibleLocalDateTimeAdapter;
+import dev.advik.wattpad.models.Story;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/** Story.StoryDeserializer on a realistic 48-part story, with and without the JSON tree parse. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoryParseBenchmark {
+
+    private Gson gson;
+    private String storyJson;
+    private JsonObject storyTree;
+
+    @Setup
+    public void setUp() {
+        // Same adapters as WattpadClient registers
+        gson = new GsonBuilder()
+                .registerTypeAdapter(Story.class, new Story.StoryDeserializer())
+                .registerTypeAdapter(LocalDateTime.class, new FlexibleLocalDateTimeAdapter())
+                .create();
+        storyJson = Fixtures.read("story.json");
+        storyTree = JsonParser.parseString(storyJson).getAsJsonObject();
+    }
+
+    @Benchmark
+    public Story parseAndDeserialize() {
+        return Story.fromJsonStory(JsonParser.parseString(storyJson).getAsJsonObject(), gson);
+    }
+
+    @Benchmark
+    public Story deserializeTree() {
+        return Story.fromJsonStory(storyTree, gson);
+    }
+
+    @Benchmark
+    public JsonObject parseTreeOnly() {
+        return JsonParser.parseString(storyJson).getAsJsonObject();
+    }
+}
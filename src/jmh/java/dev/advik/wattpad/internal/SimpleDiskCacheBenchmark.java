@@ -0,0 +1,67 @@
+package dev.advik.wattpad.internal;
+
+import dev.advik.wattpad.bench.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/** SimpleDiskCache hot paths. Lives in the cache's package to reach the package-private hashKey. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimpleDiskCacheBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private Path cacheDir;
+    private SimpleDiskCache cache;
+    private String value;
+    private final String key = Fixtures.TEXT_BASE_URI;
+
+    @Setup
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("wattpad-jmh-cache");
+        cache = new SimpleDiskCache(cacheDir.toString());
+        value = Fixtures.chapter(size);
+        cache.put(key, value);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String get() {
+        return cache.get(key);
+    }
+
+    @Benchmark
+    public String getMappedAndDecode() {
+        ByteBuffer mapped = cache.getMapped(key);
+        return StandardCharsets.UTF_8.decode(mapped).toString();
+    }
+
+    @Benchmark
+    public void put() {
+        cache.put(key, value);
+    }
+
+    @Benchmark
+    public String hashKey() {
+        return cache.hashKey(key);
+    }
+}
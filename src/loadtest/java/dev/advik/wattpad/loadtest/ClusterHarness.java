@@ -0,0 +1,167 @@
+package dev.advik.wattpad.loadtest;
+
+import dev.advik.wattpad.WattpadClient;
+import dev.advik.wattpad.cluster.ClusterConfig;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs several {@link WattpadClient} nodes in one JVM against a shared {@link MockWattpadServer} and reports how
+ * many upstream requests they made for the distinct URLs they needed, with cluster mode on or off.
+ * <p>
+ * Options ({@code --name=value}):
+ * <pre>
+ *   --nodes=3                nodes, each with its own cache directory and peer port
+ *   --concurrency=8          worker threads per node
+ *   --duration=20            seconds to run
+ *   --stories=200            size of the story id space operations draw from
+ *   --cluster=true           route by consistent hashing; false runs the nodes independently as a baseline
+ *   --latency=20 --jitter=10 injected server latency in ms
+ *   --stop-node-after=0      seconds after which the last node stops serving peers, 0 = never
+ * </pre>
+ * Run with: {@code ./gradlew clusterTest -PclusterTest.args="--nodes=4 --duration=30"}
+ */
+public final class ClusterHarness {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadTest.parseOptions(args);
+        int nodeCount = Integer.parseInt(options.getOrDefault("nodes", "3"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "20"));
+        int storySpace = Integer.parseInt(options.getOrDefault("stories", "200"));
+        boolean clustered = Boolean.parseBoolean(options.getOrDefault("cluster", "true"));
+        long stopNodeAfter = Long.parseLong(options.getOrDefault("stop-node-after", "0"));
+
+        MockWattpadServer.Config config = new MockWattpadServer.Config()
+                .latency(Long.parseLong(options.getOrDefault("latency", "20")), Long.parseLong(options.getOrDefault("jitter", "10")))
+                .threads(Math.max(16, nodeCount * concurrency * 2));
+
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            addresses.add("127.0.0.1:" + freePort());
+        }
+
+        Path root = Files.createTempDirectory("wattpad-cluster-harness");
+        List<WattpadClient> nodes = new ArrayList<>();
+        try (MockWattpadServer server = new MockWattpadServer(config)) {
+            for (int i = 0; i < nodeCount; i++) {
+                WattpadClient.Builder builder = new WattpadClient.Builder()
+                        .client(server.redirectingClient(concurrency))
+                        .cacheDirectory(root.resolve("node-" + i).toString());
+                if (clustered) {
+                    builder.cluster(new ClusterConfig.Builder()
+                            .nodes(addresses.toArray(new String[0]))
+                            .self(addresses.get(i))
+                            .build());
+                }
+                nodes.add(builder.build());
+            }
+
+            System.out.printf("Cluster harness: %d nodes x %d workers, %ds, %d stories, cluster %s, server latency %d+%dms%n",
+                    nodeCount, concurrency, durationSeconds, storySpace, clustered ? "on" : "off",
+                    config.latencyMillis, config.jitterMillis);
+
+            Set<String> distinct = ConcurrentHashMap.newKeySet();
+            Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+            List<List<LatencyRecorder>> recorders = new ArrayList<>();
+            long deadline = System.nanoTime() + durationSeconds * 1_000_000_000L;
+            CountDownLatch done = new CountDownLatch(nodeCount * concurrency);
+            long start = System.nanoTime();
+            for (int n = 0; n < nodeCount; n++) {
+                WattpadClient node = nodes.get(n);
+                List<LatencyRecorder> nodeRecorders = new ArrayList<>();
+                recorders.add(nodeRecorders);
+                for (int w = 0; w < concurrency; w++) {
+                    LatencyRecorder latencies = new LatencyRecorder();
+                    nodeRecorders.add(latencies);
+                    Thread thread = new Thread(() -> {
+                        try {
+                            work(node, storySpace, deadline, latencies, distinct, errors);
+                        } finally {
+                            done.countDown();
+                        }
+                    }, "cluster-node-" + n + "-worker-" + w);
+                    thread.start();
+                }
+            }
+            if (stopNodeAfter > 0) {
+                Thread.sleep(stopNodeAfter * 1000);
+                nodes.get(nodeCount - 1).stopPeerServer();
+                System.out.printf("Stopped peer server of node %d after %ds%n", nodeCount - 1, stopNodeAfter);
+            }
+            done.await();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%n%-8s %10s %10s %10s %10s %10s %10s%n", "node", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+            List<LatencyRecorder> all = new ArrayList<>();
+            for (int n = 0; n < nodeCount; n++) {
+                all.addAll(recorders.get(n));
+                LoadTest.printRow("node-" + n, LatencyRecorder.mergeSorted(recorders.get(n)), seconds);
+            }
+            LoadTest.printRow("all", LatencyRecorder.mergeSorted(all), seconds);
+
+            System.out.printf("%n%-8s %10s %10s %10s %10s %10s%n", "node", "hits", "misses", "forwarded", "served", "fwd fails");
+            for (int n = 0; n < nodeCount; n++) {
+                WattpadClient node = nodes.get(n);
+                System.out.printf("%-8s %10d %10d %10d %10d %10d%n", "node-" + n, node.getCacheHitCount(),
+                        node.getCacheMissCount(), node.getForwardedCount(), node.getPeerServedCount(),
+                        node.getForwardFailureCount());
+            }
+
+            long errorTotal = errors.values().stream().mapToLong(LongAdder::sum).sum();
+            System.out.printf("%nErrors: %d%n", errorTotal);
+            new TreeMap<>(errors).forEach((type, count) -> System.out.printf("  %-24s %d%n", type, count.sum()));
+            System.out.printf("Upstream: %d requests for %d distinct resources (%.2f per resource)%n",
+                    server.getRequestCount(), distinct.size(),
+                    distinct.isEmpty() ? 0.0 : (double) server.getRequestCount() / distinct.size());
+        } finally {
+            for (WattpadClient node : nodes) {
+                node.close(); // Stops its peer server and releases its cache
+            }
+            LoadTest.deleteRecursively(root);
+        }
+    }
+
+    // Alternates story lookups and part renders over a shared id space, so nodes keep asking for the same resources
+    private static void work(WattpadClient node, int storySpace, long deadline, LatencyRecorder latencies,
+                             Set<String> distinct, Map<String, LongAdder> errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            long storyId = LoadTest.STORY_ID_BASE + random.nextInt(storySpace);
+            long partId = storyId * 1000 + random.nextInt(MockWattpadServer.PARTS_PER_STORY);
+            boolean story = random.nextInt(4) == 0;
+            long start = System.nanoTime();
+            try {
+                if (story) {
+                    node.getStoryById(storyId);
+                    distinct.add("story:" + storyId);
+                } else {
+                    node.renderPart(LoadTest.part(partId));
+                    distinct.add("part:" + partId);
+                }
+                latencies.record(System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                errors.computeIfAbsent(LoadTest.classify(e), k -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package dev.advik.wattpad.loadtest;
+
+import com.google.gson.JsonObject;
+import dev.advik.wattpad.WattpadClient;
+import dev.advik.wattpad.exceptions.APIException;
+import dev.advik.wattpad.models.Part;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Drives a {@link WattpadClient} against a {@link MockWattpadServer} and reports latency percentiles,
+ * throughput, error counts and the client's cache hit ratio.
+ * <p>
+ * Options ({@code --name=value}):
+ * <pre>
+ *   --concurrency=16         worker threads
+ *   --duration=30            seconds to run (ignored when --requests is set)
+ *   --requests=0             total operations to issue, 0 = run for --duration
+ *   --stories=1000           size of the story id space operations draw from
+ *   --mix=story:2,part:1,render:7   relative operation weights
+ *   --cache=true             enable the client's disk cache (in a temp directory)
+ *   --chapter=medium         chapter fixture size: small, medium or huge
+ *   --latency=20 --jitter=10 injected server latency in ms
+ *   --errors=0.0 --throttle=0.0     fraction of responses answered with 500 / 429
+ * </pre>
+ * Run with: {@code ./gradlew loadTest -PloadTest.args="--concurrency=32 --duration=60"}
+ */
+public final class LoadTest {
+
+    enum Operation { STORY, PART, RENDER }
+
+    static final long STORY_ID_BASE = 300_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        long requestBudget = Long.parseLong(options.getOrDefault("requests", "0"));
+        int storySpace = Integer.parseInt(options.getOrDefault("stories", "1000"));
+        boolean useCache = Boolean.parseBoolean(options.getOrDefault("cache", "true"));
+        Operation[] mix = parseMix(options.getOrDefault("mix", "story:2,part:1,render:7"));
+
+        MockWattpadServer.Config config = new MockWattpadServer.Config()
+                .latency(Long.parseLong(options.getOrDefault("latency", "20")), Long.parseLong(options.getOrDefault("jitter", "10")))
+                .errorRate(Double.parseDouble(options.getOrDefault("errors", "0")))
+                .throttleRate(Double.parseDouble(options.getOrDefault("throttle", "0")))
+                .chapterSize(options.getOrDefault("chapter", "medium"))
+                .threads(Math.max(16, concurrency * 2));
+
+        Path cacheDir = Files.createTempDirectory("wattpad-loadtest-cache");
+        try (MockWattpadServer server = new MockWattpadServer(config);
+             WattpadClient client = new WattpadClient.Builder()
+                     .client(server.redirectingClient(concurrency))
+                     .useCache(useCache)
+                     .cacheDirectory(cacheDir.toString())
+                     .build()) {
+            System.out.printf("Load test: %d workers, %s, %d stories, cache %s, server latency %d+%dms, errors %.3f, 429s %.3f%n",
+                    concurrency, requestBudget > 0 ? requestBudget + " requests" : durationSeconds + "s",
+                    storySpace, useCache ? "on" : "off", config.latencyMillis, config.jitterMillis, config.errorRate, config.throttleRate);
+
+            Run run = new Run(client, mix, storySpace, requestBudget,
+                    requestBudget > 0 ? Long.MAX_VALUE : System.nanoTime() + durationSeconds * 1_000_000_000L);
+            long start = System.nanoTime();
+            List<Thread> workers = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                Worker worker = new Worker(run);
+                run.workers.add(worker);
+                Thread thread = new Thread(() -> {
+                    try {
+                        worker.loop();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "loadtest-worker-" + i);
+                workers.add(thread);
+                thread.start();
+            }
+            done.await();
+            long elapsedNanos = System.nanoTime() - start;
+
+            report(run, client, server, elapsedNanos);
+        } finally {
+            deleteRecursively(cacheDir);
+        }
+    }
+
+    // --- Workers ---
+
+    private static final class Run {
+        final WattpadClient client;
+        final Operation[] mix;
+        final int storySpace;
+        final long requestBudget;
+        final long deadlineNanos;
+        final AtomicLong issued = new AtomicLong();
+        final List<Worker> workers = new ArrayList<>();
+        final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        Run(WattpadClient client, Operation[] mix, int storySpace, long requestBudget, long deadlineNanos) {
+            this.client = client;
+            this.mix = mix;
+            this.storySpace = storySpace;
+            this.requestBudget = requestBudget;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        boolean hasWork() {
+            if (requestBudget > 0) {
+                return issued.incrementAndGet() <= requestBudget;
+            }
+            return System.nanoTime() < deadlineNanos;
+        }
+    }
+
+    private static final class Worker {
+        final Run run;
+        final Map<Operation, LatencyRecorder> latencies = new EnumMap<>(Operation.class);
+
+        Worker(Run run) {
+            this.run = run;
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new LatencyRecorder());
+            }
+        }
+
+        void loop() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (run.hasWork()) {
+                Operation operation = run.mix[random.nextInt(run.mix.length)];
+                long storyId = STORY_ID_BASE + random.nextInt(run.storySpace);
+                long partId = storyId * 1000 + random.nextInt(MockWattpadServer.PARTS_PER_STORY);
+                long start = System.nanoTime();
+                try {
+                    execute(operation, storyId, partId);
+                    latencies.get(operation).record(System.nanoTime() - start);
+                } catch (RuntimeException e) {
+                    run.errors.computeIfAbsent(classify(e), k -> new LongAdder()).increment();
+                }
+            }
+        }
+
+        private void execute(Operation operation, long storyId, long partId) {
+            switch (operation) {
+                case STORY:
+                    run.client.getStoryById(storyId);
+                    break;
+                case PART:
+                    run.client.getStoryByPartId(partId);
+                    break;
+                case RENDER:
+                    run.client.renderPart(part(partId));
+                    break;
+                default:
+                    throw new IllegalStateException("Unhandled operation " + operation);
+            }
+        }
+    }
+
+    /** Builds the part directly so RENDER measures only the text fetch and render, not a story lookup. */
+    static Part part(long partId) {
+        JsonObject textUrl = new JsonObject();
+        textUrl.addProperty("text", "https://www.wattpad.com/apiv2/?m=storytext&id=" + partId);
+        JsonObject json = new JsonObject();
+        json.addProperty("id", partId);
+        json.addProperty("title", "Part " + partId);
+        json.add("text_url", textUrl);
+        return Part.fromJson(json);
+    }
+
+    static String classify(RuntimeException e) {
+        if (e instanceof APIException && e.getMessage() != null && e.getMessage().startsWith("HTTP Error: ")) {
+            String status = e.getMessage().substring("HTTP Error: ".length()).split(" ", 2)[0];
+            return "HTTP " + status;
+        }
+        return e.getClass().getSimpleName();
+    }
+
+    // --- Reporting ---
+
+    private static void report(Run run, WattpadClient client, MockWattpadServer server, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        List<LatencyRecorder> all = new ArrayList<>();
+        System.out.printf("%n%-8s %10s %10s %10s %10s %10s %10s%n", "op", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            List<LatencyRecorder> recorders = new ArrayList<>();
+            for (Worker worker : run.workers) {
+                recorders.add(worker.latencies.get(operation));
+            }
+            all.addAll(recorders);
+            printRow(operation.name().toLowerCase(), LatencyRecorder.mergeSorted(recorders), seconds);
+        }
+        printRow("all", LatencyRecorder.mergeSorted(all), seconds);
+
+        long errorTotal = run.errors.values().stream().mapToLong(LongAdder::sum).sum();
+        System.out.printf("%nErrors: %d%n", errorTotal);
+        new TreeMap<>(run.errors).forEach((type, count) -> System.out.printf("  %-24s %d%n", type, count.sum()));
+
+        long hits = client.getCacheHitCount();
+        long misses = client.getCacheMissCount();
+        System.out.printf("%nCache: %d hits, %d misses, hit ratio %.1f%%%n",
+                hits, misses, hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses));
+        System.out.printf("Server: %d requests (%d injected 500s, %d injected 429s), elapsed %.2fs%n",
+                server.getRequestCount(), server.getInjectedErrorCount(), server.getInjectedThrottleCount(), seconds);
+    }
+
+    static void printRow(String name, long[] sorted, double seconds) {
+        System.out.printf("%-8s %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n", name, sorted.length, sorted.length / seconds,
+                LatencyRecorder.percentileMillis(sorted, 50), LatencyRecorder.percentileMillis(sorted, 99),
+                LatencyRecorder.percentileMillis(sorted, 99.9), LatencyRecorder.percentileMillis(sorted, 100));
+    }
+
+    // --- Options ---
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    /** Expands "story:2,render:7" into a weighted array to pick from uniformly. */
+    private static Operation[] parseMix(String spec) {
+        List<Operation> weighted = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String[] kv = entry.trim().split(":");
+            Operation operation = Operation.valueOf(kv[0].trim().toUpperCase());
+            int weight = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix is empty: " + spec);
+        }
+        return weighted.toArray(new Operation[0]);
+    }
+
+    static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
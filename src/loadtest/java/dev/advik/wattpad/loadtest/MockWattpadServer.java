@@ -0,0 +1,206 @@
+package dev.advik.wattpad.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.advik.wattpad.bench.Fixtures;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for the Wattpad endpoints the client uses, serving the checked-in fixtures:
+ * <ul>
+ *   <li>{@code /api/v3/stories/{id}} - the fixture story, re-keyed to the requested id</li>
+ *   <li>{@code /api/v4/parts/{id}} - the story owning the part under {@code group}</li>
+ *   <li>{@code /apiv2/?m=storytext&id={id}} - chapter HTML (small/medium/huge by configuration)</li>
+ * </ul>
+ * Part ids are {@code storyId * 1000 + index}, so any story id is valid and gets distinct cache keys.
+ * Latency, 5xx errors and 429 throttling can be injected.
+ */
+public final class MockWattpadServer implements AutoCloseable {
+
+    public static final int PARTS_PER_STORY = 48; // Matches the story fixture
+    private static final int WRITE_CHUNK = 64 * 1024;
+
+    public static class Config {
+        long latencyMillis = 0;
+        long jitterMillis = 0;
+        double errorRate = 0;    // Fraction of requests answered with 500
+        double throttleRate = 0; // Fraction of requests answered with 429
+        String chapterSize = "medium";
+        int threads = 64;
+
+        public Config latency(long millis, long jitterMillis) { this.latencyMillis = millis; this.jitterMillis = jitterMillis; return this; }
+        public Config errorRate(double rate) { this.errorRate = rate; return this; }
+        public Config throttleRate(double rate) { this.throttleRate = rate; return this; }
+        public Config chapterSize(String size) { this.chapterSize = size; return this; }
+        public Config threads(int threads) { this.threads = threads; return this; }
+    }
+
+    private final Config config;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final JsonObject storyTemplate;
+    private final byte[] chapter;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder injectedThrottles = new LongAdder();
+
+    public MockWattpadServer(Config config) throws IOException {
+        this.config = config;
+        this.storyTemplate = JsonParser.parseString(Fixtures.read("story.json")).getAsJsonObject();
+        this.chapter = Fixtures.chapter(config.chapterSize).getBytes(StandardCharsets.UTF_8);
+        // Without TCP_NODELAY, Nagle + delayed ACKs add a flat ~40ms to every keep-alive response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.executor = Executors.newFixedThreadPool(config.threads);
+        server.setExecutor(executor);
+        server.createContext("/api/v3/stories/", this::handleStory);
+        server.createContext("/api/v4/parts/", this::handlePart);
+        server.createContext("/apiv2/", this::handleText);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getRequestCount() { return requests.sum(); }
+    public long getInjectedErrorCount() { return injectedErrors.sum(); }
+    public long getInjectedThrottleCount() { return injectedThrottles.sum(); }
+
+    /**
+     * An OkHttpClient that sends every request (the client always builds www.wattpad.com URLs) to this server.
+     * Cache keys keep the original URL, so they look exactly like production ones.
+     */
+    public OkHttpClient redirectingClient(int maxConnections) {
+        Interceptor redirect = chain -> {
+            HttpUrl local = chain.request().url().newBuilder().scheme("http").host("127.0.0.1").port(getPort()).build();
+            return chain.proceed(chain.request().newBuilder().url(local).build());
+        };
+        okhttp3.Dispatcher dispatcher = new okhttp3.Dispatcher();
+        dispatcher.setMaxRequests(maxConnections);
+        dispatcher.setMaxRequestsPerHost(maxConnections);
+        return new OkHttpClient.Builder()
+                .addInterceptor(redirect)
+                .dispatcher(dispatcher)
+                .connectionPool(new okhttp3.ConnectionPool(maxConnections, 1, TimeUnit.MINUTES))
+                .build();
+    }
+
+    // --- Handlers ---
+
+    private void handleStory(HttpExchange exchange) throws IOException {
+        long storyId = lastPathSegment(exchange);
+        respond(exchange, "application/json", storyJson(storyId).toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handlePart(HttpExchange exchange) throws IOException {
+        long partId = lastPathSegment(exchange);
+        JsonObject response = new JsonObject();
+        JsonObject textUrl = new JsonObject();
+        textUrl.addProperty("text", textUrl(partId));
+        response.add("text_url", textUrl);
+        response.add("group", storyJson(partId / 1000));
+        respond(exchange, "application/json", response.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleText(HttpExchange exchange) throws IOException {
+        respond(exchange, "text/html; charset=utf-8", chapter);
+    }
+
+    private void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        requests.increment();
+        try {
+            injectLatency();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double roll = random.nextDouble();
+            if (roll < config.throttleRate) {
+                injectedThrottles.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendEmpty(exchange, 429);
+                return;
+            }
+            if (roll < config.throttleRate + config.errorRate) {
+                injectedErrors.increment();
+                sendEmpty(exchange, 500);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                // Chunked writes keep the JDK's per-thread temporary direct buffers small for huge chapters
+                for (int offset = 0; offset < body.length; offset += WRITE_CHUNK) {
+                    out.write(body, offset, Math.min(WRITE_CHUNK, body.length - offset));
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private void injectLatency() {
+        long delay = config.latencyMillis;
+        if (config.jitterMillis > 0) {
+            delay += ThreadLocalRandom.current().nextLong(config.jitterMillis + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // --- Fixture re-keying ---
+
+    private JsonObject storyJson(long storyId) {
+        JsonObject story = storyTemplate.deepCopy();
+        story.addProperty("id", String.valueOf(storyId));
+        JsonArray parts = story.getAsJsonArray("parts");
+        for (int i = 0; i < parts.size(); i++) {
+            JsonObject part = parts.get(i).getAsJsonObject();
+            long partId = storyId * 1000 + i;
+            part.addProperty("id", partId);
+            part.getAsJsonObject("text_url").addProperty("text", textUrl(partId));
+        }
+        JsonElement last = parts.get(parts.size() - 1);
+        story.getAsJsonObject("lastPublishedPart").addProperty("id", last.getAsJsonObject().get("id").getAsLong());
+        return story;
+    }
+
+    private static String textUrl(long partId) {
+        return "https://www.wattpad.com/apiv2/?m=storytext&id=" + partId;
+    }
+
+    private static long lastPathSegment(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        return Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -1,25 +1,134 @@
 package dev.advik;
 
 import dev.advik.wattpad.WattpadClient;
+import dev.advik.wattpad.WattpadConstants;
+import dev.advik.wattpad.batch.BatchDownloader;
+import dev.advik.wattpad.batch.BatchItem;
+import dev.advik.wattpad.batch.BatchStats;
+import dev.advik.wattpad.export.ExportFormat;
 import dev.advik.wattpad.models.Part;
 import dev.advik.wattpad.models.RenderedPage;
 import dev.advik.wattpad.models.Story;
 import dev.advik.wattpad.models.html.HTMLContent;
 import dev.advik.wattpad.models.html.HTMLWord;
-
+import dev.advik.wattpad.scheduler.RequestPriority;
+import dev.advik.wattpad.scheduler.RequestScheduler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Batch downloader: {@code Main <ids-file> [options]} downloads every story ({@code story:<id>} or a bare id) and
+ * part ({@code part:<id>}) listed in the file, one per line, and prints live throughput. Rerunning with the same
+ * output directory resumes from the journal. {@code Main --demo} prints a single story instead.
+ */
 public class Main {
-    public static void main(String[] args) {
-        System.out.println("Wattpad API Java Demo");
 
-        // Build the client (using default settings with caching enabled)
-        WattpadClient client = new WattpadClient.Builder()
-                .useCache(true) // Explicitly enable caching (default is true anyway)
-                .build();
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: Main <ids-file> [options]",
+            "  --out=DIR               Output directory (default: downloads)",
+            "  --format=text|epub|none One file per item, or none to only download and render (default: text)",
+            "  --concurrency=N         Items downloaded at once (default: 8)",
+            "  --journal=FILE          Progress journal for resuming (default: <out>/journal.log)",
+            "  --cache=DIR             Response cache directory (default: " + WattpadConstants.DEFAULT_CACHE_DIR + ")",
+            "  --no-cache              Don't cache responses",
+            "  --report-every=SECONDS  Progress line interval, 0 for the final line only (default: 5)",
+            "       Main --demo");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 1 && args[0].equals("--demo")) {
+            demo();
+            return;
+        }
+        if (args.length == 0 || args[0].startsWith("--")) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        Path idsFile = Paths.get(args[0]);
+        Path outputDir = Paths.get("downloads");
+        ExportFormat format = ExportFormat.TEXT;
+        int concurrency = 8;
+        Path journal = null;
+        String cacheDir = null;
+        boolean useCache = true;
+        long reportSeconds = 5;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--out=")) {
+                outputDir = Paths.get(value);
+            } else if (arg.startsWith("--format=")) {
+                format = value.equals("none") ? null : ExportFormat.valueOf(value.toUpperCase(Locale.ROOT));
+            } else if (arg.startsWith("--concurrency=")) {
+                concurrency = Integer.parseInt(value);
+            } else if (arg.startsWith("--journal=")) {
+                journal = Paths.get(value);
+            } else if (arg.startsWith("--cache=")) {
+                cacheDir = value;
+            } else if (arg.equals("--no-cache")) {
+                useCache = false;
+            } else if (arg.startsWith("--report-every=")) {
+                reportSeconds = Long.parseLong(value);
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+        }
+
+        List<BatchItem> items = new ArrayList<>();
+        for (String line : Files.readAllLines(idsFile, StandardCharsets.UTF_8)) {
+            BatchItem item = BatchItem.parse(line);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+
+        WattpadClient.Builder clientBuilder = new WattpadClient.Builder()
+                .useCache(useCache)
+                // Let the whole batch run at once; BULK is otherwise capped below the default concurrency
+                .scheduler(new RequestScheduler.Builder()
+                        .totalLimit(Math.max(16, concurrency))
+                        .limit(RequestPriority.BULK, concurrency)
+                        .build());
+        if (cacheDir != null) {
+            clientBuilder.cacheDirectory(cacheDir);
+        }
+        BatchStats stats;
+        try (WattpadClient client = clientBuilder.build()) {
+            BatchDownloader downloader = new BatchDownloader.Builder(client)
+                    .outputDirectory(outputDir)
+                    .format(format)
+                    .concurrency(concurrency)
+                    .journal(journal)
+                    .reportEvery(reportSeconds > 0 ? Duration.ofSeconds(reportSeconds) : null, System.out)
+                    .build();
+
+            System.out.println("Downloading " + items.size() + " items with concurrency " + concurrency);
+            stats = downloader.run(items);
+        }
+        System.exit(stats.getFailureCount() > 0 ? 1 : 0);
+    }
+
+    // The original single-story walkthrough
+    private static void demo() {
+        System.out.println("Wattpad API Java Demo");
 
         long storyId = 336166598L; // Wounded Love example ID
         // long partIdForStoryLookup = 1321853334L; // Author's Note part ID (can be used to find story)
 
-        try {
+        // Build the client (using default settings with caching enabled)
+        try (WattpadClient client = new WattpadClient.Builder()
+                .useCache(true) // Explicitly enable caching (default is true anyway)
+                .build()) {
             // --- Get Story by ID ---
             System.out.println("\nFetching story by ID: " + storyId);
             Story story = Story.fromId(storyId, client);
@@ -0,0 +1,266 @@
+package dev.advik.wattpad;
+
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.internal.RawBody;
+import dev.advik.wattpad.jfr.RenderEvent;
+import dev.advik.wattpad.models.Part;
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.scheduler.Deadline;
+import dev.advik.wattpad.scheduler.RequestPriority;
+import dev.advik.wattpad.scheduler.RequestScheduler;
+import okhttp3.HttpUrl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Renders parts in two stages so network waits and parsing overlap: I/O threads fetch part HTML, and a
+ * work-stealing pool sized to the cores does the Jsoup parse and the word walk.
+ * <p>
+ * At most {@code queueCapacity} fetched bodies wait for (or are in) the CPU stage. When that many are waiting,
+ * I/O threads block before handing over another, so fetching never runs further ahead of parsing than that and
+ * buffered chapters stay bounded. {@link #getBackpressureNanos()} tells how long they blocked: a large value means
+ * the job is CPU-bound and more cores would help, a small one that more I/O threads would.
+ * <pre>{@code
+ * try (RenderPipeline pipeline = new RenderPipeline.Builder(client).ioThreads(16).build()) {
+ *     List<RenderedPage> pages = pipeline.renderAll(story.getParts());
+ * }
+ * }</pre>
+ * Requests keep the priority and deadline of the thread that submitted them.
+ */
+public final class RenderPipeline implements AutoCloseable {
+
+    public static class Builder {
+        private final WattpadClient client;
+        private int ioThreads = 8;
+        private int cpuParallelism = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = -1; // Default: 2 per CPU thread
+
+        public Builder(WattpadClient client) {
+            this.client = client;
+        }
+
+        /** Threads fetching part text. The client's scheduler still limits how many requests run at once. */
+        public Builder ioThreads(int ioThreads) {
+            if (ioThreads < 1) {
+                throw new IllegalArgumentException("ioThreads must be >= 1");
+            }
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        /** Threads parsing and walking fetched parts. Defaults to the number of cores. */
+        public Builder cpuParallelism(int cpuParallelism) {
+            if (cpuParallelism < 1) {
+                throw new IllegalArgumentException("cpuParallelism must be >= 1");
+            }
+            this.cpuParallelism = cpuParallelism;
+            return this;
+        }
+
+        /** Fetched parts allowed to wait for the CPU stage before I/O threads block. Defaults to 2 per CPU thread. */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("queueCapacity must be >= 1");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public RenderPipeline build() {
+            return new RenderPipeline(this);
+        }
+    }
+
+    private final WattpadClient client;
+    private final ExecutorService ioPool;
+    private final ForkJoinPool cpuPool;
+    private final Semaphore cpuSlots;
+    private final LongAdder backpressureNanos = new LongAdder();
+    private final LongAdder rendered = new LongAdder();
+    private final Set<CompletableFuture<RenderedPage>> pending = ConcurrentHashMap.newKeySet();
+
+    private RenderPipeline(Builder builder) {
+        this.client = builder.client;
+        AtomicInteger ioCount = new AtomicInteger();
+        this.ioPool = Executors.newFixedThreadPool(builder.ioThreads, r -> {
+            Thread thread = new Thread(r, "wattpad-render-io-" + ioCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cpuPool = new ForkJoinPool(builder.cpuParallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("wattpad-render-cpu-" + thread.getPoolIndex());
+            return thread;
+        }, null, true); // FIFO: parts are independent tasks, rendered in the order they were fetched
+        this.cpuSlots = new Semaphore(builder.queueCapacity > 0 ? builder.queueCapacity : 2 * builder.cpuParallelism);
+    }
+
+    // --- Rendering ---
+
+    /** Queues a part; the future completes on a CPU thread once it's rendered, or with the fetch or parse error. */
+    public CompletableFuture<RenderedPage> submit(Part part) {
+        CompletableFuture<RenderedPage> result = new CompletableFuture<>();
+        pending.add(result);
+        result.whenComplete((page, error) -> pending.remove(result));
+        RequestPriority priority = RequestScheduler.currentPriority();
+        Deadline deadline = Deadline.current();
+        try {
+            ioPool.execute(() -> Deadline.callWithin(deadline, () -> RequestScheduler.callWithPriority(priority, () -> {
+                fetch(part, deadline, result);
+                return null;
+            })));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new WattpadException("Render pipeline is closed", e));
+        }
+        return result;
+    }
+
+    /** Renders every part, in order. Throws the first failure once all parts are done. */
+    public List<RenderedPage> renderAll(List<Part> parts) {
+        List<CompletableFuture<RenderedPage>> futures = new ArrayList<>(parts.size());
+        for (Part part : parts) {
+            futures.add(submit(part));
+        }
+        List<RenderedPage> pages = new ArrayList<>(parts.size());
+        WattpadException failure = null;
+        for (CompletableFuture<RenderedPage> future : futures) {
+            try {
+                pages.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof WattpadException
+                            ? (WattpadException) e.getCause()
+                            : new WattpadException("Failed to render part", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return pages;
+    }
+
+    /**
+     * Renders parts in order, keeping at most {@code readAhead} parts queued beyond the one being returned, so a
+     * caller that writes and drops each page holds only that many at once. {@code next()} throws the part's
+     * failure as a {@link WattpadException}.
+     */
+    public Iterator<RenderedPage> renderInOrder(List<Part> parts, int readAhead) {
+        if (readAhead < 0) {
+            throw new IllegalArgumentException("readAhead must be >= 0");
+        }
+        Iterator<Part> remaining = parts.iterator();
+        Deque<CompletableFuture<RenderedPage>> queued = new ArrayDeque<>();
+        while (queued.size() <= readAhead && remaining.hasNext()) {
+            queued.add(submit(remaining.next()));
+        }
+        return new Iterator<RenderedPage>() {
+            @Override
+            public boolean hasNext() {
+                return !queued.isEmpty();
+            }
+
+            @Override
+            public RenderedPage next() {
+                CompletableFuture<RenderedPage> head = queued.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                if (remaining.hasNext()) {
+                    queued.add(submit(remaining.next()));
+                }
+                try {
+                    return head.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof WattpadException
+                            ? (WattpadException) e.getCause()
+                            : new WattpadException("Failed to render part", e.getCause());
+                }
+            }
+        };
+    }
+
+    // Runs on an I/O thread
+    private void fetch(Part part, Deadline deadline, CompletableFuture<RenderedPage> result) {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        HttpUrl textFetchUrl;
+        RawBody body;
+        try {
+            textFetchUrl = client.partTextUrl(part);
+            body = client.fetchPartText(textFetchUrl);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            cpuSlots.acquire(); // Backpressure: wait for the CPU stage to drain
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            body.close();
+            result.completeExceptionally(new WattpadException("Interrupted while queueing part " + part.getId(), e));
+            return;
+        }
+        backpressureNanos.add(System.nanoTime() - waitStart);
+
+        try {
+            cpuPool.execute(() -> {
+                try {
+                    RenderedPage page = Deadline.callWithin(deadline,
+                            () -> client.renderFetched(part, textFetchUrl, body, event));
+                    client.commitRenderEvent(event, part, page);
+                    rendered.increment();
+                    result.complete(page);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    cpuSlots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            cpuSlots.release();
+            body.close();
+            result.completeExceptionally(new WattpadException("Render pipeline is closed", e));
+        }
+    }
+
+    // --- Stats ---
+
+    /** Total time I/O threads spent blocked because the CPU stage was full. */
+    public long getBackpressureNanos() {
+        return backpressureNanos.sum();
+    }
+
+    public long getRenderedCount() {
+        return rendered.sum();
+    }
+
+    /** Stops both stages. Parts not yet rendered complete exceptionally. */
+    @Override
+    public void close() {
+        ioPool.shutdownNow();
+        cpuPool.shutdownNow();
+        for (CompletableFuture<RenderedPage> future : pending) {
+            future.completeExceptionally(new WattpadException("Render pipeline was closed"));
+        }
+    }
+}
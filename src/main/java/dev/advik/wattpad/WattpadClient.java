@@ -2,46 +2,133 @@ package dev.advik.wattpad;
 
 
 import com.google.gson.*;
-import dev.advik.wattpad.adapters.LocalDateTimeAdapter; // Assuming you might extract this
+import dev.advik.wattpad.adapters.FlexibleLocalDateTimeAdapter;
+import dev.advik.wattpad.archive.HttpArchive;
+import dev.advik.wattpad.archive.RecordingInterceptor;
+import dev.advik.wattpad.archive.ReplayInterceptor;
 import dev.advik.wattpad.exceptions.*;
+import dev.advik.wattpad.images.ImageDownloader;
+import dev.advik.wattpad.images.ImageStore;
+import dev.advik.wattpad.internal.DeadlineCalls;
+import dev.advik.wattpad.internal.DemandDrivenPublisher;
+import dev.advik.wattpad.jfr.FetchEvent;
+import dev.advik.wattpad.jfr.RenderEvent;
+import dev.advik.wattpad.internal.PartHtmlRenderer;
+import dev.advik.wattpad.internal.PrefetchingPageIterator;
+import dev.advik.wattpad.internal.RawBody;
+import dev.advik.wattpad.cache.FileBackedCache;
+import dev.advik.wattpad.cache.ResponseCache;
+import dev.advik.wattpad.cluster.ClusterConfig;
+import dev.advik.wattpad.cluster.HashRing;
+import dev.advik.wattpad.cluster.NodeAddress;
+import dev.advik.wattpad.cluster.PeerServer;
+import dev.advik.wattpad.cluster.ShardKeys;
+import dev.advik.wattpad.internal.CacheSnapshot;
 import dev.advik.wattpad.internal.SimpleDiskCache;
+import dev.advik.wattpad.metrics.ClientMetrics;
+import dev.advik.wattpad.metrics.EndpointFamily;
+import dev.advik.wattpad.metrics.Phase;
 import dev.advik.wattpad.models.*;
 import dev.advik.wattpad.models.html.*;
+import dev.advik.wattpad.scheduler.Deadline;
+import dev.advik.wattpad.scheduler.RequestPriority;
+import dev.advik.wattpad.scheduler.RequestScheduler;
 import okhttp3.*;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.nodes.Node;
-import org.jsoup.nodes.TextNode;
-import org.jsoup.select.Elements;
 
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime; // Import for robust parsing
-import java.time.format.DateTimeParseException; // Import for error handling
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class WattpadClient {
+public class WattpadClient implements Closeable {
 
     private final OkHttpClient httpClient;
     private final Gson gson; // Make this final
     private final String userAgent;
     private final boolean useCache;
-    private final SimpleDiskCache cache; // Can be null if useCache is false
+    private final ResponseCache cache; // Can be null if useCache is false
+    private final Duration cacheTtl;   // Null = entries never expire
+    private final int searchPrefetchDepth;
+    private final int maxPartsInFlight;
+    private final RequestScheduler scheduler;
+    private final long streamingThreshold;
+    private final long memoryMapThreshold;
+    private final Path imageDir;
+    private final int maxImageDownloads;
+    private ExecutorService backgroundExecutor; // Lazily created, used for prefetching
+    private ImageDownloader imageDownloader; // Lazily created by images()
+    private final WattpadRuntime runtime;       // Null unless built from a shared runtime
+    private final boolean ownsHttpClient;       // Built here rather than taken from a runtime or the builder
+    private final boolean ownsCache;            // Likewise for the cache
+    private final HttpArchive.Writer archiveWriter; // Null unless recording
+    private final ClientMetrics metrics;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final ClusterConfig cluster;      // Null unless cluster mode is on
+    private final HashRing ring;              // Null unless cluster mode is on
+    private final OkHttpClient peerClient;    // Null unless cluster mode is on
+    private final PeerServer peerServer;      // Null unless cluster mode is on
+    private final Map<String, CompletableFuture<Void>> ownedInFlight = new ConcurrentHashMap<>();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder forwardFailures = new LongAdder();
 
     public static class Builder {
         private String userAgent = WattpadConstants.DEFAULT_USER_AGENT;
         private boolean useCache = true;
         private String cacheDir = WattpadConstants.DEFAULT_CACHE_DIR;
+        private boolean sharedCache = false;
+        private long maxCacheSize = 0; // 0 = unbounded
+        private ResponseCache customCache = null;
+        private Duration cacheTtl = null;
+        private ClusterConfig cluster = null;
+        private int peerThreads = 16;
         private long connectTimeout = 10;
         private long readTimeout = 30;
         private TimeUnit timeoutUnit = TimeUnit.SECONDS;
         private OkHttpClient customClient = null;
-
+        private int searchPrefetchDepth = 1;
+        private int maxPartsInFlight = 4;
+        private RequestScheduler scheduler = null;
+        private long streamingThreshold = 256 * 1024;
+        private long memoryMapThreshold = 1024 * 1024;
+        private Path recordArchive = null;
+        private Path replayArchive = null;
+        private boolean replayTiming = false;
+        private String imageDir = null; // Defaults to <cacheDir>/images
+        private int maxImageDownloads = 4;
+        private WattpadRuntime runtime = null;
+        private boolean customTimeouts = false;
 
         public Builder userAgent(String userAgent) {
             this.userAgent = userAgent;
@@ -58,26 +145,191 @@ public class WattpadClient {
             return this;
         }
 
+        /**
+         * Lets several processes on the host share the cache directory. Maintenance (clear, eviction) is then
+         * serialized with a file lock, and access statistics are kept in a table all processes update.
+         */
+        public Builder sharedCache(boolean sharedCache) {
+            this.sharedCache = sharedCache;
+            return this;
+        }
+
+        /**
+         * Use this cache instead of a {@link SimpleDiskCache} in {@link #cacheDirectory}, e.g. a
+         * {@link dev.advik.wattpad.cache.RemoteCacheClient} shared by several nodes. Implies {@code useCache(true)};
+         * {@link #sharedCache} and {@link #maxCacheSize} only apply to the built-in disk cache.
+         */
+        public Builder cache(ResponseCache cache) {
+            this.customCache = cache;
+            this.useCache = cache != null;
+            return this;
+        }
+
+        /**
+         * Turns on cluster mode: story and part requests are routed by consistent hashing to one owner node, which
+         * fetches and caches them for the whole cluster. Requests owned by another node are forwarded to it, and
+         * fetched here only if it can't be reached. This client serves its own share on the self address.
+         */
+        public Builder cluster(ClusterConfig cluster) {
+            this.cluster = cluster;
+            return this;
+        }
+
+        /** Threads answering requests forwarded by other nodes in cluster mode. */
+        public Builder peerThreads(int peerThreads) {
+            if (peerThreads < 1) {
+                throw new IllegalArgumentException("peerThreads must be >= 1");
+            }
+            this.peerThreads = peerThreads;
+            return this;
+        }
+
+        /** How long cached responses stay valid. Defaults to forever. */
+        public Builder cacheTtl(Duration ttl) {
+            if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+                throw new IllegalArgumentException("cacheTtl must be positive");
+            }
+            this.cacheTtl = ttl;
+            return this;
+        }
+
+        /** Evicts least recently used cache entries once the cache grows past this many bytes. 0 means unbounded. */
+        public Builder maxCacheSize(long maxCacheSize) {
+            if (maxCacheSize < 0) {
+                throw new IllegalArgumentException("maxCacheSize must be >= 0");
+            }
+            this.maxCacheSize = maxCacheSize;
+            return this;
+        }
+
         public Builder connectTimeout(long timeout, TimeUnit unit) {
             this.connectTimeout = timeout;
             this.timeoutUnit = unit;
+            this.customTimeouts = true;
             return this;
         }
 
         public Builder readTimeout(long timeout, TimeUnit unit) {
             this.readTimeout = timeout;
             this.timeoutUnit = unit;
+            this.customTimeouts = true;
             return this;
         }
 
-        /** Provide a pre-configured OkHttpClient instance. If set, timeout settings are ignored. */
+        /**
+         * Provide a pre-configured OkHttpClient instance. If set, timeout settings are ignored.
+         * Its event listener is replaced by the one feeding {@link WattpadClient#getMetrics()}.
+         */
         public Builder client(OkHttpClient client) {
             this.customClient = client;
             return this;
         }
 
 
+        /** How many result pages search streams fetch ahead of the page being consumed. 0 disables prefetching. */
+        public Builder searchPrefetchDepth(int pages) {
+            if (pages < 0) {
+                throw new IllegalArgumentException("searchPrefetchDepth must be >= 0");
+            }
+            this.searchPrefetchDepth = pages;
+            return this;
+        }
+
+        /** Upper bound on concurrent part downloads per {@link #publishParts(Story)} subscription. */
+        public Builder maxPartsInFlight(int maxPartsInFlight) {
+            if (maxPartsInFlight < 1) {
+                throw new IllegalArgumentException("maxPartsInFlight must be >= 1");
+            }
+            this.maxPartsInFlight = maxPartsInFlight;
+            return this;
+        }
+
+        /**
+         * Admission control for network requests by priority. Pass the same scheduler to several clients
+         * to have them share limits. Defaults to a scheduler owned by this client.
+         */
+        public Builder scheduler(RequestScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Responses larger than this many bytes (or of unknown length) are streamed to disk instead of being
+         * buffered as a String, capping memory per request. {@code Long.MAX_VALUE} disables streaming.
+         */
+        public Builder streamingThreshold(long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("streamingThreshold must be >= 0");
+            }
+            this.streamingThreshold = bytes;
+            return this;
+        }
+
+        /**
+         * Cache entries larger than this many bytes are read through a memory mapping instead of being copied
+         * onto the heap, and parsed straight out of it. {@code Long.MAX_VALUE} disables mapping.
+         */
+        public Builder memoryMapThreshold(long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("memoryMapThreshold must be >= 0");
+            }
+            this.memoryMapThreshold = bytes;
+            return this;
+        }
+
+        /**
+         * Appends every HTTP exchange (URL, status, headers, body, timings) to an {@link HttpArchive} file,
+         * for later offline replay with {@link #replayFrom(Path, boolean)}.
+         */
+        public Builder recordTo(Path archive) {
+            this.recordArchive = archive;
+            return this;
+        }
+
+        /**
+         * Serves every HTTP request from an archive written by {@link #recordTo(Path)} instead of the network.
+         * With {@code reproduceTiming}, responses take as long as they did when recorded.
+         */
+        public Builder replayFrom(Path archive, boolean reproduceTiming) {
+            this.replayArchive = archive;
+            this.replayTiming = reproduceTiming;
+            return this;
+        }
+
+        /** Where {@link WattpadClient#images()} stores downloaded images. Defaults to an {@code images} folder in the cache directory. */
+        public Builder imageDirectory(String imageDir) {
+            this.imageDir = imageDir;
+            return this;
+        }
+
+        /** Upper bound on concurrent image downloads by {@link WattpadClient#images()}. */
+        public Builder maxImageDownloads(int maxImageDownloads) {
+            if (maxImageDownloads < 1) {
+                throw new IllegalArgumentException("maxImageDownloads must be >= 1");
+            }
+            this.maxImageDownloads = maxImageDownloads;
+            return this;
+        }
+
+        /**
+         * Builds the client on a shared {@link WattpadRuntime} instead of giving it its own connection pool,
+         * threads, cache, scheduler and metrics. The runtime's cache is used unless {@link #cache} or
+         * {@code useCache(false)} says otherwise, and its scheduler unless {@link #scheduler} is set;
+         * {@link #cacheDirectory}, {@link #sharedCache} and {@link #maxCacheSize} are ignored.
+         * Timeouts set here apply to this client only and still use the shared pool.
+         */
+        public Builder runtime(WattpadRuntime runtime) {
+            this.runtime = runtime;
+            return this;
+        }
+
         public WattpadClient build() {
+            if (recordArchive != null && replayArchive != null) {
+                throw new IllegalStateException("recordTo and replayFrom cannot be combined");
+            }
+            if (runtime != null && customClient != null) {
+                throw new IllegalStateException("client and runtime cannot be combined; pass the client to the runtime");
+            }
             return new WattpadClient(this);
         }
     }
@@ -86,67 +338,168 @@ public class WattpadClient {
     private WattpadClient(Builder builder) {
         this.userAgent = builder.userAgent;
         this.useCache = builder.useCache;
-
-        if (builder.customClient != null) {
-            this.httpClient = builder.customClient;
+        this.searchPrefetchDepth = builder.searchPrefetchDepth;
+        this.maxPartsInFlight = builder.maxPartsInFlight;
+        this.streamingThreshold = builder.streamingThreshold;
+        this.memoryMapThreshold = builder.memoryMapThreshold;
+        this.imageDir = builder.imageDir != null ? Paths.get(builder.imageDir) : Paths.get(builder.cacheDir, "images");
+        this.maxImageDownloads = builder.maxImageDownloads;
+        this.runtime = builder.runtime;
+        this.gson = WattpadRuntime.GSON;
+        this.cacheTtl = builder.cacheTtl;
+        try {
+            this.archiveWriter = builder.recordArchive != null ? new HttpArchive.Writer(builder.recordArchive) : null;
+        } catch (IOException e) {
+            throw new WattpadException("Could not open HTTP archive: " + e.getMessage(), e);
+        }
+        this.ownsHttpClient = runtime == null && builder.customClient == null;
+        this.ownsCache = runtime == null && builder.customCache == null && useCache;
+        if (runtime != null) {
+            this.scheduler = builder.scheduler != null ? builder.scheduler : runtime.getScheduler();
+            this.metrics = runtime.getMetrics();
+            OkHttpClient sharedClient = runtime.getHttpClient();
+            if (builder.customTimeouts) {
+                // newBuilder() keeps the runtime's connection pool, dispatcher and event listener
+                sharedClient = sharedClient.newBuilder()
+                        .connectTimeout(builder.connectTimeout, builder.timeoutUnit)
+                        .readTimeout(builder.readTimeout, builder.timeoutUnit)
+                        .build();
+            }
+            this.httpClient = withArchive(sharedClient, builder, archiveWriter);
+            if (builder.customCache != null) {
+                this.cache = builder.customCache;
+            } else {
+                this.cache = this.useCache ? runtime.getCache() : null;
+            }
         } else {
-            this.httpClient = new OkHttpClient.Builder()
+            this.scheduler = builder.scheduler != null ? builder.scheduler : new RequestScheduler.Builder().build();
+            this.metrics = new ClientMetrics();
+
+            OkHttpClient baseClient;
+            if (builder.customClient != null) {
+                baseClient = builder.customClient;
+            } else {
+                baseClient = new OkHttpClient.Builder()
+                        .connectTimeout(builder.connectTimeout, builder.timeoutUnit)
+                        .readTimeout(builder.readTimeout, builder.timeoutUnit)
+                        // Add other configurations like interceptors if needed
+                        .build();
+            }
+            this.httpClient = withArchive(baseClient.newBuilder()
+                    .eventListenerFactory(metrics.eventListenerFactory()) // Network phase timings
+                    .build(), builder, archiveWriter);
+
+            if (builder.customCache != null) {
+                this.cache = builder.customCache;
+            } else if (this.useCache) {
+                SimpleDiskCache diskCache = new SimpleDiskCache(builder.cacheDir, builder.sharedCache);
+                diskCache.setMaxSize(builder.maxCacheSize);
+                this.cache = diskCache;
+            } else {
+                this.cache = null;
+            }
+        }
+
+        // Last, since the peer server may call fetchRaw as soon as it starts
+        this.cluster = builder.cluster;
+        if (cluster != null) {
+            this.ring = new HashRing(cluster.getNodes(), cluster.getVirtualNodes());
+            // Separate from httpClient, whose interceptors (archives, custom clients) are meant for Wattpad traffic
+            this.peerClient = new OkHttpClient.Builder()
                     .connectTimeout(builder.connectTimeout, builder.timeoutUnit)
-                    .readTimeout(builder.readTimeout, builder.timeoutUnit)
-                    // Add other configurations like interceptors if needed
+                    .callTimeout(cluster.getForwardTimeout())
+                    .readTimeout(cluster.getForwardTimeout())
+                    .connectionPool(new ConnectionPool(64, 5, TimeUnit.MINUTES)) // Keep-alive to every peer
                     .build();
+            try {
+                this.peerServer = new PeerServer(cluster.getSelf(), ring, builder.peerThreads,
+                        (url, refresh) -> fetchRaw(url, refresh ? CachePolicy.REFRESH : CachePolicy.USE, false));
+            } catch (IOException e) {
+                throw new WattpadException("Failed to start the peer server on " + cluster.getSelf(), e);
+            }
+        } else {
+            this.ring = null;
+            this.peerClient = null;
+            this.peerServer = null;
         }
+    }
 
-        // Consider extracting the LocalDateTime deserializer to its own class (e.g., LocalDateTimeAdapter)
-        // for better organization if it gets more complex.
-        this.gson = new GsonBuilder()
-                .registerTypeAdapter(Story.class, new Story.StoryDeserializer())
-                // Register a more robust LocalDateTime deserializer
-                .registerTypeAdapter(LocalDateTime.class, new JsonDeserializer<LocalDateTime>() {
-                    @Override
-                    public LocalDateTime deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-                        if (json == null || json.isJsonNull()) {
-                            return null; // Handle null JSON values
-                        }
-                        String dateString = json.getAsString();
-                        try {
-                            // Try parsing with offset first (e.g., " Z" or "+00:00")
-                            return OffsetDateTime.parse(dateString).toLocalDateTime();
-                        } catch (DateTimeParseException e1) {
-                            try {
-                                // Fallback to parsing without offset
-                                return LocalDateTime.parse(dateString);
-                            } catch (DateTimeParseException e2) {
-                                // Combine exceptions for better debugging info
-                                throw new JsonParseException("Could not parse date string: '" + dateString + "'", e2);
-                            }
-                        }
-                    }
-                })
-                // Add other adapters if needed (e.g., for User if you switch from static factory)
-                // .registerTypeAdapter(User.class, new UserDeserializer())
-                .create();
-
-        if (this.useCache) {
-            this.cache = new SimpleDiskCache(builder.cacheDir);
-        } else {
-            this.cache = null;
+    /**
+     * Installs the recording or replay interceptor, if configured. It goes first in the chain, ahead of any
+     * interceptors on a custom client, so the archive holds exactly the URLs fetchRaw asked for.
+     */
+    private static OkHttpClient withArchive(OkHttpClient client, Builder builder, HttpArchive.Writer archiveWriter) {
+        Interceptor archiveInterceptor;
+        try {
+            if (archiveWriter != null) {
+                archiveInterceptor = new RecordingInterceptor(archiveWriter);
+            } else if (builder.replayArchive != null) {
+                archiveInterceptor = ReplayInterceptor.fromArchive(builder.replayArchive, builder.replayTiming);
+            } else {
+                return client;
+            }
+        } catch (IOException e) {
+            throw new WattpadException("Could not open HTTP archive: " + e.getMessage(), e);
         }
+        OkHttpClient.Builder archived = client.newBuilder();
+        archived.interceptors().add(0, archiveInterceptor);
+        return archived.build();
     }
 
     // --- Core Fetch Logic ---
 
-    private String fetchRaw(HttpUrl url, boolean useCacheOverride) throws WattpadException {
+    /** How a single fetch interacts with the disk cache. */
+    private enum CachePolicy {
+        USE,     // Serve from cache when present, store the response otherwise
+        REFRESH, // Always hit the network, but overwrite the cached copy with the fresh response
+        BYPASS   // Never read or write the cache
+    }
+
+    /**
+     * Fetches a response body. Bodies larger than the streaming threshold (or of unknown length) are never
+     * held as a String: they're streamed straight into their cache file (or a temp file when not caching)
+     * and handed back file-backed, so parsers can read them as streams.
+     */
+    private RawBody fetchRaw(HttpUrl url, CachePolicy policy) throws WattpadException {
+        return fetchRaw(url, policy, true);
+    }
+
+    /** @param forward whether a URL owned by another cluster node may be forwarded to it (false for peer requests) */
+    private RawBody fetchRaw(HttpUrl url, CachePolicy policy, boolean forward) throws WattpadException {
+        Deadline.checkCurrent("fetching " + url);
+        FetchEvent event = new FetchEvent();
+        event.begin();
+        RawBody result = null;
+        try {
+            result = route(url, policy, event, forward);
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) { // Only above the JFR threshold, so the fields below cost nothing normally
+                event.url = url.toString();
+                event.family = EndpointFamily.of(url).name();
+                event.cachePolicy = policy.name();
+                event.bytes = result != null ? result.length() : 0;
+                event.commit();
+            }
+        }
+    }
+
+    // Fetches here (from cache or Wattpad), ignoring cluster ownership
+    private RawBody fetchLocal(HttpUrl url, CachePolicy policy, FetchEvent event) throws WattpadException {
         String cacheKey = url.toString(); // Use full URL as cache key
-        boolean effectiveUseCache = this.useCache && useCacheOverride;
+        boolean effectiveUseCache = this.useCache && policy != CachePolicy.BYPASS;
 
-        if (effectiveUseCache && cache != null) {
-            String cachedResponse = cache.get(cacheKey);
-            if (cachedResponse != null) {
-                // System.out.println("Cache HIT: " + cacheKey); // Debug logging
-                return cachedResponse;
+        if (effectiveUseCache && cache != null && policy == CachePolicy.USE) {
+            long lookupStart = System.nanoTime();
+            RawBody cached = readCached(cacheKey);
+            metrics.record(EndpointFamily.of(url), Phase.CACHE_LOOKUP, System.nanoTime() - lookupStart);
+            if (cached != null) {
+                cacheHits.increment();
+                event.cacheHit = true;
+                return cached;
             }
-            // System.out.println("Cache MISS: " + cacheKey); // Debug logging
+            cacheMisses.increment();
         }
 
         Request request = new Request.Builder()
@@ -155,7 +508,10 @@ public class WattpadClient {
                 .get() // Explicitly GET
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        // Wait for a slot matching this thread's priority; cache hits above never queue
+        try (RequestScheduler.Permit permit = scheduler.acquire();
+             Response response = DeadlineCalls.execute(httpClient.newCall(request))) {
+            event.status = response.code();
             if (!response.isSuccessful()) {
                 if (response.code() == 404) {
                     throw new NotFoundException(url);
@@ -169,30 +525,297 @@ public class WattpadClient {
                 throw new WattpadException("Received empty response body for URL: " + url);
             }
 
-            String responseBody = body.string(); // Read body fully
+            if (shouldStream(body)) {
+                event.streamed = true;
+                if (effectiveUseCache && cache instanceof FileBackedCache) {
+                    return RawBody.ofFile(((FileBackedCache) cache).putStream(cacheKey, body.source(), cacheTtl), false);
+                }
+                Path tempFile = Files.createTempFile("wattpad-body-", ".tmp");
+                try {
+                    SimpleDiskCache.copy(body.source(), tempFile);
+                    if (effectiveUseCache && cache != null) {
+                        // Other caches take Strings; only the cache copy is held in memory, the caller still streams
+                        cache.put(cacheKey, Files.readString(tempFile, StandardCharsets.UTF_8), cacheTtl);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(tempFile);
+                    throw e;
+                }
+                return RawBody.ofFile(tempFile, true);
+            }
+
+            String responseBody = body.string(); // Small body, read fully
 
             // Store in cache if successful and caching is enabled
             if (effectiveUseCache && cache != null) {
-                cache.put(cacheKey, responseBody);
+                cache.put(cacheKey, responseBody, cacheTtl);
             }
 
-            return responseBody;
+            return RawBody.ofString(responseBody);
 
         } catch (IOException e) {
-            throw new WattpadException("Network error while fetching URL: " + url, e);
+            throw DeadlineCalls.networkError("Network error while fetching URL: " + url, e);
         }
     }
 
+    // --- Cluster ---
 
-    private JsonObject fetchJson(HttpUrl url) throws WattpadException {
-        String rawResponse = fetchRaw(url, true); // Use cache for JSON API calls
+    // Sends story and part URLs to their owner node; everything else, and everything in single-node mode, stays here
+    private RawBody route(HttpUrl url, CachePolicy policy, FetchEvent event, boolean forward) throws WattpadException {
+        if (cluster == null || policy == CachePolicy.BYPASS) {
+            return fetchLocal(url, policy, event);
+        }
+        String shardKey = ShardKeys.of(url);
+        if (shardKey == null) {
+            return fetchLocal(url, policy, event);
+        }
+        NodeAddress owner = ring.ownerOf(shardKey);
+        if (forward && !owner.equals(cluster.getSelf())) {
+            RawBody body = forwardTo(owner, url, policy, event);
+            if (body != null) {
+                return body;
+            }
+            // Owner unreachable: fetch here so the cluster degrades to independent nodes instead of failing
+        }
+        return fetchCoalesced(url, policy, event);
+    }
 
+    /**
+     * Lets one caller fetch an owned URL while concurrent callers for it (local or forwarded) wait, then read the
+     * result from the cache. Refreshes always go through, so an edit is never served stale.
+     */
+    private RawBody fetchCoalesced(HttpUrl url, CachePolicy policy, FetchEvent event) throws WattpadException {
+        if (policy != CachePolicy.USE || cache == null) {
+            return fetchLocal(url, policy, event);
+        }
+        String key = url.toString();
+        CompletableFuture<Void> flight = new CompletableFuture<>();
+        CompletableFuture<Void> leader = ownedInFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            awaitLeader(leader, url);
+            return fetchLocal(url, policy, event);
+        }
         try {
-            JsonElement parsedElement = JsonParser.parseString(rawResponse);
+            return fetchLocal(url, policy, event);
+        } finally {
+            ownedInFlight.remove(key, flight);
+            flight.complete(null);
+        }
+    }
+
+    // Waits for the leader's fetch within this thread's deadline. The leader's error is its own; the caller tries again
+    private static void awaitLeader(CompletableFuture<Void> leader, HttpUrl url) {
+        Deadline deadline = Deadline.current();
+        CompletableFuture<Void> done = new CompletableFuture<>(); // Our own view, so waking it leaves the leader alone
+        leader.whenComplete((ignored, error) -> done.complete(null));
+        try {
+            if (deadline == null) {
+                done.get();
+                return;
+            }
+            try (Deadline.Registration ignored = deadline.onCancel(() -> done.complete(null))) {
+                done.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            }
+            deadline.check("fetching " + url); // Woken by cancel()
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Deadline exceeded while waiting for another fetch of " + url, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WattpadException("Interrupted while waiting for another fetch of " + url, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e); // done only ever completes normally
+        }
+    }
+
+    // The owner's body, or null if the owner couldn't be reached; upstream errors at the owner are rethrown here
+    private RawBody forwardTo(NodeAddress owner, HttpUrl url, CachePolicy policy, FetchEvent event) throws WattpadException {
+        Request.Builder builder = new Request.Builder()
+                .url(PeerServer.fetchUrl(owner, url, policy == CachePolicy.REFRESH))
+                .get();
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            // The owner applies what's left of our budget to its own fetch
+            builder.header(PeerServer.DEADLINE_HEADER, Long.toString(Math.max(1, deadline.remainingNanos() / 1_000_000)));
+        }
+        try (Response response = DeadlineCalls.execute(peerClient.newCall(builder.build()))) {
+            if (response.code() == 404) {
+                throw new NotFoundException(url);
+            }
+            if (response.code() == 504) {
+                throw new DeadlineExceededException("Deadline exceeded while cluster node " + owner + " fetched " + url);
+            }
+            if (response.code() == 502) {
+                throw new APIException("Cluster node " + owner + " failed to fetch " + url + ": "
+                        + response.header(PeerServer.ERROR_HEADER));
+            }
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Cluster node " + owner + " answered HTTP " + response.code());
+            }
+            event.forwardedTo = owner.toString();
+            event.status = response.code();
+            RawBody result;
+            if (shouldStream(body)) {
+                event.streamed = true;
+                Path tempFile = Files.createTempFile("wattpad-body-", ".tmp");
+                try {
+                    SimpleDiskCache.copy(body.source(), tempFile);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(tempFile);
+                    throw e;
+                }
+                result = RawBody.ofFile(tempFile, true);
+            } else {
+                result = RawBody.ofString(body.string());
+            }
+            forwarded.increment();
+            return result;
+        } catch (IOException e) {
+            if (deadline != null && deadline.isExpired()) {
+                throw DeadlineCalls.networkError("Forwarding " + url + " to " + owner, e); // No budget left for a local fetch
+            }
+            forwardFailures.increment();
+            System.err.println("Forwarding " + url + " to " + owner + " failed, fetching locally: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Requests this node forwarded to their owner in cluster mode. */
+    public long getForwardedCount() {
+        return forwarded.sum();
+    }
+
+    /** Forwards that failed to reach the owner and were fetched here instead. */
+    public long getForwardFailureCount() {
+        return forwardFailures.sum();
+    }
+
+    /** Requests other nodes forwarded to this one in cluster mode. */
+    public long getPeerServedCount() {
+        return peerServer != null ? peerServer.getServedCount() : 0;
+    }
+
+    /** Stops answering forwarded requests. Only needed in cluster mode; the client itself remains usable. */
+    public void stopPeerServer() {
+        if (peerServer != null) {
+            peerServer.close();
+        }
+    }
+
+    /**
+     * Releases what this client created for itself: the peer server and peer connections, background threads, the
+     * HTTP archive being recorded, and the HTTP client and cache unless they came from a {@link WattpadRuntime} or
+     * the builder, whose owner closes them. The client must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        stopPeerServer();
+        if (peerClient != null) {
+            peerClient.dispatcher().executorService().shutdown();
+            peerClient.connectionPool().evictAll();
+        }
+        synchronized (this) {
+            if (backgroundExecutor != null) {
+                backgroundExecutor.shutdownNow(); // Only ever created when there is no runtime
+            }
+        }
+        if (ownsHttpClient) {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+        try {
+            if (archiveWriter != null) {
+                archiveWriter.close();
+            }
+        } finally {
+            if (ownsCache && cache != null) {
+                cache.close();
+            }
+        }
+    }
+
+    // Picks the cheapest way to hand out a cached entry based on its size, null on a miss
+    private RawBody readCached(String cacheKey) {
+        if (!(cache instanceof FileBackedCache)) {
+            String cachedResponse = cache.get(cacheKey);
+            return cachedResponse != null ? RawBody.ofString(cachedResponse) : null;
+        }
+        FileBackedCache fileCache = (FileBackedCache) cache;
+        // Each branch reads the entry exactly once, so shared-mode access stats count one read per lookup
+        Path cachedFile = fileCache.peekPath(cacheKey);
+        if (cachedFile == null) {
+            return null;
+        }
+        long size = sizeOrZero(cachedFile);
+        if (size > memoryMapThreshold) {
+            ByteBuffer mapped = fileCache.getMapped(cacheKey);
+            if (mapped != null) {
+                return RawBody.ofMapped(mapped);
+            }
+        }
+        if (size > streamingThreshold) {
+            Path streamed = fileCache.getPath(cacheKey);
+            return streamed != null ? RawBody.ofFile(streamed, false) : null;
+        }
+        String cachedResponse = fileCache.get(cacheKey);
+        return cachedResponse != null ? RawBody.ofString(cachedResponse) : null;
+    }
+
+    // Whitespace runs are separate HTMLWords, so only count tokens with text in them
+    private static int countWords(List<HTMLContent> contentStack) {
+        int words = 0;
+        for (HTMLContent block : contentStack) {
+            if (block.getType() == HTMLType.TEXT) {
+                for (HTMLWord word : block.getTextData()) {
+                    if (!word.getData().isBlank()) {
+                        words++;
+                    }
+                }
+            }
+        }
+        return words;
+    }
+
+    private boolean shouldStream(ResponseBody body) {
+        long length = body.contentLength(); // -1 if unknown (chunked), treat as potentially huge
+        if (length >= 0 && length <= streamingThreshold) {
+            return false;
+        }
+        // Streamed bodies are stored as raw bytes, which only matches what the String path would store for UTF-8
+        MediaType contentType = body.contentType();
+        Charset charset = contentType != null ? contentType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+        return StandardCharsets.UTF_8.equals(charset);
+    }
+
+    private static long sizeOrZero(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+
+    private JsonObject fetchJson(HttpUrl url) throws WattpadException {
+        return fetchJson(url, CachePolicy.USE); // Use cache for JSON API calls
+    }
+
+    private JsonObject fetchJson(HttpUrl url, CachePolicy policy) throws WattpadException {
+        try (RawBody rawResponse = fetchRaw(url, policy)) {
+            return parseJson(url, rawResponse);
+        }
+    }
+
+    private JsonObject parseJson(HttpUrl url, RawBody rawResponse) throws WattpadException {
+        Deadline.checkCurrent("parsing " + url);
+        long parseStart = System.nanoTime();
+        try (Reader reader = rawResponse.openReader()) {
+            JsonElement parsedElement = JsonParser.parseReader(reader);
             if (!parsedElement.isJsonObject()) {
-                throw new NotJsonException("Expected JSON object but got different structure for URL: " + url, rawResponse, null);
+                throw new NotJsonException("Expected JSON object but got different structure for URL: " + url, rawResponse.preview(1000), null);
             }
             JsonObject jsonObject = parsedElement.getAsJsonObject();
+            metrics.record(EndpointFamily.of(url), Phase.JSON_PARSE, System.nanoTime() - parseStart);
 
             // Check for Wattpad API specific errors (example structure - adjust if needed)
             if (jsonObject.has("error") && jsonObject.get("error").isJsonPrimitive()) {
@@ -205,11 +828,14 @@ public class WattpadClient {
                 throw new APIException("API returned an error", jsonObject);
             }
             return jsonObject;
-        } catch (JsonSyntaxException e) {
-            throw new NotJsonException("Failed to parse response as JSON for URL: " + url, rawResponse, e);
+        } catch (JsonParseException e) {
+            // JsonSyntaxException and JsonIOException (e.g. truncated file) both land here
+            throw new NotJsonException("Failed to parse response as JSON for URL: " + url, rawResponse.preview(1000), e);
         } catch (IllegalStateException e) {
             // Should be caught by the isJsonObject check above, but keep as fallback
-            throw new NotJsonException("Expected JSON object but got different structure for URL: " + url, rawResponse, e);
+            throw new NotJsonException("Expected JSON object but got different structure for URL: " + url, rawResponse.preview(1000), e);
+        } catch (IOException e) {
+            throw new WattpadException("Failed to read response body for URL: " + url, e);
         }
     }
 
@@ -230,122 +856,389 @@ public class WattpadClient {
         return Story.fromJsonPartResponse(jsonResponse, this.gson);
     }
 
+    /**
+     * Fetches a lightweight, never-cached snapshot of a story's publication state
+     * (part list with modify dates and lengths, plus {@code lastPublishedPart}).
+     * Used by {@link dev.advik.wattpad.sync.StorySyncEngine} to decide what changed.
+     */
+    public Story getStoryWatermark(long storyId) {
+        HttpUrl url = WattpadUrls.storyWatermark(storyId);
+        JsonObject jsonResponse = fetchJson(url, CachePolicy.BYPASS);
+        return Story.fromJsonStory(jsonResponse, this.gson);
+    }
+
     /** Internal method to render a part, called by Part.renderWith */
     public RenderedPage renderPart(Part part) {
+        return renderPart(part, CachePolicy.USE);
+    }
+
+    /**
+     * Renders a part from a fresh download, ignoring any cached copy of its text.
+     * The cache entry is replaced with the new text so later {@link #renderPart(Part)} calls see the edit.
+     */
+    public RenderedPage renderPartFresh(Part part) {
+        return renderPart(part, CachePolicy.REFRESH);
+    }
+
+    private RenderedPage renderPart(Part part, CachePolicy policy) {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        HttpUrl textFetchUrl = partTextUrl(part);
+        // Fetch the HTML content - Allow caching. Large chapters come back file-backed and are parsed as a stream.
+        RenderedPage page = renderFetched(part, textFetchUrl, fetchRaw(textFetchUrl, policy), event);
+        commitRenderEvent(event, part, page);
+        return page;
+    }
+
+    // --- Render stages (also driven separately by RenderPipeline) ---
+
+    HttpUrl partTextUrl(Part part) {
         String textUrlString = part.getTextUrl();
         if (textUrlString == null || textUrlString.isEmpty()) {
             throw new WattpadException("Part " + part.getId() + " has no text URL.");
         }
 
         // The text URL from the API is often relative or needs base prepended
-        HttpUrl textFetchUrl;
         try {
             // Attempt to parse, assuming it might be relative or absolute
-            textFetchUrl = HttpUrl.get(WattpadConstants.BASE_URL).resolve(textUrlString);
+            HttpUrl textFetchUrl = HttpUrl.get(WattpadConstants.BASE_URL).resolve(textUrlString);
             if (textFetchUrl == null) {
                 throw new IllegalArgumentException("Could not resolve text URL: " + textUrlString);
             }
+            return textFetchUrl;
         } catch (IllegalArgumentException e) {
             throw new WattpadException("Invalid text URL format for part " + part.getId() + ": " + textUrlString, e);
         }
+    }
+
+    /** The I/O stage: the part's HTML, through the cache. */
+    RawBody fetchPartText(HttpUrl textFetchUrl) {
+        return fetchRaw(textFetchUrl, CachePolicy.USE);
+    }
+
+    /** The CPU stage: parses and walks a fetched body, closing it. */
+    RenderedPage renderFetched(Part part, HttpUrl textFetchUrl, RawBody fetched, RenderEvent event) {
+        Document doc;
+        EndpointFamily family = EndpointFamily.of(textFetchUrl);
+        long parseNanos;
+        try (RawBody htmlContent = fetched) {
+            Deadline.checkCurrent("parsing part " + part.getId());
+            long parseStart = System.nanoTime();
+            doc = PartHtmlRenderer.parse(htmlContent, textFetchUrl.toString()); // Provide base URI for abs:src
+            parseNanos = System.nanoTime() - parseStart;
+            metrics.record(family, Phase.HTML_PARSE, parseNanos);
+        }
+        Deadline.checkCurrent("rendering part " + part.getId());
+        long walkStart = System.nanoTime();
+        List<HTMLContent> contentStack = PartHtmlRenderer.render(doc);
+        long walkEnd = System.nanoTime();
+        metrics.record(family, Phase.PROCESS_NODES, walkEnd - walkStart);
+        event.parseDuration = parseNanos + (walkEnd - walkStart);
+
+        return new RenderedPage(part.getId(), part.getTitle(), contentStack);
+    }
+
+    void commitRenderEvent(RenderEvent event, Part part, RenderedPage page) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.partId = part.getId();
+            event.paragraphCount = page.getContentStack().size();
+            event.wordCount = countWords(page.getContentStack());
+            event.commit();
+        }
+    }
+
+
+    // --- Search & Browse Methods ---
+
+    /**
+     * Searches stories. The returned stream is lazy: pages of {@code pageSize} results are fetched as it is
+     * consumed, following the API's {@code nextUrl}, with the client's configured prefetch depth.
+     * Close the stream (or use try-with-resources) to stop prefetching if you don't consume it fully.
+     */
+    public Stream<StorySearchResult> searchStories(String query, boolean mature, int pageSize) {
+        return searchStories(query, mature, pageSize, searchPrefetchDepth);
+    }
+
+    public Stream<StorySearchResult> searchStories(String query, boolean mature, int pageSize, int prefetchDepth) {
+        HttpUrl firstPage = WattpadUrls.searchStories(query, mature, pageSize);
+        return pagedStream(firstPage, url -> fetchResultPage(url, "stories", StorySearchResult.class, pageSize), prefetchDepth);
+    }
+
+    /** Searches users, paging through results with offset pagination. See {@link #searchStories}. */
+    public Stream<UserSearchResult> searchUsers(String query, int pageSize) {
+        return searchUsers(query, pageSize, searchPrefetchDepth);
+    }
 
+    public Stream<UserSearchResult> searchUsers(String query, int pageSize, int prefetchDepth) {
+        HttpUrl firstPage = WattpadUrls.searchUsers(query, pageSize, 0);
+        return pagedStream(firstPage, url -> fetchResultPage(url, "users", UserSearchResult.class, pageSize), prefetchDepth);
+    }
 
-        // Fetch the HTML content - Allow caching.
-        String htmlContent = fetchRaw(textFetchUrl, true);
+    /** Lists the browse topics for a language. Not paginated by the API. */
+    public List<Topic> browseTopics(int languageId) {
+        HttpUrl url = WattpadUrls.browseTopics(languageId);
+        return fetchResultPage(url, "topics", Topic.class, Integer.MAX_VALUE).getItems();
+    }
 
-        // Parse HTML using Jsoup
-        Document doc = Jsoup.parse(htmlContent, textFetchUrl.toString()); // Provide base URI for abs:src
-        Elements paragraphs = doc.select("p[data-p-id]"); // Select only paragraphs with Wattpad data-p-id
+    // --- Reactive (Flow) API ---
 
-        List<HTMLContent> contentStack = new ArrayList<>();
+    /**
+     * Renders every part of a story, {@code maxPartsInFlight} at a time, within the current thread's {@link Deadline}.
+     * When the deadline runs out, downloads still in flight are cancelled and the parts finished so far are returned.
+     * Without a deadline this waits for every part. Parts that fail on their own are reported, not thrown.
+     */
+    public PartialResult<RenderedPage> renderParts(Story story) {
+        List<Part> parts = story.getParts();
+        int workers = Math.max(1, Math.min(maxPartsInFlight, parts.size()));
+        AtomicReferenceArray<RenderedPage> pages = new AtomicReferenceArray<>(parts.size());
+        Map<Integer, WattpadException> failures = new ConcurrentHashMap<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean deadlineHit = new AtomicBoolean();
 
-        for (Element p : paragraphs) {
-            // Check for images within the paragraph first
-            Elements images = p.select("img[src]"); // Find images with src attribute
-            if (!images.isEmpty()) {
-                for (Element img : images) {
-                    // Use abs:src to resolve relative URLs against the base URI provided to Jsoup.parse
-                    String imageUrl = img.attr("abs:src");
-                    if (imageUrl != null && !imageUrl.isEmpty()) {
-                        contentStack.add(new HTMLContent(imageUrl));
+        // A child deadline, so giving up here cancels only this operation's calls, never the caller's other work
+        Deadline parent = Deadline.current();
+        Deadline deadline = parent != null ? parent.newChild() : null;
+        Executor executor = priorityExecutor(RequestScheduler.currentPriority());
+        CompletableFuture<?>[] running = new CompletableFuture<?>[workers];
+        Deadline.callWithin(deadline, () -> {
+            for (int w = 0; w < workers; w++) {
+                running[w] = CompletableFuture.runAsync(() -> {
+                    int index;
+                    while (!deadlineHit.get() && (index = next.getAndIncrement()) < parts.size()) {
+                        try {
+                            pages.set(index, renderPart(parts.get(index)));
+                        } catch (DeadlineExceededException e) {
+                            deadlineHit.set(true);
+                        } catch (WattpadException e) {
+                            failures.put(index, e);
+                        }
                     }
-                }
-                // If the <p> tag ONLY contained images (or whitespace), don't process text.
-                // Jsoup's text() method correctly extracts text even around images if mixed.
-                // This check prevents adding empty text blocks if a <p> only has an <img>.
-                if (p.text().trim().isEmpty()) {
-                    continue; // Move to next paragraph if this one only contained image(s)
-                }
+                }, executor);
             }
+            return null;
+        });
 
-            // Process text content within the paragraph
-            List<HTMLWord> words = new ArrayList<>();
-            processNodes(p.childNodes(), words); // Use a recursive helper
-
-            if (!words.isEmpty()) {
-                contentStack.add(new HTMLContent(words));
+        CompletableFuture<Void> all = CompletableFuture.allOf(running);
+        try (Deadline.Registration ignored = parent != null ? parent.onCancel(deadline::cancel) : () -> {}) {
+            if (deadline == null) {
+                all.get();
+            } else {
+                all.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
             }
+        } catch (TimeoutException e) {
+            deadlineHit.set(true);
+            deadline.cancel(); // Abort the calls still in flight; the workers see the deadline and stop
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (deadline != null) {
+                deadline.cancel();
+            }
+            throw new WattpadException("Interrupted while rendering parts of story " + story.getId(), e);
+        } catch (ExecutionException e) {
+            throw new WattpadException("Failed to render parts of story " + story.getId(), e.getCause());
         }
 
-        return new RenderedPage(part.getTitle(), contentStack);
+        List<RenderedPage> snapshot = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            snapshot.add(pages.get(i)); // Pages finishing after the cut-off are ignored
+        }
+        return new PartialResult<>(snapshot, failures, deadlineHit.get());
     }
 
-    // Helper to process text nodes recursively, handling styles
-    private void processNodes(List<Node> nodes, List<HTMLWord> words) {
-        for (Node node : nodes) {
-            if (node instanceof TextNode) {
-                String text = ((TextNode) node).text(); // Don't trim yet, preserve spaces
-                if (!text.isEmpty()) {
-                    // Split text into words/tokens respecting spaces, add with GENERAL style
-                    for(String word : text.split("(?<=\\s)|(?=\\s+)")) { // Split keeping spaces
-                        if (!word.isEmpty()) words.add(new HTMLWord(word, HTMLStyle.GENERAL));
-                    }
+    /** {@link #renderParts(Story)} with a budget of its own (or the caller's deadline, if that's earlier). */
+    public PartialResult<RenderedPage> renderParts(Story story, Duration budget) {
+        return withDeadline(budget, () -> renderParts(story));
+    }
+
+    /**
+     * Publishes the rendered parts of a story, in reading order, as they are downloaded.
+     * <p>
+     * Downloads follow subscriber demand: a part is only fetched once the subscriber has requested it,
+     * with at most {@code maxPartsInFlight} (see {@link Builder#maxPartsInFlight}) downloads running at once.
+     * Each subscription renders the story again (cached texts are reused).
+     */
+    public Flow.Publisher<RenderedPage> publishParts(Story story) {
+        return publishParts(story, maxPartsInFlight);
+    }
+
+    public Flow.Publisher<RenderedPage> publishParts(Story story, int maxInFlight) {
+        List<Part> parts = story.getParts();
+        return new DemandDrivenPublisher<>(() -> new DemandDrivenPublisher.Source<RenderedPage>() {
+            private final Iterator<Part> remaining = parts.iterator();
+
+            @Override
+            public CompletableFuture<List<RenderedPage>> fetchNext() {
+                if (!remaining.hasNext()) {
+                    return null;
                 }
-            } else if (node instanceof Element) {
-                Element element = (Element) node;
-                HTMLStyle style = HTMLStyle.GENERAL; // Default style for this element's children
-                String tagName = element.tagName().toLowerCase();
-
-                if (tagName.equals("b") || tagName.equals("strong")) {
-                    style = HTMLStyle.BOLD;
-                } else if (tagName.equals("i") || tagName.equals("em")) {
-                    style = HTMLStyle.ITALIC;
+                Part part = remaining.next();
+                return CompletableFuture.supplyAsync(() -> List.of(renderPart(part)), priorityExecutor(RequestPriority.BULK));
+            }
+        }, maxInFlight);
+    }
+
+    /** Publishes story search results; a result page is only fetched when demand exceeds the buffered results. */
+    public Flow.Publisher<StorySearchResult> publishStorySearch(String query, boolean mature, int pageSize) {
+        HttpUrl firstPage = WattpadUrls.searchStories(query, mature, pageSize);
+        return pagedPublisher(firstPage, url -> fetchResultPage(url, "stories", StorySearchResult.class, pageSize), pageSize);
+    }
+
+    /** Publishes user search results. See {@link #publishStorySearch}. */
+    public Flow.Publisher<UserSearchResult> publishUserSearch(String query, int pageSize) {
+        HttpUrl firstPage = WattpadUrls.searchUsers(query, pageSize, 0);
+        return pagedPublisher(firstPage, url -> fetchResultPage(url, "users", UserSearchResult.class, pageSize), pageSize);
+    }
+
+    private <T> Flow.Publisher<T> pagedPublisher(HttpUrl firstPage, PrefetchingPageIterator.PageFetcher<T> fetcher, int pageSize) {
+        // Pages depend on the previous page's next URL, so they're fetched strictly one at a time
+        return new DemandDrivenPublisher<>(() -> new DemandDrivenPublisher.Source<T>() {
+            private volatile HttpUrl next = firstPage;
+
+            @Override
+            public CompletableFuture<List<T>> fetchNext() {
+                HttpUrl url = next;
+                if (url == null) {
+                    return null;
                 }
-                // Add other style checks if needed (e.g., 'u' for underline)
+                next = null; // Set again once this page tells us where the next one is
+                return CompletableFuture.supplyAsync(() -> {
+                    PrefetchingPageIterator.Page<T> page = fetcher.fetch(url);
+                    next = page.getItems().isEmpty() ? null : page.getNext();
+                    return page.getItems();
+                }, priorityExecutor(RequestPriority.BULK));
+            }
 
-                // Recursively process children, applying the determined style
-                processStyledNodes(element.childNodes(), words, style);
+            @Override
+            public int itemsPerFetch() {
+                return Math.max(1, pageSize);
             }
-        }
+        }, 1);
     }
 
-    // Helper to apply style during recursive processing
-    private void processStyledNodes(List<Node> nodes, List<HTMLWord> words, HTMLStyle style) {
-        for (Node node : nodes) {
-            if (node instanceof TextNode) {
-                String text = ((TextNode) node).text();
-                if (!text.isEmpty()) {
-                    for(String word : text.split("(?<=\\s)|(?=\\s+)")) {
-                        if (!word.isEmpty()) words.add(new HTMLWord(word, style)); // Apply parent style
-                    }
-                }
-            } else if (node instanceof Element) {
-                // Handle nested styling (e.g., bold inside italic) - recursively call main processor
-                // This allows nested elements to determine their own style overrides
-                processNodes(node.childNodes(), words);
+    private <T> Stream<T> pagedStream(HttpUrl firstPage, PrefetchingPageIterator.PageFetcher<T> fetcher, int prefetchDepth) {
+        PrefetchingPageIterator<T> iterator = new PrefetchingPageIterator<>(firstPage, fetcher,
+                priorityExecutor(RequestPriority.PREFETCH), prefetchDepth); // Pages fetched on demand keep the caller's priority
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    // Fetches one page of a search/browse endpoint. Results change constantly, so they are never cached.
+    private <T> PrefetchingPageIterator.Page<T> fetchResultPage(HttpUrl url, String arrayField, Class<T> itemType, int pageSize) {
+        JsonObject json = fetchJson(url, CachePolicy.BYPASS);
+
+        List<T> items = new ArrayList<>();
+        if (json.has(arrayField) && json.get(arrayField).isJsonArray()) {
+            for (JsonElement element : json.getAsJsonArray(arrayField)) {
+                items.add(gson.fromJson(element, itemType));
             }
         }
+
+        HttpUrl next = null;
+        if (json.has("nextUrl") && json.get("nextUrl").isJsonPrimitive()) {
+            // nextUrl may be absolute or relative to the site root
+            next = HttpUrl.get(WattpadConstants.BASE_URL).resolve(json.get("nextUrl").getAsString());
+        } else if (items.size() >= pageSize) {
+            // No cursor from the API, fall back to offset pagination while pages come back full
+            String offsetParam = url.queryParameter("offset");
+            int offset = offsetParam != null ? Integer.parseInt(offsetParam) : 0;
+            next = url.newBuilder().setQueryParameter("offset", String.valueOf(offset + items.size())).build();
+        }
+        return new PrefetchingPageIterator.Page<>(items, next);
+    }
+
+    // Runs tasks on the background executor with their requests scheduled at the given priority, and bound by the
+    // deadline of the thread that submitted them
+    private Executor priorityExecutor(RequestPriority priority) {
+        return task -> {
+            Deadline deadline = Deadline.current();
+            backgroundExecutor().execute(() -> Deadline.callWithin(deadline, () -> RequestScheduler.callWithPriority(priority, () -> {
+                task.run();
+                return null;
+            })));
+        };
+    }
+
+    private synchronized ExecutorService backgroundExecutor() {
+        if (runtime != null) {
+            return runtime.backgroundExecutor();
+        }
+        if (backgroundExecutor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            backgroundExecutor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "wattpad-background-" + threadCount.incrementAndGet());
+                thread.setDaemon(true); // Never keep the JVM alive just for prefetching
+                return thread;
+            });
+        }
+        return backgroundExecutor;
     }
 
 
-    // --- Search & Browse Methods (Placeholder - Implement based on needs) ---
+    // --- Scheduling ---
 
-    // public List<StorySearchResult> searchStories(String query, boolean mature, int limit) { ... }
-    // public List<UserSearchResult> searchUsers(String query, int limit, int offset) { ... }
-    // public List<Topic> browseTopics(int languageId) { ... }
+    public RequestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Runs {@code action} with every request it makes from this thread scheduled at {@code priority}.
+     * E.g. {@code client.withPriority(RequestPriority.BULK, () -> client.getStoryById(id))} for crawls.
+     */
+    public <T> T withPriority(RequestPriority priority, Supplier<T> action) {
+        return RequestScheduler.callWithPriority(priority, action);
+    }
+
+    /**
+     * Runs {@code action} with every fetch it makes, on this thread or the client's background threads, bound by
+     * {@code budget}. Fetches started after it runs out throw {@link DeadlineExceededException}, and calls in flight
+     * are cut off at the deadline. Nested budgets never extend an outer one.
+     */
+    public <T> T withDeadline(Duration budget, Supplier<T> action) {
+        return Deadline.callWithin(Deadline.after(budget), action);
+    }
 
+    // --- Images ---
+
+    /**
+     * Downloader for images referenced by rendered pages, story covers and user avatars, e.g.
+     * {@code client.images().fetchAll(page)}. Images are stored by content hash, so each one is downloaded once.
+     */
+    public synchronized ImageDownloader images() {
+        if (imageDownloader == null) {
+            ImageStore store;
+            try {
+                store = new ImageStore(imageDir);
+            } catch (IOException e) {
+                throw new CacheInitializationException("Failed to create image directory: " + imageDir, e);
+            }
+            imageDownloader = new ImageDownloader(httpClient, userAgent, scheduler, store, backgroundExecutor(), maxImageDownloads);
+        }
+        return imageDownloader;
+    }
+
+    // --- Metrics ---
+
+    /**
+     * Per-phase latency histograms (DNS through processNodes) by endpoint family.
+     * Call {@code getMetrics().registerMBean("name")} to expose them over JMX.
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
 
     // --- Cache Management ---
+
+    /** Number of cache lookups served from the cache since this client was built. */
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    /** Number of cache lookups that had to go to the network. Refreshes and uncached requests aren't counted. */
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
     public void clearCache() {
         if (useCache && cache != null) {
             cache.clear();
@@ -353,4 +1246,31 @@ public class WattpadClient {
         }
     }
 
+    /** Writes the cached responses that pass {@code filter} to a snapshot archive another node can import. */
+    public CacheSnapshot.Result exportCache(Path archive, CacheSnapshot.Filter filter) {
+        try {
+            return CacheSnapshot.export(diskCache(), archive, filter);
+        } catch (IOException e) {
+            throw new WattpadException("Failed to export cache to " + archive, e);
+        }
+    }
+
+    /** Bulk-loads a snapshot written by {@link #exportCache}, so this client starts with a warm cache. */
+    public CacheSnapshot.Result importCache(Path archive) {
+        try {
+            return CacheSnapshot.importInto(diskCache(), archive);
+        } catch (IOException e) {
+            throw new WattpadException("Failed to import cache from " + archive, e);
+        }
+    }
+
+    private SimpleDiskCache diskCache() {
+        if (!(cache instanceof SimpleDiskCache)) {
+            throw new IllegalStateException(cache == null
+                    ? "Caching is disabled for this client"
+                    : "Cache snapshots need the built-in disk cache, not " + cache.getClass().getSimpleName());
+        }
+        return (SimpleDiskCache) cache;
+    }
+
 }
\ No newline at end of file
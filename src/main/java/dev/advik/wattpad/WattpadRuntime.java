@@ -0,0 +1,236 @@
+package dev.advik.wattpad;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.advik.wattpad.adapters.FlexibleLocalDateTimeAdapter;
+import dev.advik.wattpad.cache.ResponseCache;
+import dev.advik.wattpad.internal.SimpleDiskCache;
+import dev.advik.wattpad.metrics.ClientMetrics;
+import dev.advik.wattpad.models.Story;
+import dev.advik.wattpad.scheduler.RequestScheduler;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The heavyweight parts of a {@link WattpadClient}, built once and shared by any number of clients:
+ * the HTTP connection pool and dispatcher, the JSON parser, the response cache, the background executor,
+ * the request scheduler and the metrics.
+ * <p>
+ * Clients built with {@link WattpadClient.Builder#runtime} keep their own user agent, timeouts, cache TTL,
+ * prefetch and image settings, HTTP archive and cluster mode, so one runtime can serve many tenants.
+ * Connections, threads, scheduler limits, cache space and metrics are pooled across them.
+ * <pre>{@code
+ * WattpadRuntime runtime = new WattpadRuntime.Builder().cacheDirectory("/var/cache/wattpad").build();
+ * WattpadClient tenantA = new WattpadClient.Builder().runtime(runtime).userAgent("tenant-a").build();
+ * WattpadClient tenantB = new WattpadClient.Builder().runtime(runtime).userAgent("tenant-b").build();
+ * }</pre>
+ */
+public final class WattpadRuntime implements Closeable {
+
+    // Stateless adapters, and Gson is thread-safe once built, so every client can parse with the same instance
+    static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Story.class, new Story.StoryDeserializer())
+            // Lenient LocalDateTime deserializer (with or without offset)
+            .registerTypeAdapter(LocalDateTime.class, new FlexibleLocalDateTimeAdapter())
+            .create();
+
+    public static class Builder {
+        private boolean useCache = true;
+        private String cacheDir = WattpadConstants.DEFAULT_CACHE_DIR;
+        private boolean sharedCache = false;
+        private long maxCacheSize = 0; // 0 = unbounded
+        private ResponseCache customCache = null;
+        private long connectTimeout = 10;
+        private long readTimeout = 30;
+        private TimeUnit timeoutUnit = TimeUnit.SECONDS;
+        private int maxIdleConnections = 32;
+        private int maxRequests = 128;
+        private int maxRequestsPerHost = 32;
+        private OkHttpClient customClient = null;
+        private RequestScheduler scheduler = null;
+
+        public Builder useCache(boolean useCache) {
+            this.useCache = useCache;
+            return this;
+        }
+
+        public Builder cacheDirectory(String cacheDir) {
+            this.cacheDir = cacheDir;
+            return this;
+        }
+
+        /** See {@link WattpadClient.Builder#sharedCache}. */
+        public Builder sharedCache(boolean sharedCache) {
+            this.sharedCache = sharedCache;
+            return this;
+        }
+
+        /** Evicts least recently used cache entries once the cache grows past this many bytes. 0 means unbounded. */
+        public Builder maxCacheSize(long maxCacheSize) {
+            if (maxCacheSize < 0) {
+                throw new IllegalArgumentException("maxCacheSize must be >= 0");
+            }
+            this.maxCacheSize = maxCacheSize;
+            return this;
+        }
+
+        /** Use this cache instead of a disk cache in {@link #cacheDirectory}. Implies {@code useCache(true)}. */
+        public Builder cache(ResponseCache cache) {
+            this.customCache = cache;
+            this.useCache = cache != null;
+            return this;
+        }
+
+        /** Default connect timeout; clients can override it without leaving the shared pool. */
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeout = timeout;
+            this.timeoutUnit = unit;
+            return this;
+        }
+
+        /** Default read timeout; clients can override it without leaving the shared pool. */
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeout = timeout;
+            this.timeoutUnit = unit;
+            return this;
+        }
+
+        /** Idle keep-alive connections held for reuse by all clients together. */
+        public Builder maxIdleConnections(int maxIdleConnections) {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("maxIdleConnections must be >= 0");
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /** Limits on concurrent asynchronous calls across all clients, overall and per host. */
+        public Builder maxRequests(int maxRequests, int maxRequestsPerHost) {
+            if (maxRequests < 1 || maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequests and maxRequestsPerHost must be >= 1");
+            }
+            this.maxRequests = maxRequests;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Provide a pre-configured OkHttpClient whose connection pool and dispatcher all clients share.
+         * If set, the timeout, connection and request limit settings are ignored.
+         */
+        public Builder client(OkHttpClient client) {
+            this.customClient = client;
+            return this;
+        }
+
+        /** Admission control shared by all clients. Defaults to a scheduler owned by the runtime. */
+        public Builder scheduler(RequestScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public WattpadRuntime build() {
+            return new WattpadRuntime(this);
+        }
+    }
+
+    private final OkHttpClient httpClient;
+    private final ResponseCache cache; // Null if useCache is false
+    private final RequestScheduler scheduler;
+    private final ClientMetrics metrics = new ClientMetrics();
+    private final ExecutorService backgroundExecutor;
+    private final boolean ownsHttpClient; // False when passed in through Builder.client
+    private final boolean ownsCache;      // False when passed in through Builder.cache
+
+    private WattpadRuntime(Builder builder) {
+        OkHttpClient baseClient;
+        this.ownsHttpClient = builder.customClient == null;
+        if (builder.customClient != null) {
+            baseClient = builder.customClient;
+        } else {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(builder.maxRequests);
+            dispatcher.setMaxRequestsPerHost(builder.maxRequestsPerHost);
+            baseClient = new OkHttpClient.Builder()
+                    .connectTimeout(builder.connectTimeout, builder.timeoutUnit)
+                    .readTimeout(builder.readTimeout, builder.timeoutUnit)
+                    .connectionPool(new ConnectionPool(builder.maxIdleConnections, 5, TimeUnit.MINUTES))
+                    .dispatcher(dispatcher)
+                    .build();
+        }
+        // Clients derive from this with newBuilder(), which keeps the pool and dispatcher
+        this.httpClient = baseClient.newBuilder()
+                .eventListenerFactory(metrics.eventListenerFactory()) // Network phase timings
+                .build();
+
+        this.ownsCache = builder.customCache == null;
+        if (builder.customCache != null) {
+            this.cache = builder.customCache;
+        } else if (builder.useCache) {
+            SimpleDiskCache diskCache = new SimpleDiskCache(builder.cacheDir, builder.sharedCache);
+            diskCache.setMaxSize(builder.maxCacheSize);
+            this.cache = diskCache;
+        } else {
+            this.cache = null;
+        }
+
+        this.scheduler = builder.scheduler != null ? builder.scheduler : new RequestScheduler.Builder().build();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.backgroundExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "wattpad-runtime-" + threadCount.incrementAndGet());
+            thread.setDaemon(true); // Never keep the JVM alive just for prefetching
+            return thread;
+        });
+    }
+
+    // --- Shared resources ---
+
+    /** The shared HTTP client. Derive per-client variants with {@code newBuilder()} to keep its pool and threads. */
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /** The shared response cache, or null if the runtime doesn't cache. */
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    public RequestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /** Network, cache and parse timings of every client built on this runtime together. */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    ExecutorService backgroundExecutor() {
+        return backgroundExecutor;
+    }
+
+    /**
+     * Stops the background threads, and drops idle connections and closes the cache unless they were passed in
+     * through the builder, in which case the caller still owns them. Clients built on this runtime must not be
+     * used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        backgroundExecutor.shutdownNow();
+        if (ownsHttpClient) {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+        if (cache != null && ownsCache) {
+            cache.close();
+        }
+    }
+}
@@ -25,6 +25,8 @@ public final class WattpadUrls {
     private static final String STORY_DETAIL_FIELDS = "id,title,description,url,cover,user(name,username,avatar),isPaywalled,lastPublishedPart(id,createDate),parts(id,title,text_url),tags";
     private static final String STORY_GROUP_FIELDS = "group(id,title,description,url,cover,user(name,username,avatar),isPaywalled,lastPublishedPart(id,createDate),parts(id,title,text_url),tags)";
     private static final String PART_DETAIL_FIELDS = "text_url," + STORY_GROUP_FIELDS;
+    // Minimal projection for incremental sync: enough to spot new, removed and edited parts
+    private static final String STORY_WATERMARK_FIELDS = "id,title,user(name,username,avatar),modifyDate,lastPublishedPart(id,createDate),parts(id,title,text_url,modifyDate,length)";
 
 
     public static HttpUrl storyById(long storyId) {
@@ -35,6 +37,14 @@ public final class WattpadUrls {
                 .build();
     }
 
+    public static HttpUrl storyWatermark(long storyId) {
+        return baseBuilder()
+                .addPathSegments("api/v3/stories")
+                .addPathSegment(String.valueOf(storyId))
+                .addQueryParameter("fields", STORY_WATERMARK_FIELDS)
+                .build();
+    }
+
     public static HttpUrl partById(long partId) {
         return baseBuilder()
                 .addPathSegments("api/v4/parts")
@@ -63,7 +73,7 @@ public final class WattpadUrls {
 
     private static final String STORY_SEARCH_FIELDS = "stories(id,title,voteCount,readCount,commentCount,description,mature,completed,cover,url,numParts,isPaywalled,paidModel,length,language(id),user(name),lastPublishedPart(createDate),promoted,sponsor(name,avatar),tags,tracking(clickUrl,impressionUrl,thirdParty(impressionUrls,clickUrls)),contest(endDate,ctaLabel,ctaURL)),total,tags,nextUrl"; // Simplified a bit, remove duplication if possible
     private static final String USER_SEARCH_FIELDS = "users(username,name,avatar,description,numLists,numFollowers,numStoriesPublished,badges,following)"; // Adjusted 'users' prefix
-    private static final String BROWSE_TOPICS_FIELDS = "topics(name,categoryID,CbrowseURL,tagURL)";
+    private static final String BROWSE_TOPICS_FIELDS = "topics(name,categoryID,browseURL,tagURL)";
 
 
     public static HttpUrl searchStories(String query, boolean mature, int limit) {
@@ -0,0 +1,35 @@
+package dev.advik.wattpad.adapters;
+
+import com.google.gson.*;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Lenient LocalDateTime deserializer used by WattpadClient: accepts timestamps with an offset
+ * ("2024-01-01T00:00:00Z", "+00:00") as well as plain local ones, and maps JSON null to null.
+ * Stateless and thread-safe, so one instance can be shared by every Gson.
+ */
+public class FlexibleLocalDateTimeAdapter implements JsonDeserializer<LocalDateTime> {
+
+    @Override
+    public LocalDateTime deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+        if (json == null || json.isJsonNull()) {
+            return null; // Handle null JSON values
+        }
+        String dateString = json.getAsString();
+        try {
+            // Try parsing with offset first (e.g., " Z" or "+00:00")
+            return OffsetDateTime.parse(dateString).toLocalDateTime();
+        } catch (DateTimeParseException e1) {
+            try {
+                // Fallback to parsing without offset
+                return LocalDateTime.parse(dateString);
+            } catch (DateTimeParseException e2) {
+                // Combine exceptions for better debugging info
+                throw new JsonParseException("Could not parse date string: '" + dateString + "'", e2);
+            }
+        }
+    }
+}
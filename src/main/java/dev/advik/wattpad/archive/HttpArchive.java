@@ -0,0 +1,234 @@
+package dev.advik.wattpad.archive;
+
+import okhttp3.Headers;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only archive of HTTP exchanges, written by {@link RecordingInterceptor} and served by
+ * {@link ReplayInterceptor}.
+ * <p>
+ * Layout: a 6-byte header ({@code "WPHA"} + version), then length-prefixed records. Each record holds the request
+ * (method, URL, headers), the response (status, message, headers), when it started, how long the headers and the
+ * whole body took, and the body, deflated. Each record is appended with a single write, so a crash leaves at most
+ * one truncated record at the tail, which {@link #read(Path)} ignores.
+ */
+public final class HttpArchive {
+    private HttpArchive() {} // Prevent instantiation
+
+    private static final byte[] MAGIC = {'W', 'P', 'H', 'A'};
+    private static final short VERSION = 1;
+
+    /** One recorded exchange. */
+    public static final class Entry {
+        private final long startedAtMillis;
+        private final long headersNanos;
+        private final long totalNanos;
+        private final String method;
+        private final String url;
+        private final Headers requestHeaders;
+        private final int status;
+        private final String message;
+        private final Headers responseHeaders;
+        private final byte[] body;
+
+        public Entry(long startedAtMillis, long headersNanos, long totalNanos, String method, String url,
+                     Headers requestHeaders, int status, String message, Headers responseHeaders, byte[] body) {
+            this.startedAtMillis = startedAtMillis;
+            this.headersNanos = headersNanos;
+            this.totalNanos = totalNanos;
+            this.method = method;
+            this.url = url;
+            this.requestHeaders = requestHeaders;
+            this.status = status;
+            this.message = message;
+            this.responseHeaders = responseHeaders;
+            this.body = body;
+        }
+
+        /** Wall-clock time the request was sent, in epoch millis. Differences between entries give the traffic shape. */
+        public long getStartedAtMillis() { return startedAtMillis; }
+        /** Time from sending the request until response headers arrived. */
+        public long getHeadersNanos() { return headersNanos; }
+        /** Time from sending the request until the body was fully read. */
+        public long getTotalNanos() { return totalNanos; }
+        public String getMethod() { return method; }
+        public String getUrl() { return url; }
+        public Headers getRequestHeaders() { return requestHeaders; }
+        public int getStatus() { return status; }
+        public String getMessage() { return message; }
+        public Headers getResponseHeaders() { return responseHeaders; }
+        public byte[] getBody() { return body; }
+    }
+
+    // --- Writing ---
+
+    /** Appends entries to an archive file, creating it (with its header) if needed. Thread-safe. */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        public Writer(Path file) throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            synchronized (this) {
+                if (channel.size() == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 2).put(MAGIC).putShort(VERSION);
+                    header.flip();
+                    writeFully(header);
+                }
+            }
+        }
+
+        public synchronized void append(Entry entry) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.body.length / 2 + 512);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // Record length, patched below
+            out.writeLong(entry.startedAtMillis);
+            out.writeLong(entry.headersNanos);
+            out.writeLong(entry.totalNanos);
+            out.writeUTF(entry.method);
+            out.writeUTF(entry.url);
+            writeHeaders(out, entry.requestHeaders);
+            out.writeInt(entry.status);
+            out.writeUTF(entry.message);
+            writeHeaders(out, entry.responseHeaders);
+            byte[] deflated = deflate(entry.body);
+            out.writeInt(entry.body.length);
+            out.writeInt(deflated.length);
+            out.write(deflated);
+            out.flush();
+
+            ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+            record.putInt(0, record.remaining() - Integer.BYTES);
+            writeFully(record);
+        }
+
+        private byte[] deflate(byte[] body) {
+            deflater.reset();
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 3));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private static void writeHeaders(DataOutputStream out, Headers headers) throws IOException {
+        out.writeInt(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            out.writeUTF(headers.name(i));
+            out.writeUTF(headers.value(i));
+        }
+    }
+
+    // --- Reading ---
+
+    /** Reads every complete entry in recording order. A truncated trailing record is skipped. */
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            short version = in.readShort();
+            if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+                throw new IOException("Not an HTTP archive (or unsupported version): " + file);
+            }
+            Inflater inflater = new Inflater();
+            try {
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException endOfArchive) {
+                        break;
+                    }
+                    byte[] record = new byte[length];
+                    try {
+                        in.readFully(record);
+                    } catch (EOFException truncated) {
+                        break;
+                    }
+                    entries.add(readEntry(new DataInputStream(new ByteArrayInputStream(record)), inflater));
+                }
+            } finally {
+                inflater.end();
+            }
+        }
+        return entries;
+    }
+
+    private static Entry readEntry(DataInputStream in, Inflater inflater) throws IOException {
+        long startedAtMillis = in.readLong();
+        long headersNanos = in.readLong();
+        long totalNanos = in.readLong();
+        String method = in.readUTF();
+        String url = in.readUTF();
+        Headers requestHeaders = readHeaders(in);
+        int status = in.readInt();
+        String message = in.readUTF();
+        Headers responseHeaders = readHeaders(in);
+        byte[] body = new byte[in.readInt()];
+        byte[] deflated = new byte[in.readInt()];
+        in.readFully(deflated);
+        inflater.reset();
+        inflater.setInput(deflated);
+        try {
+            int n = 0;
+            while (n < body.length && !inflater.finished()) {
+                n += inflater.inflate(body, n, body.length - n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt body in archive record for " + url, e);
+        }
+        return new Entry(startedAtMillis, headersNanos, totalNanos, method, url,
+                requestHeaders, status, message, responseHeaders, body);
+    }
+
+    private static Headers readHeaders(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Headers.Builder headers = new Headers.Builder();
+        for (int i = 0; i < count; i++) {
+            headers.addUnsafeNonAscii(in.readUTF(), in.readUTF());
+        }
+        return headers.build();
+    }
+}
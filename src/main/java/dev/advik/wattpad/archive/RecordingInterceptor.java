@@ -0,0 +1,90 @@
+package dev.advik.wattpad.archive;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+
+/**
+ * Application interceptor that appends every exchange to an {@link HttpArchive}. The body is teed into memory as the
+ * caller reads it (so streamed responses still stream) and the entry is written once the body is exhausted or closed;
+ * any unread remainder is drained first so the archive always holds the complete body.
+ */
+public final class RecordingInterceptor implements Interceptor {
+    private final HttpArchive.Writer writer;
+
+    public RecordingInterceptor(HttpArchive.Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long startedAtMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        Response response = chain.proceed(request);
+        long headersNanos = System.nanoTime() - start;
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            record(request, response, startedAtMillis, headersNanos, headersNanos, new byte[0]);
+            return response;
+        }
+        BufferedSource teed = Okio.buffer(new ForwardingSource(body.source()) {
+            private final Buffer copy = new Buffer();
+            private boolean recorded;
+
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+                if (read > 0) {
+                    sink.copyTo(copy, sink.size() - read, read);
+                } else if (read == -1) {
+                    finish();
+                }
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    if (!recorded) {
+                        Buffer rest = new Buffer();
+                        while (super.read(rest, 8192) != -1) {
+                            rest.copyTo(copy, 0, rest.size());
+                            rest.clear();
+                        }
+                        finish();
+                    }
+                } catch (IOException e) {
+                    // Couldn't read the rest (e.g. connection dropped); record nothing rather than a partial body
+                    recorded = true;
+                } finally {
+                    super.close();
+                }
+            }
+
+            private void finish() throws IOException {
+                if (!recorded) {
+                    recorded = true;
+                    record(request, response, startedAtMillis, headersNanos, System.nanoTime() - start, copy.readByteArray());
+                }
+            }
+        });
+        return response.newBuilder()
+                .body(ResponseBody.create(teed, body.contentType(), body.contentLength()))
+                .build();
+    }
+
+    private void record(Request request, Response response, long startedAtMillis, long headersNanos, long totalNanos,
+                        byte[] body) throws IOException {
+        writer.append(new HttpArchive.Entry(startedAtMillis, headersNanos, totalNanos, request.method(),
+                request.url().toString(), request.headers(), response.code(), response.message(), response.headers(), body));
+    }
+}
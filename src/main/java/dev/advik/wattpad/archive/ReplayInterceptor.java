@@ -0,0 +1,107 @@
+package dev.advik.wattpad.archive;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application interceptor that answers every request from an {@link HttpArchive} and never touches the network.
+ * <p>
+ * Requests are matched on method and URL. When a URL was recorded several times the responses are served in
+ * recording order, and the last one keeps being served once they run out. An unrecorded request fails with an
+ * {@link IOException}, so gaps in the archive show up as errors rather than silent network calls.
+ * With timing reproduction on, each response is delayed by its recorded time-to-headers, and reading its body
+ * takes the rest of the recorded total.
+ */
+public final class ReplayInterceptor implements Interceptor {
+    private final Map<String, Deque<HttpArchive.Entry>> responses = new HashMap<>();
+    private final boolean reproduceTiming;
+
+    public ReplayInterceptor(List<HttpArchive.Entry> entries, boolean reproduceTiming) {
+        for (HttpArchive.Entry entry : entries) {
+            responses.computeIfAbsent(key(entry.getMethod(), entry.getUrl()), k -> new ArrayDeque<>()).addLast(entry);
+        }
+        this.reproduceTiming = reproduceTiming;
+    }
+
+    public static ReplayInterceptor fromArchive(Path archive, boolean reproduceTiming) throws IOException {
+        return new ReplayInterceptor(HttpArchive.read(archive), reproduceTiming);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpArchive.Entry entry = next(key(request.method(), request.url().toString()));
+        if (entry == null) {
+            throw new IOException("No recorded response for " + request.method() + " " + request.url());
+        }
+        if (reproduceTiming) {
+            sleepNanos(entry.getHeadersNanos());
+        }
+        String contentType = entry.getResponseHeaders().get("Content-Type");
+        ResponseBody body = ResponseBody.create(entry.getBody(), contentType != null ? MediaType.parse(contentType) : null);
+        if (reproduceTiming) {
+            long bodyNanos = Math.max(0, entry.getTotalNanos() - entry.getHeadersNanos());
+            body = ResponseBody.create(Okio.buffer(new ForwardingSource(body.source()) {
+                private boolean waited;
+
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    if (!waited) {
+                        waited = true;
+                        sleepNanos(bodyNanos);
+                    }
+                    return super.read(sink, byteCount);
+                }
+            }), body.contentType(), body.contentLength());
+        }
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(entry.getStatus())
+                .message(entry.getMessage())
+                .headers(entry.getResponseHeaders())
+                .body(body)
+                .build();
+    }
+
+    private synchronized HttpArchive.Entry next(String key) {
+        Deque<HttpArchive.Entry> queue = responses.get(key);
+        if (queue == null || queue.isEmpty()) {
+            return null;
+        }
+        return queue.size() > 1 ? queue.pollFirst() : queue.peekFirst();
+    }
+
+    private static String key(String method, String url) {
+        return method + ' ' + url;
+    }
+
+    private static void sleepNanos(long nanos) throws IOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reproducing recorded latency");
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package dev.advik.wattpad.batch;
+
+import dev.advik.wattpad.RenderPipeline;
+import dev.advik.wattpad.WattpadClient;
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.export.ExportFormat;
+import dev.advik.wattpad.export.StoryExporter;
+import dev.advik.wattpad.models.Part;
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.models.Story;
+import dev.advik.wattpad.scheduler.RequestPriority;
+import dev.advik.wattpad.scheduler.RequestScheduler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads a list of stories and parts: metadata, every rendered part, and optionally an export file per item.
+ * <p>
+ * {@code concurrency} items are worked on at once at BULK priority; their parts go through one shared
+ * {@link RenderPipeline}, so fetching and parsing overlap across items. Each part is written (or dropped) as soon
+ * as it is rendered, with at most {@code readAhead} more per item rendered ahead, so long stories are never held
+ * whole. Each finished item is recorded in a {@link DownloadJournal} after its file is atomically in place, so a
+ * rerun after a crash picks up where the last one stopped. Progress ({@link BatchStats}) is printed every
+ * {@code reportInterval}.
+ * <p>
+ * The client stays open after {@link #run}; closing it is up to whoever built it.
+ */
+public final class BatchDownloader {
+
+    public static class Builder {
+        private final WattpadClient client;
+        private Path outputDir = Paths.get("downloads");
+        private ExportFormat format = ExportFormat.TEXT;
+        private int concurrency = 8;
+        private int readAhead = 2;
+        private Path journalFile = null; // Defaults to journal.log in the output directory
+        private Duration reportInterval = Duration.ofSeconds(5);
+        private PrintStream reportTo = System.out;
+
+        public Builder(WattpadClient client) {
+            this.client = client;
+        }
+
+        public Builder outputDirectory(Path outputDir) {
+            this.outputDir = outputDir;
+            return this;
+        }
+
+        /** Export format of the per-item files. Null downloads and renders without writing anything. */
+        public Builder format(ExportFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * Items worked on at once, and the I/O threads of the render pipeline. The client's scheduler still caps
+         * BULK requests, so give it a matching limit.
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be >= 1");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /** Parts of an item rendered ahead of the one being written; each item holds at most this many plus one. */
+        public Builder readAhead(int readAhead) {
+            if (readAhead < 0) {
+                throw new IllegalArgumentException("readAhead must be >= 0");
+            }
+            this.readAhead = readAhead;
+            return this;
+        }
+
+        public Builder journal(Path journalFile) {
+            this.journalFile = journalFile;
+            return this;
+        }
+
+        /** How often progress is printed. Null prints only the final line. */
+        public Builder reportEvery(Duration reportInterval, PrintStream reportTo) {
+            this.reportInterval = reportInterval;
+            this.reportTo = reportTo;
+            return this;
+        }
+
+        public BatchDownloader build() {
+            return new BatchDownloader(this);
+        }
+    }
+
+    private final WattpadClient client;
+    private final Path outputDir;
+    private final ExportFormat format;
+    private final int concurrency;
+    private final int readAhead;
+    private final Path journalFile;
+    private final Duration reportInterval;
+    private final PrintStream reportTo;
+
+    private BatchDownloader(Builder builder) {
+        this.client = builder.client;
+        this.outputDir = builder.outputDir;
+        this.format = builder.format;
+        this.concurrency = builder.concurrency;
+        this.readAhead = builder.readAhead;
+        this.journalFile = builder.journalFile != null ? builder.journalFile : builder.outputDir.resolve("journal.log");
+        this.reportInterval = builder.reportInterval;
+        this.reportTo = builder.reportTo;
+    }
+
+    /** Downloads every item not already in the journal, and returns the final counts. */
+    public BatchStats run(Iterable<BatchItem> items) throws IOException {
+        Files.createDirectories(outputDir);
+        Iterator<BatchItem> pending = items.iterator();
+        BatchStats stats;
+
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "wattpad-batch-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "wattpad-batch-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (DownloadJournal journal = new DownloadJournal(journalFile);
+             RenderPipeline pipeline = new RenderPipeline.Builder(client).ioThreads(concurrency).build()) {
+            stats = new BatchStats(client.getMetrics()::getBytesRead, pipeline::getRenderedCount);
+            if (reportInterval != null) {
+                long millis = reportInterval.toMillis();
+                reporter.scheduleAtFixedRate(() -> reportTo.println(stats.progressLine()),
+                        millis, millis, TimeUnit.MILLISECONDS);
+            }
+            // Workers pull items as they go, so the input is never all queued up at once
+            for (int i = 0; i < concurrency; i++) {
+                workers.execute(() -> RequestScheduler.callWithPriority(RequestPriority.BULK, () -> {
+                    BatchItem item;
+                    while ((item = next(pending)) != null) {
+                        if (journal.isDone(item)) {
+                            stats.itemSkipped();
+                            continue;
+                        }
+                        download(item, pipeline, journal, stats);
+                    }
+                    return null;
+                }));
+            }
+            workers.shutdown();
+            if (!workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Batch workers did not finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+            throw new WattpadException("Interrupted while downloading batch", e);
+        } finally {
+            reporter.shutdownNow();
+            workers.shutdownNow(); // Already idle unless the journal or pipeline failed to open
+        }
+        reportTo.println(stats);
+        return stats;
+    }
+
+    private static BatchItem next(Iterator<BatchItem> pending) {
+        synchronized (pending) {
+            return pending.hasNext() ? pending.next() : null;
+        }
+    }
+
+    private void download(BatchItem item, RenderPipeline pipeline, DownloadJournal journal, BatchStats stats) {
+        stats.itemStarted();
+        try {
+            Story story;
+            List<Part> parts;
+            if (item.getType() == BatchItem.Type.STORY) {
+                story = client.getStoryById(item.getId());
+                parts = story.getParts();
+            } else {
+                story = client.getStoryByPartId(item.getId());
+                parts = Collections.singletonList(partOf(story, item.getId()));
+            }
+            Iterator<RenderedPage> pages = pipeline.renderInOrder(parts, readAhead);
+            if (format != null) {
+                String name = item.getType() == BatchItem.Type.STORY
+                        ? Long.toString(story.getId())
+                        : story.getId() + "-" + item.getId();
+                write(outputDir.resolve(name + extension(format)), story, pages);
+            } else {
+                while (pages.hasNext()) {
+                    pages.next(); // Rendered and dropped
+                }
+            }
+            journal.markDone(item);
+            stats.itemFinished();
+        } catch (IOException | RuntimeException e) { // Parse errors too: one bad item must not stop its worker
+            stats.itemFailed();
+            System.err.println(item + " failed: " + e.getMessage());
+        }
+    }
+
+    private static Part partOf(Story story, long partId) {
+        for (Part part : story.getParts()) {
+            if (part.getId() == partId) {
+                return part;
+            }
+        }
+        throw new WattpadException("Part " + partId + " is not listed in story " + story.getId());
+    }
+
+    // Temp file and atomic rename, so the journal never points at a half-written file
+    private void write(Path target, Story story, Iterator<RenderedPage> pages) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                StoryExporter.export(story, pages, format, out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private static String extension(ExportFormat format) {
+        switch (format) {
+            case EPUB:
+                return ".epub";
+            case TEXT:
+                return ".txt";
+            default:
+                throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package dev.advik.wattpad.batch;
+
+import java.util.Objects;
+
+/**
+ * One line of a batch input file: {@code story:<id>}, {@code part:<id>}, or a bare number, which is a story id.
+ * A part item downloads its story's metadata and that one part.
+ */
+public final class BatchItem {
+
+    public enum Type { STORY, PART }
+
+    private final Type type;
+    private final long id;
+
+    public BatchItem(Type type, long id) {
+        this.type = Objects.requireNonNull(type, "type cannot be null");
+        this.id = id;
+    }
+
+    /** Parses a line, or returns null for blank lines and {@code #} comments. */
+    public static BatchItem parse(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        try {
+            if (trimmed.startsWith("story:")) {
+                return new BatchItem(Type.STORY, Long.parseLong(trimmed.substring("story:".length())));
+            }
+            if (trimmed.startsWith("part:")) {
+                return new BatchItem(Type.PART, Long.parseLong(trimmed.substring("part:".length())));
+            }
+            return new BatchItem(Type.STORY, Long.parseLong(trimmed));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a story or part id: " + line);
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /** The journal key, same form as the input: {@code story:<id>} or {@code part:<id>}. */
+    @Override
+    public String toString() {
+        return (type == Type.STORY ? "story:" : "part:") + id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BatchItem)) return false;
+        BatchItem other = (BatchItem) o;
+        return type == other.type && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, id);
+    }
+}
@@ -0,0 +1,115 @@
+package dev.advik.wattpad.batch;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/** Live counters of a {@link BatchDownloader} run. Thread-safe; read them at any time for progress. */
+public final class BatchStats {
+    private final long startNanos = System.nanoTime();
+    private final LongSupplier networkBytes; // Bytes the client read off the network, cache hits excluded
+    private final long networkBytesAtStart;
+    private final LongSupplier renderedParts; // Counted as they're rendered, so the rate is live
+    private final LongAdder stories = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    // Counters as of the previous progress line, which rates in the next one are measured from
+    private long windowStartNanos = startNanos;
+    private long windowStories;
+    private long windowParts;
+    private long windowBytes;
+
+    BatchStats(LongSupplier networkBytes, LongSupplier renderedParts) {
+        this.networkBytes = networkBytes;
+        this.networkBytesAtStart = networkBytes.getAsLong();
+        this.renderedParts = renderedParts;
+    }
+
+    void itemStarted() {
+        inFlight.increment();
+    }
+
+    void itemFinished() {
+        inFlight.decrement();
+        stories.increment();
+    }
+
+    void itemFailed() {
+        inFlight.decrement();
+        failures.increment();
+    }
+
+    void itemSkipped() {
+        skipped.increment();
+    }
+
+    /** Items downloaded and written. A part item counts as one story with one part. */
+    public long getStoryCount() {
+        return stories.sum();
+    }
+
+    /** Parts rendered so far, including those of items that then failed. */
+    public long getPartCount() {
+        return renderedParts.getAsLong();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /** Items skipped because the journal had them from an earlier run. */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    public long getNetworkBytes() {
+        return networkBytes.getAsLong() - networkBytesAtStart;
+    }
+
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /** Failed items as a fraction of attempted ones. */
+    public double getErrorRate() {
+        long attempted = stories.sum() + failures.sum();
+        return attempted == 0 ? 0 : (double) failures.sum() / attempted;
+    }
+
+    /**
+     * One live progress line. Rates cover only the time since the previous call (or the start), so a slowdown or
+     * stall late in a long run shows up at once instead of being averaged away.
+     */
+    public synchronized String progressLine() {
+        long now = System.nanoTime();
+        long stories = getStoryCount();
+        long parts = getPartCount();
+        long bytes = getNetworkBytes();
+        String line = format(now, (now - windowStartNanos) / 1e9,
+                stories - windowStories, parts - windowParts, bytes - windowBytes);
+        windowStartNanos = now;
+        windowStories = stories;
+        windowParts = parts;
+        windowBytes = bytes;
+        return line;
+    }
+
+    /** Totals, with rates averaged over the whole run; the summary line. */
+    @Override
+    public String toString() {
+        long now = System.nanoTime();
+        return format(now, (now - startNanos) / 1e9, getStoryCount(), getPartCount(), getNetworkBytes());
+    }
+
+    private String format(long now, double windowSeconds, long stories, long parts, long bytes) {
+        double seconds = Math.max(windowSeconds, 1e-9);
+        return String.format("[%6.1fs] stories %d (%.2f/s)  parts %d (%.1f/s)  %.2f MB/s  errors %d (%.1f%%)  in flight %d  skipped %d",
+                (now - startNanos) / 1e9,
+                getStoryCount(), stories / seconds,
+                getPartCount(), parts / seconds,
+                bytes / 1e6 / seconds,
+                getFailureCount(), getErrorRate() * 100,
+                inFlight.sum(),
+                getSkippedCount());
+    }
+}
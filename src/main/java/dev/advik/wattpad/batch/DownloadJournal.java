@@ -0,0 +1,93 @@
+package dev.advik.wattpad.batch;
+
+import dev.advik.wattpad.exceptions.WattpadException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only record of finished batch items, one {@code done <item>} line each, so a restarted batch skips them.
+ * An item is journaled only after its output file is in place. Lines are written with a single append each, so
+ * a crash can at worst leave an unterminated last line, which is ignored (and the item redone) on resume.
+ * Failed items aren't journaled, so a rerun retries them.
+ */
+public final class DownloadJournal implements Closeable {
+
+    private static final String DONE = "done ";
+
+    private final FileChannel channel;
+    private final Set<String> done = ConcurrentHashMap.newKeySet();
+
+    public DownloadJournal(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            if (Files.exists(file)) {
+                String contents = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                int end = contents.lastIndexOf('\n') + 1; // Drop a torn last line
+                for (String line : contents.substring(0, end).split("\n")) {
+                    if (line.startsWith(DONE)) {
+                        done.add(line.substring(DONE.length()));
+                    }
+                }
+                if (end < contents.length()) {
+                    try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        truncate.truncate(contents.substring(0, end).getBytes(StandardCharsets.UTF_8).length);
+                    }
+                }
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new WattpadException("Failed to open download journal: " + file, e);
+        }
+    }
+
+    public boolean isDone(BatchItem item) {
+        return done.contains(item.toString());
+    }
+
+    /** Items finished by earlier runs and this one. */
+    public int getDoneCount() {
+        return done.size();
+    }
+
+    /** Appends the item, then counts it as done; if the write fails it stays pending. */
+    public void markDone(BatchItem item) {
+        String key = item.toString();
+        ByteBuffer line = ByteBuffer.wrap((DONE + key + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            synchronized (channel) {
+                if (done.contains(key)) {
+                    return;
+                }
+                while (line.hasRemaining()) {
+                    channel.write(line);
+                }
+                done.add(key);
+            }
+        } catch (IOException e) {
+            throw new WattpadException("Failed to write download journal", e);
+        }
+    }
+
+    /** Forces the journal to disk and closes it. */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package dev.advik.wattpad.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * A {@link ResponseCache} whose entries are local files. Large bodies can then be streamed in and handed out as
+ * files or mappings, without ever being held as Strings.
+ */
+public interface FileBackedCache extends ResponseCache {
+
+    /** The file holding the entry, or null if absent or expired. Stays readable after the entry is replaced. */
+    Path getPath(String key);
+
+    /**
+     * Like {@link #getPath}, but not counted as a read of the entry, for sizing it up before reading it through
+     * {@link #getMapped} or {@link ResponseCache#get}, which count it themselves.
+     */
+    default Path peekPath(String key) {
+        return getPath(key);
+    }
+
+    /** A read-only mapping of the entry, or null if absent, expired or unmappable. */
+    ByteBuffer getMapped(String key);
+
+    /**
+     * Streams an entry from {@code source} into the cache and publishes it atomically.
+     *
+     * @return the published file
+     * @throws IOException if reading the source or writing the file fails; nothing is published then
+     */
+    Path putStream(String key, ReadableByteChannel source, Duration ttl) throws IOException;
+}
@@ -0,0 +1,232 @@
+package dev.advik.wattpad.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ResponseCache} kept on a {@link RemoteCacheServer}, so several nodes can share one cache.
+ * <p>
+ * Requests go over a small pool of persistent TCP connections. Any network error closes the connection involved and
+ * is reported like a disk cache error: gets miss, puts are dropped, and the fetch goes on against Wattpad.
+ */
+public final class RemoteCacheClient implements ResponseCache {
+
+    private final InetSocketAddress address;
+    private final int timeoutMillis;
+    private final Semaphore permits;                // Caps open connections
+    private final BlockingQueue<Connection> idle;
+    private volatile boolean closed = false;
+
+    private static final class Connection {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(InetSocketAddress address, int timeoutMillis) throws IOException {
+            socket = new Socket();
+            try {
+                socket.connect(address, timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+        }
+    }
+
+    private interface Exchange<T> {
+        T run(DataInputStream in, DataOutputStream out) throws IOException;
+    }
+
+    public RemoteCacheClient(String host, int port) {
+        this(host, port, 8, Duration.ofSeconds(2));
+    }
+
+    /**
+     * @param maxConnections upper bound on concurrent requests; callers past it wait up to {@code timeout}
+     * @param timeout        connect, read and pool-wait timeout for each request
+     */
+    public RemoteCacheClient(String host, int port, int maxConnections, Duration timeout) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be >= 1");
+        }
+        this.address = new InetSocketAddress(host, port);
+        this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, timeout.toMillis());
+        this.permits = new Semaphore(maxConnections, true);
+        this.idle = new ArrayBlockingQueue<>(maxConnections);
+    }
+
+    // --- ResponseCache ---
+
+    @Override
+    public String get(String key) {
+        byte[] value = call("get", key, (in, out) -> {
+            out.writeByte(RemoteCacheProtocol.GET);
+            RemoteCacheProtocol.writeBytes(out, utf8(key));
+            out.flush();
+            return RemoteCacheProtocol.readBytes(in);
+        });
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    /** Fetches all keys in one round trip per 10,000 keys. */
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> values = new HashMap<>();
+        List<String> batch = new ArrayList<>(Math.min(keys.size(), RemoteCacheProtocol.MAX_BATCH));
+        for (String key : keys) {
+            batch.add(key);
+            if (batch.size() == RemoteCacheProtocol.MAX_BATCH) {
+                getBatch(batch, values);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            getBatch(batch, values);
+        }
+        return values;
+    }
+
+    private void getBatch(List<String> keys, Map<String, String> values) {
+        call("getAll", null, (in, out) -> {
+            out.writeByte(RemoteCacheProtocol.GET_ALL);
+            out.writeInt(keys.size());
+            for (String key : keys) {
+                RemoteCacheProtocol.writeBytes(out, utf8(key));
+            }
+            out.flush();
+            for (String key : keys) {
+                byte[] value = RemoteCacheProtocol.readBytes(in);
+                if (value != null) {
+                    values.put(key, new String(value, StandardCharsets.UTF_8));
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        byte[] bytes = utf8(value);
+        if (bytes.length > RemoteCacheProtocol.MAX_VALUE_BYTES) {
+            System.err.println("Remote cache write skipped for key " + key + ": " + bytes.length + " bytes is too large");
+            return;
+        }
+        call("put", key, (in, out) -> {
+            out.writeByte(RemoteCacheProtocol.PUT);
+            RemoteCacheProtocol.writeBytes(out, utf8(key));
+            out.writeLong(ttl != null ? Math.max(1, ttl.toMillis()) : 0);
+            RemoteCacheProtocol.writeBytes(out, bytes);
+            out.flush();
+            return in.readByte();
+        });
+    }
+
+    @Override
+    public boolean remove(String key) {
+        Boolean removed = call("remove", key, (in, out) -> {
+            out.writeByte(RemoteCacheProtocol.REMOVE);
+            RemoteCacheProtocol.writeBytes(out, utf8(key));
+            out.flush();
+            return in.readByte() != 0;
+        });
+        return removed != null && removed;
+    }
+
+    @Override
+    public void clear() {
+        call("clear", null, (in, out) -> {
+            out.writeByte(RemoteCacheProtocol.CLEAR);
+            out.flush();
+            return in.readByte();
+        });
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    // --- Connection pool ---
+
+    // Runs one request/response on a pooled connection; null on any failure, which has been reported
+    private <T> T call(String operation, String key, Exchange<T> exchange) {
+        if (closed) {
+            throw new IllegalStateException("RemoteCacheClient is closed");
+        }
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                System.err.println("Remote cache " + operation + " timed out waiting for a connection to " + address);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            Connection pooled = idle.poll();
+            if (pooled != null) {
+                try {
+                    return exchange(pooled, exchange);
+                } catch (IOException e) {
+                    // Likely closed by the server while idle; every operation is idempotent, so retry once below
+                }
+            }
+            return exchange(new Connection(address, timeoutMillis), exchange);
+        } catch (IOException e) {
+            System.err.println("Remote cache " + operation + " error" + (key != null ? " for key " + key : "")
+                    + ": " + e);
+            return null;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private <T> T exchange(Connection connection, Exchange<T> exchange) throws IOException {
+        try {
+            T result = exchange.run(connection.in, connection.out);
+            if (closed || !idle.offer(connection)) {
+                connection.close();
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            connection.close(); // A half-read response leaves the stream out of sync, so it can't be reused
+            throw e;
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
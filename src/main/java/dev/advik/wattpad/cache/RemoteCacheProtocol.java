@@ -0,0 +1,53 @@
+package dev.advik.wattpad.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+
+/**
+ * Wire format shared by {@link RemoteCacheClient} and {@link RemoteCacheServer}. Each request is an opcode byte
+ * followed by its fields; the server answers every request in order on the same connection.
+ * <pre>
+ * GET      key                          -> value
+ * GET_ALL  count, key...                -> value...   (one per key, in order)
+ * PUT      key, ttlMillis (0 = none), value -> ack byte
+ * REMOVE   key                          -> removed byte (0/1)
+ * CLEAR                                 -> ack byte
+ * </pre>
+ * Strings and values are an int length followed by UTF-8 bytes; a missing value has length -1.
+ */
+final class RemoteCacheProtocol {
+    private RemoteCacheProtocol() {} // Prevent instantiation
+
+    static final byte GET = 1;
+    static final byte GET_ALL = 2;
+    static final byte PUT = 3;
+    static final byte REMOVE = 4;
+    static final byte CLEAR = 5;
+
+    static final int MAX_VALUE_BYTES = 64 * 1024 * 1024; // Larger lengths mean a corrupt stream
+    static final int MAX_BATCH = 10_000;
+
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_VALUE_BYTES) {
+            throw new ProtocolException("Value of " + length + " bytes exceeds the protocol limit");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
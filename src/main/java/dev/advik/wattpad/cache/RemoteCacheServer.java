@@ -0,0 +1,292 @@
+package dev.advik.wattpad.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory key/value server speaking the {@link RemoteCacheClient} protocol. Small enough to run inside a test or
+ * load test, and enough to back a few nodes sharing a cache; entries are lost when it stops.
+ * <p>
+ * Memory is bounded by {@code maxBytes} of keys and values: past it, least recently used entries are evicted.
+ * Expired entries are dropped when read, and swept out at most once a second as new entries are put.
+ */
+public final class RemoteCacheServer implements Closeable {
+
+    private static final class Entry {
+        final byte[] value;
+        final long expiresAt; // Millis, 0 = never
+
+        Entry(byte[] value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now >= expiresAt;
+        }
+    }
+
+    /** Default cap on the bytes of keys and values held. */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    private static final long REAP_INTERVAL_MILLIS = 1000;
+
+    // Access-ordered for LRU eviction; guarded by itself, as are totalBytes and nextReapMillis
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private long totalBytes = 0;
+    private long nextReapMillis = 0;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final LongAdder requests = new LongAdder();
+    private volatile boolean closed = false;
+
+    /** Listens on an ephemeral loopback port; see {@link #getPort()}. */
+    public RemoteCacheServer() throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    public RemoteCacheServer(InetSocketAddress address) throws IOException {
+        this(address, DEFAULT_MAX_BYTES);
+    }
+
+    /** @param maxBytes cap on the bytes of keys and values held, past which least recently used entries go */
+    public RemoteCacheServer(InetSocketAddress address, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0");
+        }
+        this.maxBytes = maxBytes;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "remote-cache-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getEntryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** Bytes of keys and values held. */
+    public long getByteCount() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    // --- Connection handling ---
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Remote cache server accept error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024))) {
+            while (true) {
+                int opcode;
+                try {
+                    opcode = in.readByte();
+                } catch (EOFException e) {
+                    return; // Client hung up between requests
+                }
+                requests.increment();
+                handle(opcode, in, out);
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // Closed by either side
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Remote cache server connection error: " + e.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void handle(int opcode, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (opcode) {
+            case RemoteCacheProtocol.GET:
+                RemoteCacheProtocol.writeBytes(out, lookup(readKey(in)));
+                break;
+            case RemoteCacheProtocol.GET_ALL: {
+                int count = in.readInt();
+                if (count < 0 || count > RemoteCacheProtocol.MAX_BATCH) {
+                    throw new IOException("Batch of " + count + " keys exceeds the protocol limit");
+                }
+                String[] keys = new String[count];
+                for (int i = 0; i < count; i++) {
+                    keys[i] = readKey(in);
+                }
+                for (String key : keys) {
+                    RemoteCacheProtocol.writeBytes(out, lookup(key));
+                }
+                break;
+            }
+            case RemoteCacheProtocol.PUT: {
+                String key = readKey(in);
+                long ttlMillis = in.readLong();
+                byte[] value = RemoteCacheProtocol.readBytes(in);
+                if (value == null) {
+                    throw new IOException("PUT without a value");
+                }
+                out.writeByte(store(key, new Entry(value, ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0)) ? 1 : 0);
+                break;
+            }
+            case RemoteCacheProtocol.REMOVE:
+                out.writeByte(remove(readKey(in)) ? 1 : 0);
+                break;
+            case RemoteCacheProtocol.CLEAR:
+                synchronized (entries) {
+                    entries.clear();
+                    totalBytes = 0;
+                }
+                out.writeByte(1);
+                break;
+            default:
+                throw new IOException("Unknown opcode " + opcode);
+        }
+    }
+
+    // --- Entries ---
+
+    private byte[] lookup(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.currentTimeMillis())) {
+                entries.remove(key);
+                totalBytes -= weight(key, entry);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    // False if the value alone is over the cap; it isn't stored then
+    private boolean store(String key, Entry entry) {
+        long weight = weight(key, entry);
+        if (weight > maxBytes) {
+            remove(key); // Don't leave an older value behind
+            return false;
+        }
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            totalBytes += weight - (previous != null ? weight(key, previous) : 0);
+            long now = System.currentTimeMillis();
+            if (now >= nextReapMillis || totalBytes > maxBytes) {
+                reapExpired(now);
+            }
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                eldest.remove();
+                totalBytes -= weight(evicted.getKey(), evicted.getValue());
+            }
+        }
+        return true;
+    }
+
+    private boolean remove(String key) {
+        synchronized (entries) {
+            Entry removed = entries.remove(key);
+            if (removed == null) {
+                return false;
+            }
+            totalBytes -= weight(key, removed);
+            return true;
+        }
+    }
+
+    // Caller holds the entries lock
+    private void reapExpired(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> candidate = it.next();
+            if (candidate.getValue().isExpired(now)) {
+                it.remove();
+                totalBytes -= weight(candidate.getKey(), candidate.getValue());
+            }
+        }
+        nextReapMillis = now + REAP_INTERVAL_MILLIS;
+    }
+
+    private static long weight(String key, Entry entry) {
+        return key.length() + (long) entry.value.length;
+    }
+
+    private static String readKey(DataInputStream in) throws IOException {
+        byte[] key = RemoteCacheProtocol.readBytes(in);
+        if (key == null) {
+            throw new IOException("Missing key");
+        }
+        return new String(key, StandardCharsets.UTF_8);
+    }
+}
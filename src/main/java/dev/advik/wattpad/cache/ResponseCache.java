@@ -0,0 +1,49 @@
+package dev.advik.wattpad.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Where {@link dev.advik.wattpad.WattpadClient} keeps fetched responses, keyed by URL.
+ * <p>
+ * Implementations must be thread-safe, and should report their own I/O errors rather than throw them: a broken cache
+ * is treated as a miss, never as a failed fetch.
+ */
+public interface ResponseCache extends Closeable {
+
+    /** The cached value, or null if absent or expired. */
+    String get(String key);
+
+    /** Looks up several keys at once. Missing keys are left out of the result. */
+    default Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> values = new HashMap<>();
+        for (String key : keys) {
+            String value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    /** @param ttl how long the entry stays valid, or null to keep it until removed or evicted */
+    void put(String key, String value, Duration ttl);
+
+    default void put(String key, String value) {
+        put(key, value, null);
+    }
+
+    /** @return whether an entry was removed */
+    boolean remove(String key);
+
+    void clear();
+
+    @Override
+    default void close() throws IOException {
+        // Nothing to release by default
+    }
+}
@@ -0,0 +1,110 @@
+package dev.advik.wattpad.cluster;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Static membership of a client cluster: every node's peer address, which of them is this node, and how requests
+ * are forwarded. All nodes must be given the same node list (in any order) so they agree on who owns what.
+ */
+public final class ClusterConfig {
+
+    public static class Builder {
+        private final Set<String> nodes = new LinkedHashSet<>();
+        private String self = null;
+        private int virtualNodes = 128;
+        private Duration forwardTimeout = Duration.ofSeconds(60);
+
+        /** Adds a node by its {@code host:port} peer address. */
+        public Builder node(String address) {
+            nodes.add(parse(address).toString());
+            return this;
+        }
+
+        public Builder nodes(String... addresses) {
+            for (String address : addresses) {
+                node(address);
+            }
+            return this;
+        }
+
+        /** This node's own peer address; it must also be in the node list. Its peer server binds to this port. */
+        public Builder self(String address) {
+            this.self = parse(address).toString();
+            return this;
+        }
+
+        /** Points per node on the hash ring. More points spread ownership more evenly. */
+        public Builder virtualNodes(int virtualNodes) {
+            if (virtualNodes < 1) {
+                throw new IllegalArgumentException("virtualNodes must be >= 1");
+            }
+            this.virtualNodes = virtualNodes;
+            return this;
+        }
+
+        /** How long a forwarded request may take, including the owner's own fetch from Wattpad. */
+        public Builder forwardTimeout(Duration forwardTimeout) {
+            this.forwardTimeout = forwardTimeout;
+            return this;
+        }
+
+        public ClusterConfig build() {
+            if (self == null) {
+                throw new IllegalStateException("self address is required");
+            }
+            if (!nodes.contains(self)) {
+                throw new IllegalStateException("self address " + self + " is not in the node list " + nodes);
+            }
+            return new ClusterConfig(this);
+        }
+    }
+
+    private final List<NodeAddress> nodes;
+    private final NodeAddress self;
+    private final int virtualNodes;
+    private final Duration forwardTimeout;
+
+    private ClusterConfig(Builder builder) {
+        List<NodeAddress> nodes = new ArrayList<>();
+        for (String node : builder.nodes) {
+            nodes.add(parse(node));
+        }
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.self = parse(builder.self);
+        this.virtualNodes = builder.virtualNodes;
+        this.forwardTimeout = builder.forwardTimeout;
+    }
+
+    public List<NodeAddress> getNodes() {
+        return nodes;
+    }
+
+    public NodeAddress getSelf() {
+        return self;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public Duration getForwardTimeout() {
+        return forwardTimeout;
+    }
+
+    private static NodeAddress parse(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0 || colon == address.length() - 1) {
+            throw new IllegalArgumentException("Expected host:port, got " + address);
+        }
+        try {
+            return new NodeAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port in " + address, e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package dev.advik.wattpad.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent-hash ring mapping shard keys to nodes. Each node is placed at {@code virtualNodes} points; a key belongs
+ * to the first point at or after its hash. Hashes are MD5-based so every JVM builds the same ring from the same list,
+ * and adding or removing a node only moves the keys next to its points.
+ */
+public final class HashRing {
+
+    // MessageDigest isn't thread-safe, keep one per thread
+    private static final ThreadLocal<MessageDigest> MD5_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Always available
+        }
+    });
+
+    private final long[] points;         // Sorted ring positions
+    private final NodeAddress[] owners;  // Node at the same index in points
+
+    public HashRing(List<NodeAddress> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one node");
+        }
+        int count = nodes.size() * virtualNodes;
+        long[][] entries = new long[count][2]; // {position, node index}
+        int i = 0;
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[i][0] = hash(nodes.get(node) + "#" + v);
+                entries[i][1] = node;
+                i++;
+            }
+        }
+        // Position ties (practically impossible) are broken by node address so every JVM agrees
+        Arrays.sort(entries, (a, b) -> a[0] != b[0]
+                ? Long.compare(a[0], b[0])
+                : nodes.get((int) a[1]).toString().compareTo(nodes.get((int) b[1]).toString()));
+        this.points = new long[count];
+        this.owners = new NodeAddress[count];
+        for (i = 0; i < count; i++) {
+            points[i] = entries[i][0];
+            owners[i] = nodes.get((int) entries[i][1]);
+        }
+    }
+
+    public NodeAddress ownerOf(String shardKey) {
+        int index = Arrays.binarySearch(points, hash(shardKey));
+        if (index < 0) {
+            index = -index - 1; // Insertion point: first position after the hash
+        }
+        return owners[index == points.length ? 0 : index]; // Wrap around the ring
+    }
+
+    static long hash(String value) {
+        byte[] digest = MD5_DIGEST.get().digest(value.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,43 @@
+package dev.advik.wattpad.cluster;
+
+import java.util.Objects;
+
+/** A cluster node's peer endpoint. */
+public final class NodeAddress {
+    private final String host;
+    private final int port;
+
+    public NodeAddress(String host, int port) {
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("Port out of range: " + port);
+        }
+        this.host = Objects.requireNonNull(host, "host cannot be null");
+        this.port = port;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NodeAddress)) return false;
+        NodeAddress that = (NodeAddress) o;
+        return port == that.port && host.equals(that.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(host, port);
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
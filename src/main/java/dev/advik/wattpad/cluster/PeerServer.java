@@ -0,0 +1,150 @@
+package dev.advik.wattpad.cluster;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.advik.wattpad.WattpadConstants;
+import dev.advik.wattpad.exceptions.DeadlineExceededException;
+import dev.advik.wattpad.exceptions.NotFoundException;
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.internal.RawBody;
+import dev.advik.wattpad.scheduler.Deadline;
+import okhttp3.HttpUrl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves fetches forwarded by other nodes for URLs this node owns. {@code GET /peer/fetch?url=...[&refresh=1]}
+ * answers with the body; an upstream 404 is passed on as 404, and any other upstream failure as 502 with the
+ * error message in {@value #ERROR_HEADER}. A {@value #DEADLINE_HEADER} header bounds the fetch with the forwarding
+ * node's remaining budget; running out of it answers 504.
+ * <p>
+ * Only Wattpad URLs that this node owns on the ring are fetched; anything else is answered 400, so a node can't be
+ * used as a proxy to other hosts. The server binds to the host of this node's address, not to every interface.
+ */
+public final class PeerServer implements Closeable {
+
+    public static final String FETCH_PATH = "/peer/fetch";
+    public static final String ERROR_HEADER = "X-Wattpad-Error";
+    public static final String DEADLINE_HEADER = "X-Wattpad-Deadline-Millis";
+    private static final HttpUrl BASE_URL = Objects.requireNonNull(HttpUrl.parse(WattpadConstants.BASE_URL));
+
+    /** Fetches a URL on this node, through its cache, without forwarding it again. */
+    public interface Fetcher {
+        RawBody fetch(HttpUrl url, boolean refresh) throws WattpadException;
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Fetcher fetcher;
+    private final NodeAddress self;
+    private final HashRing ring;
+    private final LongAdder served = new LongAdder();
+
+    public PeerServer(NodeAddress address, HashRing ring, int threads, Fetcher fetcher) throws IOException {
+        this.fetcher = fetcher;
+        this.self = address;
+        this.ring = ring;
+        this.server = HttpServer.create(new InetSocketAddress(address.getHost(), address.getPort()), 128);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "wattpad-peer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(FETCH_PATH, this::handle);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Forwarded requests answered so far. */
+    public long getServedCount() {
+        return served.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String query = exchange.getRequestURI().getRawQuery();
+            HttpUrl request = HttpUrl.parse("http://peer" + FETCH_PATH + (query != null ? "?" + query : ""));
+            String target = request != null ? request.queryParameter("url") : null;
+            HttpUrl url = target != null ? HttpUrl.parse(target) : null;
+            if (!"GET".equals(exchange.getRequestMethod()) || url == null || !isOwned(url)) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            String budget = exchange.getRequestHeaders().getFirst(DEADLINE_HEADER);
+            Deadline deadline = null;
+            if (budget != null) {
+                try {
+                    deadline = Deadline.after(Duration.ofMillis(Long.parseLong(budget.trim())));
+                } catch (NumberFormatException e) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+            }
+            served.increment();
+            boolean refresh = "1".equals(request.queryParameter("refresh"));
+            try (RawBody body = Deadline.callWithin(deadline, () -> fetcher.fetch(url, refresh))) {
+                exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+                exchange.sendResponseHeaders(200, body.length() > 0 ? body.length() : -1);
+                try (InputStream in = body.openStream(); OutputStream out = exchange.getResponseBody()) {
+                    in.transferTo(out);
+                }
+            } catch (NotFoundException e) {
+                exchange.sendResponseHeaders(404, -1);
+            } catch (DeadlineExceededException e) {
+                exchange.sendResponseHeaders(504, -1);
+            } catch (WattpadException e) {
+                String message = String.valueOf(e.getMessage());
+                // Header values can't hold line breaks
+                exchange.getResponseHeaders().set(ERROR_HEADER, message.replaceAll("[\\r\\n]+", " "));
+                exchange.sendResponseHeaders(502, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // A Wattpad story or part URL whose owner is this node
+    private boolean isOwned(HttpUrl url) {
+        if (!url.scheme().equals(BASE_URL.scheme()) || !url.host().equals(BASE_URL.host())
+                || url.port() != BASE_URL.port()) {
+            return false;
+        }
+        String shardKey = ShardKeys.of(url);
+        return shardKey != null && self.equals(ring.ownerOf(shardKey));
+    }
+
+    /** The forwarding URL for {@code url} on {@code owner}. */
+    public static HttpUrl fetchUrl(NodeAddress owner, HttpUrl url, boolean refresh) {
+        HttpUrl.Builder builder = new HttpUrl.Builder()
+                .scheme("http")
+                .host(owner.getHost())
+                .port(owner.getPort())
+                .encodedPath(FETCH_PATH)
+                .addQueryParameter("url", url.toString());
+        if (refresh) {
+            builder.addQueryParameter("refresh", "1");
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,28 @@
+package dev.advik.wattpad.cluster;
+
+import dev.advik.wattpad.metrics.EndpointFamily;
+import okhttp3.HttpUrl;
+
+/** Derives the shard key that decides which node fetches a URL. */
+public final class ShardKeys {
+    private ShardKeys() {} // Prevent instantiation
+
+    /**
+     * {@code story:<id>} for story metadata, {@code part:<id>} for part metadata and text, or null for requests that
+     * aren't about one story or part (search, browse, ...), which every node fetches itself.
+     */
+    public static String of(HttpUrl url) {
+        switch (EndpointFamily.of(url)) {
+            case STORY:
+                return url.pathSize() > 3 ? "story:" + url.pathSegments().get(3) : null;
+            case PART:
+                return url.pathSize() > 3 ? "part:" + url.pathSegments().get(3) : null;
+            case STORY_TEXT: {
+                String id = url.queryParameter("id");
+                return id != null ? "part:" + id : null;
+            }
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package dev.advik.wattpad.exceptions;
+
+/** Thrown when an operation runs out of its {@link dev.advik.wattpad.scheduler.Deadline} or is cancelled. */
+public class DeadlineExceededException extends WattpadException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,212 @@
+package dev.advik.wattpad.export;
+
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.models.Story;
+import dev.advik.wattpad.models.html.HTMLContent;
+import dev.advik.wattpad.models.html.HTMLStyle;
+import dev.advik.wattpad.models.html.HTMLType;
+import dev.advik.wattpad.models.html.HTMLWord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams an EPUB 3 container. Chapters are written to the zip as they arrive; only their titles are kept,
+ * to build the package document and navigation once all parts are in (zip entry order is free after the
+ * {@code mimetype} entry). Inline images stay remote and are written as links, since EPUB content documents
+ * can't reference remote images.
+ */
+final class EpubExportWriter implements ExportWriter {
+    private static final byte[] MIMETYPE = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+
+    private final ZipOutputStream zip;
+    private final StringBuilder chapter = new StringBuilder(64 * 1024); // Reused for every part
+    private final List<String> chapterTitles = new ArrayList<>();
+    private Story story;
+
+    EpubExportWriter(OutputStream out) {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void begin(Story story) throws IOException {
+        this.story = story;
+
+        // mimetype must come first and be stored uncompressed
+        ZipEntry mimetype = new ZipEntry("mimetype");
+        mimetype.setMethod(ZipEntry.STORED);
+        mimetype.setSize(MIMETYPE.length);
+        CRC32 crc = new CRC32();
+        crc.update(MIMETYPE);
+        mimetype.setCrc(crc.getValue());
+        zip.putNextEntry(mimetype);
+        zip.write(MIMETYPE);
+        zip.closeEntry();
+
+        writeEntry("META-INF/container.xml",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<container version=\"1.0\" xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\">\n"
+                + "  <rootfiles>\n"
+                + "    <rootfile full-path=\"OEBPS/content.opf\" media-type=\"application/oebps-package+xml\"/>\n"
+                + "  </rootfiles>\n"
+                + "</container>\n");
+    }
+
+    @Override
+    public void writePart(int index, RenderedPage page) throws IOException {
+        String title = page.getTitle() != null ? page.getTitle() : "Part " + (index + 1);
+        chapterTitles.add(title);
+
+        chapter.setLength(0);
+        chapter.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<!DOCTYPE html>\n")
+                .append("<html xmlns=\"http://www.w3.org/1999/xhtml\" xmlns:epub=\"http://www.idpf.org/2007/ops\">\n")
+                .append("<head><title>").append(escape(title)).append("</title></head>\n")
+                .append("<body>\n<h1>").append(escape(title)).append("</h1>\n");
+        for (HTMLContent block : page.getContentStack()) {
+            if (block.getType() == HTMLType.IMAGE) {
+                String url = escape(block.getImageUrl());
+                chapter.append("<p class=\"image\"><a href=\"").append(url).append("\">[Image]</a></p>\n");
+            } else {
+                chapter.append("<p>");
+                for (HTMLWord word : block.getTextData()) {
+                    appendWord(word);
+                }
+                chapter.append("</p>\n");
+            }
+        }
+        chapter.append("</body>\n</html>\n");
+        writeEntry(chapterPath(index), chapter);
+        if (chapter.capacity() > 1024 * 1024) {
+            chapter.setLength(0);
+            chapter.trimToSize(); // Don't keep a huge chapter's buffer around for the rest of the export
+        }
+    }
+
+    private void appendWord(HTMLWord word) {
+        HTMLStyle style = word.getStyle();
+        if (style == HTMLStyle.BOLD) {
+            chapter.append("<b>").append(escape(word.getData())).append("</b>");
+        } else if (style == HTMLStyle.ITALIC) {
+            chapter.append("<i>").append(escape(word.getData())).append("</i>");
+        } else {
+            chapter.append(escape(word.getData()));
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        String title = escape(story.getTitle());
+        String author = story.getAuthor() != null ? escape(StoryExporter.authorName(story)) : null;
+        String identifier = "urn:wattpad:story:" + story.getId();
+
+        StringBuilder opf = new StringBuilder(4096)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"3.0\" unique-identifier=\"book-id\">\n")
+                .append("  <metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n")
+                .append("    <dc:identifier id=\"book-id\">").append(identifier).append("</dc:identifier>\n")
+                .append("    <dc:title>").append(title).append("</dc:title>\n")
+                .append("    <dc:language>en</dc:language>\n");
+        if (author != null) {
+            opf.append("    <dc:creator>").append(author).append("</dc:creator>\n");
+        }
+        if (story.getDescription() != null) {
+            opf.append("    <dc:description>").append(escape(story.getDescription())).append("</dc:description>\n");
+        }
+        opf.append("    <meta property=\"dcterms:modified\">")
+                .append(Instant.now().truncatedTo(ChronoUnit.SECONDS)).append("</meta>\n")
+                .append("  </metadata>\n  <manifest>\n")
+                .append("    <item id=\"nav\" href=\"nav.xhtml\" media-type=\"application/xhtml+xml\" properties=\"nav\"/>\n")
+                .append("    <item id=\"ncx\" href=\"toc.ncx\" media-type=\"application/x-dtbncx+xml\"/>\n");
+        for (int i = 0; i < chapterTitles.size(); i++) {
+            opf.append("    <item id=\"").append(chapterId(i)).append("\" href=\"").append(chapterFile(i))
+                    .append("\" media-type=\"application/xhtml+xml\"/>\n");
+        }
+        opf.append("  </manifest>\n  <spine toc=\"ncx\">\n");
+        for (int i = 0; i < chapterTitles.size(); i++) {
+            opf.append("    <itemref idref=\"").append(chapterId(i)).append("\"/>\n");
+        }
+        opf.append("  </spine>\n</package>\n");
+        writeEntry("OEBPS/content.opf", opf);
+
+        StringBuilder nav = new StringBuilder(4096)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!DOCTYPE html>\n")
+                .append("<html xmlns=\"http://www.w3.org/1999/xhtml\" xmlns:epub=\"http://www.idpf.org/2007/ops\">\n")
+                .append("<head><title>").append(title).append("</title></head>\n")
+                .append("<body>\n<nav epub:type=\"toc\"><ol>\n");
+        for (int i = 0; i < chapterTitles.size(); i++) {
+            nav.append("  <li><a href=\"").append(chapterFile(i)).append("\">")
+                    .append(escape(chapterTitles.get(i))).append("</a></li>\n");
+        }
+        nav.append("</ol></nav>\n</body>\n</html>\n");
+        writeEntry("OEBPS/nav.xhtml", nav);
+
+        StringBuilder ncx = new StringBuilder(4096)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\" version=\"2005-1\">\n")
+                .append("  <head><meta name=\"dtb:uid\" content=\"").append(identifier).append("\"/></head>\n")
+                .append("  <docTitle><text>").append(title).append("</text></docTitle>\n  <navMap>\n");
+        for (int i = 0; i < chapterTitles.size(); i++) {
+            ncx.append("    <navPoint id=\"np-").append(i + 1).append("\" playOrder=\"").append(i + 1).append("\">")
+                    .append("<navLabel><text>").append(escape(chapterTitles.get(i))).append("</text></navLabel>")
+                    .append("<content src=\"").append(chapterFile(i)).append("\"/></navPoint>\n");
+        }
+        ncx.append("  </navMap>\n</ncx>\n");
+        writeEntry("OEBPS/toc.ncx", ncx);
+
+        zip.finish(); // Writes the central directory; the caller owns (and closes) the stream
+        zip.flush();
+    }
+
+    private void writeEntry(String name, CharSequence content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.toString().getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private static String chapterId(int index) {
+        return String.format("part-%04d", index + 1);
+    }
+
+    private static String chapterFile(int index) {
+        return chapterId(index) + ".xhtml";
+    }
+
+    private static String chapterPath(int index) {
+        return "OEBPS/" + chapterFile(index);
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement;
+            switch (c) {
+                case '&': replacement = "&amp;"; break;
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '"': replacement = "&quot;"; break;
+                default:
+                    // Drop control characters that aren't allowed in XML 1.0
+                    replacement = (c < 0x20 && c != '\t' && c != '\n' && c != '\r') ? "" : null;
+            }
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(text.length() + 16).append(text, 0, i);
+                }
+                sb.append(replacement);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : text;
+    }
+}
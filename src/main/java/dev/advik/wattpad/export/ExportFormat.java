@@ -0,0 +1,9 @@
+package dev.advik.wattpad.export;
+
+/** Output formats supported by {@link StoryExporter}. */
+public enum ExportFormat {
+    /** EPUB 3 container (with an EPUB 2 NCX for older readers), one XHTML document per part. */
+    EPUB,
+    /** UTF-8 plain text, parts separated by their titles. */
+    TEXT
+}
@@ -0,0 +1,28 @@
+package dev.advik.wattpad.export;
+
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.models.Story;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Writes one export. Parts arrive in reading order and must not be retained after {@link #writePart} returns. */
+interface ExportWriter {
+    void begin(Story story) throws IOException;
+
+    void writePart(int index, RenderedPage page) throws IOException;
+
+    /** Writes any trailing structure and flushes. Does not close the underlying stream. */
+    void finish() throws IOException;
+
+    static ExportWriter create(ExportFormat format, OutputStream out) {
+        switch (format) {
+            case EPUB:
+                return new EpubExportWriter(out);
+            case TEXT:
+                return new TextExportWriter(out);
+            default:
+                throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+    }
+}
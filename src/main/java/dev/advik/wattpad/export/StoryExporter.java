@@ -0,0 +1,166 @@
+package dev.advik.wattpad.export;
+
+import dev.advik.wattpad.WattpadClient;
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.models.Story;
+import dev.advik.wattpad.models.User;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Streams whole stories to an {@link OutputStream} part by part.
+ * <p>
+ * Each part is fetched, rendered, written and dropped in turn, so memory stays flat however many parts a story has.
+ * With a read-ahead of {@code n}, up to {@code n} upcoming parts download while the current one is written
+ * (at most {@code n + 1} rendered parts are held at once); a read-ahead of 0 fetches strictly one part at a time.
+ * Parts are fetched through {@link WattpadClient#publishParts(Story, int)}, so they use the cache and BULK priority.
+ */
+public final class StoryExporter {
+    private final WattpadClient client;
+    private final int readAhead;
+
+    public StoryExporter(WattpadClient client) {
+        this(client, 2);
+    }
+
+    public StoryExporter(WattpadClient client, int readAhead) {
+        if (readAhead < 0) {
+            throw new IllegalArgumentException("readAhead must be >= 0");
+        }
+        this.client = client;
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Writes {@code story} to {@code out} in the given format. The stream is flushed but not closed.
+     *
+     * @throws IOException if writing fails
+     * @throws WattpadException if a part can't be fetched or rendered; the output is incomplete then
+     */
+    public void export(Story story, ExportFormat format, OutputStream out) throws IOException {
+        ExportWriter writer = ExportWriter.create(format, out);
+        writer.begin(story);
+        PartQueue parts = new PartQueue(readAhead + 1);
+        client.publishParts(story, Math.max(1, readAhead)).subscribe(parts);
+        try {
+            int index = 0;
+            RenderedPage page;
+            while ((page = parts.take()) != null) {
+                writer.writePart(index++, page);
+                parts.request(1); // This page's slot is free again
+            }
+        } finally {
+            parts.cancel(); // No-op after completion; stops downloads if writing failed
+        }
+        writer.finish();
+    }
+
+    /** Writes {@code story} with parts that are already rendered. */
+    public static void export(Story story, List<RenderedPage> pages, ExportFormat format, OutputStream out) throws IOException {
+        export(story, pages.iterator(), format, out);
+    }
+
+    /**
+     * Writes {@code story} with parts taken one at a time from {@code pages}, such as
+     * {@link dev.advik.wattpad.RenderPipeline#renderInOrder}, so each is dropped once written.
+     */
+    public static void export(Story story, Iterator<RenderedPage> pages, ExportFormat format, OutputStream out) throws IOException {
+        ExportWriter writer = ExportWriter.create(format, out);
+        writer.begin(story);
+        int index = 0;
+        while (pages.hasNext()) {
+            writer.writePart(index++, pages.next());
+        }
+        writer.finish();
+    }
+
+    static String authorName(Story story) {
+        User author = story.getAuthor();
+        String name = author.getName();
+        return name != null && !name.isEmpty() ? name : author.getUsername();
+    }
+
+    /** Hands published parts to the exporting thread, keeping demand at a fixed window. */
+    private static final class PartQueue implements Flow.Subscriber<RenderedPage> {
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        private final int window;
+        private volatile Flow.Subscription subscription;
+
+        PartQueue(int window) {
+            this.window = window;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(window);
+        }
+
+        @Override
+        public void onNext(RenderedPage page) {
+            signals.add(page);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            signals.add(new Failure(error));
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add(END);
+        }
+
+        /** Next part in reading order, or null once all parts have been delivered. */
+        RenderedPage take() throws IOException {
+            Object signal;
+            try {
+                signal = signals.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the next part");
+            }
+            if (signal == END) {
+                signals.add(END); // Stay terminated for any later take()
+                return null;
+            }
+            if (signal instanceof Failure) {
+                Throwable error = ((Failure) signal).error;
+                if (error instanceof WattpadException) {
+                    throw (WattpadException) error;
+                }
+                if (error instanceof Error) {
+                    throw (Error) error;
+                }
+                throw new WattpadException("Failed to render part for export", error);
+            }
+            return (RenderedPage) signal;
+        }
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        void cancel() {
+            subscription.cancel();
+        }
+    }
+
+    private static final class Failure {
+        final Throwable error;
+
+        Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package dev.advik.wattpad.export;
+
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.models.Story;
+import dev.advik.wattpad.models.html.HTMLContent;
+import dev.advik.wattpad.models.html.HTMLType;
+import dev.advik.wattpad.models.html.HTMLWord;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+final class TextExportWriter implements ExportWriter {
+    private final Writer out;
+
+    TextExportWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void begin(Story story) throws IOException {
+        out.write(story.getTitle());
+        out.write('\n');
+        if (story.getAuthor() != null) {
+            out.write("by " + StoryExporter.authorName(story) + "\n");
+        }
+        if (story.getDescription() != null && !story.getDescription().isEmpty()) {
+            out.write('\n');
+            out.write(story.getDescription());
+            out.write('\n');
+        }
+    }
+
+    @Override
+    public void writePart(int index, RenderedPage page) throws IOException {
+        String title = page.getTitle() != null ? page.getTitle() : "Part " + (index + 1);
+        out.write("\n\n");
+        out.write(title);
+        out.write('\n');
+        out.write("=".repeat(Math.min(80, Math.max(3, title.length()))));
+        out.write("\n\n");
+        for (HTMLContent block : page.getContentStack()) {
+            if (block.getType() == HTMLType.IMAGE) {
+                out.write("[Image: " + block.getImageUrl() + "]\n\n");
+            } else {
+                for (HTMLWord word : block.getTextData()) {
+                    out.write(word.getData());
+                }
+                out.write("\n\n");
+            }
+        }
+        out.flush(); // Hand the part to the stream now rather than holding it in the buffer
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,209 @@
+package dev.advik.wattpad.images;
+
+import dev.advik.wattpad.exceptions.APIException;
+import dev.advik.wattpad.exceptions.NotFoundException;
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.internal.DeadlineCalls;
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.models.Story;
+import dev.advik.wattpad.models.User;
+import dev.advik.wattpad.models.html.HTMLContent;
+import dev.advik.wattpad.models.html.HTMLType;
+import dev.advik.wattpad.scheduler.Deadline;
+import dev.advik.wattpad.scheduler.RequestPriority;
+import dev.advik.wattpad.scheduler.RequestScheduler;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Downloads images into an {@link ImageStore}.
+ * <ul>
+ *   <li>URLs already in the store complete immediately, without touching the network.</li>
+ *   <li>Concurrent requests for the same URL share one download.</li>
+ *   <li>At most {@code maxConcurrent} downloads run at once; the rest wait in a FIFO queue without holding a thread.</li>
+ *   <li>Downloads go through the client's {@link RequestScheduler} at the priority, and within the {@link Deadline},
+ *   of the thread that asked for them.</li>
+ * </ul>
+ * Obtain one with {@code WattpadClient.images()}.
+ */
+public final class ImageDownloader {
+    private final OkHttpClient httpClient;
+    private final String userAgent;
+    private final RequestScheduler scheduler;
+    private final ImageStore store;
+    private final Executor executor;
+    private final int maxConcurrent;
+
+    private final Map<String, CompletableFuture<StoredImage>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<Runnable> waiting = new ArrayDeque<>(); // Guarded by this
+    private int running = 0; // Guarded by this
+
+    public ImageDownloader(OkHttpClient httpClient, String userAgent, RequestScheduler scheduler, ImageStore store,
+                           Executor executor, int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be >= 1");
+        }
+        this.httpClient = httpClient;
+        this.userAgent = userAgent;
+        this.scheduler = scheduler;
+        this.store = store;
+        this.executor = executor;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public ImageStore getStore() {
+        return store;
+    }
+
+    /** Fetches one image, from the store if present. Completes exceptionally with a {@link WattpadException}. */
+    public CompletableFuture<StoredImage> fetch(String url) {
+        StoredImage stored;
+        try {
+            stored = store.get(url);
+        } catch (IOException e) {
+            stored = null; // Unreadable ref, download again and rewrite it
+        }
+        if (stored != null) {
+            return CompletableFuture.completedFuture(stored);
+        }
+        // Single flight: whoever creates the future starts the download, everyone else waits on it
+        CompletableFuture<StoredImage> created = new CompletableFuture<>();
+        CompletableFuture<StoredImage> existing = inFlight.putIfAbsent(url, created);
+        if (existing != null) {
+            return existing;
+        }
+        RequestPriority priority = RequestScheduler.currentPriority();
+        Deadline deadline = Deadline.current(); // The first caller's deadline bounds the shared download
+        created.whenComplete((image, error) -> inFlight.remove(url, created));
+        submit(() -> {
+            try {
+                created.complete(Deadline.callWithin(deadline, () -> download(url, priority)));
+            } catch (Throwable t) {
+                created.completeExceptionally(t);
+            }
+        });
+        return created;
+    }
+
+    /** Fetches every distinct image in a rendered page. The map is keyed by URL, in page order. */
+    public CompletableFuture<Map<String, StoredImage>> fetchAll(RenderedPage page) {
+        Set<String> urls = new LinkedHashSet<>();
+        for (HTMLContent block : page.getContentStack()) {
+            if (block.getType() == HTMLType.IMAGE) {
+                urls.add(block.getImageUrl());
+            }
+        }
+        return fetchAll(urls);
+    }
+
+    public CompletableFuture<Map<String, StoredImage>> fetchAll(Iterable<String> urls) {
+        List<String> order = new ArrayList<>();
+        List<CompletableFuture<StoredImage>> futures = new ArrayList<>();
+        for (String url : urls) {
+            order.add(url);
+            futures.add(fetch(url));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<String, StoredImage> images = new LinkedHashMap<>();
+            for (int i = 0; i < order.size(); i++) {
+                images.put(order.get(i), futures.get(i).join());
+            }
+            return images;
+        });
+    }
+
+    /** Fetches a story's cover. Fails with {@link WattpadException} if the story has none. */
+    public CompletableFuture<StoredImage> fetchCover(Story story) {
+        return fetchRequired(story.getCoverUrl(), "Story " + story.getId() + " has no cover URL.");
+    }
+
+    /** Fetches a user's avatar. Fails with {@link WattpadException} if the user has none. */
+    public CompletableFuture<StoredImage> fetchAvatar(User user) {
+        return fetchRequired(user.getAvatar(), "User " + user.getUsername() + " has no avatar URL.");
+    }
+
+    private CompletableFuture<StoredImage> fetchRequired(String url, String missingMessage) {
+        if (url == null || url.isEmpty()) {
+            return CompletableFuture.failedFuture(new WattpadException(missingMessage));
+        }
+        return fetch(url);
+    }
+
+    // --- Download ---
+
+    private StoredImage download(String url, RequestPriority priority) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            throw new WattpadException("Invalid image URL: " + url);
+        }
+        Request request = new Request.Builder()
+                .url(httpUrl)
+                .header("User-Agent", userAgent)
+                .get()
+                .build();
+        try (RequestScheduler.Permit permit = scheduler.acquire(priority);
+             Response response = DeadlineCalls.execute(httpClient.newCall(request))) {
+            if (!response.isSuccessful()) {
+                if (response.code() == 404) {
+                    throw new NotFoundException(httpUrl);
+                }
+                throw new APIException("HTTP Error: " + response.code() + " " + response.message() + " for URL: " + url);
+            }
+            ResponseBody body = response.body();
+            if (body == null) {
+                throw new WattpadException("Received empty response body for URL: " + url);
+            }
+            MediaType contentType = body.contentType();
+            try (InputStream in = body.byteStream()) {
+                return store.put(url, in, contentType != null ? contentType.toString() : null);
+            }
+        } catch (IOException e) {
+            throw DeadlineCalls.networkError("Network error while fetching image: " + url, e);
+        }
+    }
+
+    // --- Bounded concurrency ---
+
+    private void submit(Runnable task) {
+        synchronized (this) {
+            if (running >= maxConcurrent) {
+                waiting.add(task);
+                return;
+            }
+            running++;
+        }
+        executor.execute(() -> runAndContinue(task));
+    }
+
+    // Runs a task, then keeps the slot busy with queued tasks instead of handing it back and re-dispatching
+    private void runAndContinue(Runnable task) {
+        Runnable next = task;
+        while (next != null) {
+            next.run();
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    running--;
+                }
+            }
+        }
+    }
+}
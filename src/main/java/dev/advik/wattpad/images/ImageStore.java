@@ -0,0 +1,129 @@
+package dev.advik.wattpad.images;
+
+import dev.advik.wattpad.internal.Hex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content-addressed image store on disk.
+ * <p>
+ * Image bytes live once under {@code objects/<first two hex chars>/<sha256>}, however many URLs serve them.
+ * Each URL gets a small ref file under {@code refs/} naming its object and content type. Objects and refs are both
+ * written to a temp file and published by atomic rename, so concurrent writers (and processes) never see partial files.
+ */
+public final class ImageStore {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Path objectsDir;
+    private final Path refsDir;
+    private final Path tempDir;
+
+    public ImageStore(Path root) throws IOException {
+        this.objectsDir = root.resolve("objects");
+        this.refsDir = root.resolve("refs");
+        this.tempDir = root.resolve("tmp");
+        Files.createDirectories(objectsDir);
+        Files.createDirectories(refsDir);
+        Files.createDirectories(tempDir);
+    }
+
+    /** Returns the stored image for {@code url}, or null if it was never stored (or its object went missing). */
+    public StoredImage get(String url) throws IOException {
+        Path ref = refPath(url);
+        String sha256;
+        String contentType;
+        try (BufferedReader reader = Files.newBufferedReader(ref, StandardCharsets.UTF_8)) {
+            sha256 = reader.readLine();
+            contentType = reader.readLine();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (sha256 == null) {
+            return null; // Unreadable ref, treat as absent and let it be rewritten
+        }
+        Path object = objectPath(sha256);
+        try {
+            return new StoredImage(url, sha256, contentType == null || contentType.isEmpty() ? null : contentType,
+                    Files.size(object), object);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the bytes from {@code in} as the image for {@code url}, hashing while copying.
+     * If an identical image is already stored, the new copy is dropped and the URL points at the existing one.
+     */
+    public StoredImage put(String url, InputStream in, String contentType) throws IOException {
+        MessageDigest sha256 = newSha256();
+        Path temp = Files.createTempFile(tempDir, "image-", ".tmp");
+        long size = 0;
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    sha256.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            String hash = Hex.encode(sha256.digest());
+            Path object = objectPath(hash);
+            if (Files.exists(object)) {
+                Files.delete(temp); // Same bytes already stored under another URL
+            } else {
+                Files.createDirectories(object.getParent());
+                try {
+                    Files.move(temp, object, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException raced) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            writeRef(url, hash, contentType);
+            return new StoredImage(url, hash, contentType, size, object);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private void writeRef(String url, String hash, String contentType) throws IOException {
+        Path temp = Files.createTempFile(tempDir, "ref-", ".tmp");
+        try {
+            String ref = hash + "\n" + (contentType != null ? contentType : "") + "\n" + url + "\n";
+            Files.writeString(temp, ref, StandardCharsets.UTF_8);
+            Files.move(temp, refPath(url), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private Path objectPath(String sha256) {
+        return objectsDir.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private Path refPath(String url) {
+        return refsDir.resolve(Hex.encode(newSha256().digest(url.getBytes(StandardCharsets.UTF_8))) + ".ref");
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // Required on every JVM
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package dev.advik.wattpad.images;
+
+import java.nio.file.Path;
+
+/** An image in an {@link ImageStore}. Several URLs serving the same bytes share one file. */
+public final class StoredImage {
+    private final String url;
+    private final String sha256;
+    private final String contentType;
+    private final long size;
+    private final Path path;
+
+    StoredImage(String url, String sha256, String contentType, long size, Path path) {
+        this.url = url;
+        this.sha256 = sha256;
+        this.contentType = contentType;
+        this.size = size;
+        this.path = path;
+    }
+
+    public String getUrl() { return url; }
+    /** Hex SHA-256 of the image bytes, which is also its file name in the store. */
+    public String getSha256() { return sha256; }
+    /** Content-Type the server sent, or null if it sent none. */
+    public String getContentType() { return contentType; }
+    public long getSize() { return size; }
+    public Path getPath() { return path; }
+
+    @Override
+    public String toString() {
+        return "StoredImage{" + url + " -> " + sha256 + ", " + size + " bytes}";
+    }
+}
@@ -0,0 +1,24 @@
+package dev.advik.wattpad.index;
+
+/** A paragraph matching a {@link ParagraphIndex} query. */
+public final class IndexHit {
+    private final long storyId;
+    private final long partId;
+    private final int paragraphIndex;
+
+    IndexHit(long storyId, long partId, int paragraphIndex) {
+        this.storyId = storyId;
+        this.partId = partId;
+        this.paragraphIndex = paragraphIndex;
+    }
+
+    public long getStoryId() { return storyId; }
+    public long getPartId() { return partId; }
+    /** Index of the matching block in the part's {@code RenderedPage.getContentStack()}. */
+    public int getParagraphIndex() { return paragraphIndex; }
+
+    @Override
+    public String toString() {
+        return "IndexHit{story=" + storyId + ", part=" + partId + ", paragraph=" + paragraphIndex + "}";
+    }
+}
@@ -0,0 +1,534 @@
+package dev.advik.wattpad.index;
+
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.models.html.HTMLContent;
+import dev.advik.wattpad.models.html.HTMLType;
+import dev.advik.wattpad.models.html.HTMLWord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index over the paragraphs of rendered parts, with term and phrase queries.
+ * <p>
+ * Every text paragraph is a document with an int id. A part's paragraphs get consecutive ids, so the
+ * (story, part, paragraph) key of a document is recovered from a small per-part table rather than stored per doc.
+ * Postings are primitive int arrays per term (doc ids plus word positions), so memory stays close to the size
+ * of the data and queries just walk arrays.
+ * <p>
+ * Parts can be added as they are rendered. Adding a part again replaces it: the old paragraphs are tombstoned,
+ * and the space is reclaimed by {@link #compact()} (done automatically by {@link #save(Path)}).
+ * Safe for concurrent readers and writers.
+ */
+public final class ParagraphIndex {
+    private static final byte[] MAGIC = {'W', 'P', 'I', 'X'};
+    private static final short VERSION = 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, TermPostings> terms = new HashMap<>();
+
+    // Per-part doc ranges, in doc id order; a part's docs are [partStarts[i], partStarts[i + 1])
+    private long[] partStoryIds = new long[16];
+    private long[] partIds = new long[16];
+    private int[] partStarts = new int[16];
+    private int partCount = 0;
+    private final Map<PartKey, Integer> liveParts = new HashMap<>();
+
+    private int[] paragraphIndexes = new int[256]; // Per doc: index of its block in the part's content stack
+    private int docCount = 0;
+    private final BitSet deletedDocs = new BitSet();
+
+    // --- Indexing ---
+
+    /** Indexes every text paragraph of {@code page}, replacing any earlier version of the same part. */
+    public void add(long storyId, RenderedPage page) {
+        // Tokenize outside the lock; only the appends need it
+        List<String> paragraphTerms = new ArrayList<>();
+        List<int[]> paragraphs = new ArrayList<>(); // {block index, first term, term count}
+        StringBuilder text = new StringBuilder(1024);
+        StringBuilder scratch = new StringBuilder(32);
+        List<HTMLContent> blocks = page.getContentStack();
+        for (int blockIndex = 0; blockIndex < blocks.size(); blockIndex++) {
+            HTMLContent block = blocks.get(blockIndex);
+            if (block.getType() != HTMLType.TEXT) {
+                continue;
+            }
+            text.setLength(0);
+            for (HTMLWord word : block.getTextData()) {
+                text.append(word.getData());
+            }
+            int first = paragraphTerms.size();
+            Tokenizer.tokenize(text, 0, scratch, (term, position) -> paragraphTerms.add(term));
+            if (paragraphTerms.size() > first) {
+                paragraphs.add(new int[]{blockIndex, first, paragraphTerms.size() - first});
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(storyId, page.getPartId());
+            int firstDoc = docCount;
+            addPartLocked(storyId, page.getPartId(), firstDoc);
+            for (int[] paragraph : paragraphs) {
+                int doc = docCount++;
+                if (doc == paragraphIndexes.length) {
+                    paragraphIndexes = Arrays.copyOf(paragraphIndexes, paragraphIndexes.length * 2);
+                }
+                paragraphIndexes[doc] = paragraph[0];
+                for (int i = 0; i < paragraph[2]; i++) {
+                    terms.computeIfAbsent(paragraphTerms.get(paragraph[1] + i), t -> new TermPostings()).add(doc, i);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes a part from results. Returns false if it wasn't indexed. */
+    public boolean remove(long storyId, long partId) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(storyId, partId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean removeLocked(long storyId, long partId) {
+        Integer part = liveParts.remove(new PartKey(storyId, partId));
+        if (part == null) {
+            return false;
+        }
+        deletedDocs.set(partStarts[part], partEnd(part));
+        return true;
+    }
+
+    private void addPartLocked(long storyId, long partId, int firstDoc) {
+        if (partCount == partIds.length) {
+            int capacity = partIds.length * 2;
+            partStoryIds = Arrays.copyOf(partStoryIds, capacity);
+            partIds = Arrays.copyOf(partIds, capacity);
+            partStarts = Arrays.copyOf(partStarts, capacity);
+        }
+        partStoryIds[partCount] = storyId;
+        partIds[partCount] = partId;
+        partStarts[partCount] = firstDoc;
+        liveParts.put(new PartKey(storyId, partId), partCount);
+        partCount++;
+    }
+
+    private int partEnd(int part) {
+        return part + 1 < partCount ? partStarts[part + 1] : docCount;
+    }
+
+    // Last part whose range starts at or before doc; empty parts share a start with the next, so take the last
+    private int partOf(int doc) {
+        int low = 0;
+        int high = partCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (partStarts[mid] <= doc) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // --- Queries ---
+
+    /**
+     * Finds paragraphs matching every clause of {@code query}: bare words must all occur, and "quoted phrases"
+     * must occur as consecutive words. Matching ignores case and punctuation. Hits come back in indexing order.
+     */
+    public List<IndexHit> search(String query, int limit) {
+        List<List<String>> clauses = parseQuery(query);
+        if (clauses.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return evaluate(clauses, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Paragraphs containing {@code term}. */
+    public List<IndexHit> searchTerm(String term, int limit) {
+        List<String> terms = Tokenizer.terms(term);
+        return terms.isEmpty() ? List.of() : searchClauses(List.of(terms.subList(0, 1)), limit);
+    }
+
+    /** Paragraphs containing the words of {@code phrase} consecutively. */
+    public List<IndexHit> searchPhrase(String phrase, int limit) {
+        List<String> terms = Tokenizer.terms(phrase);
+        return terms.isEmpty() ? List.of() : searchClauses(List.of(terms), limit);
+    }
+
+    private List<IndexHit> searchClauses(List<List<String>> clauses, int limit) {
+        lock.readLock().lock();
+        try {
+            return evaluate(clauses, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<List<String>> parseQuery(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        String[] segments = query.split("\"", -1);
+        for (int i = 0; i < segments.length; i++) {
+            List<String> segmentTerms = Tokenizer.terms(segments[i]);
+            if (i % 2 == 1) { // Inside quotes
+                if (!segmentTerms.isEmpty()) {
+                    clauses.add(segmentTerms);
+                }
+            } else {
+                for (String term : segmentTerms) {
+                    clauses.add(List.of(term));
+                }
+            }
+        }
+        return clauses;
+    }
+
+    private List<IndexHit> evaluate(List<List<String>> clauses, int limit) {
+        // Resolve every clause term; one unknown term means no hits
+        TermPostings[][] clausePostings = new TermPostings[clauses.size()][];
+        List<TermPostings> distinct = new ArrayList<>();
+        for (int c = 0; c < clauses.size(); c++) {
+            List<String> clause = clauses.get(c);
+            clausePostings[c] = new TermPostings[clause.size()];
+            for (int i = 0; i < clause.size(); i++) {
+                TermPostings postings = terms.get(clause.get(i));
+                if (postings == null) {
+                    return List.of();
+                }
+                clausePostings[c][i] = postings;
+                if (!distinct.contains(postings)) {
+                    distinct.add(postings);
+                }
+            }
+        }
+        distinct.sort((a, b) -> Integer.compare(a.docCount, b.docCount)); // Drive from the rarest term
+
+        TermPostings lead = distinct.get(0);
+        int others = distinct.size() - 1;
+        int[] cursors = new int[distinct.size()];
+        List<IndexHit> hits = new ArrayList<>();
+        for (int slot = 0; slot < lead.docCount && hits.size() < limit; slot++) {
+            int doc = lead.docs[slot];
+            cursors[0] = slot;
+            boolean inAll = true;
+            for (int i = 1; i <= others; i++) {
+                TermPostings postings = distinct.get(i);
+                cursors[i] = postings.advance(cursors[i], doc);
+                if (cursors[i] == postings.docCount) {
+                    return hits; // This list is exhausted, no later doc can match
+                }
+                if (postings.docs[cursors[i]] != doc) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (!inAll || deletedDocs.get(doc) || !phrasesMatch(clausePostings, distinct, cursors)) {
+                continue;
+            }
+            int part = partOf(doc);
+            hits.add(new IndexHit(partStoryIds[part], partIds[part], paragraphIndexes[doc]));
+        }
+        return hits;
+    }
+
+    // All lists are positioned on the same doc; check each multi-word clause for consecutive positions
+    private static boolean phrasesMatch(TermPostings[][] clausePostings, List<TermPostings> distinct, int[] cursors) {
+        for (TermPostings[] clause : clausePostings) {
+            if (clause.length < 2) {
+                continue;
+            }
+            TermPostings first = clause[0];
+            int firstSlot = cursors[distinct.indexOf(first)];
+            boolean found = false;
+            for (int p = first.positionsStart(firstSlot); p < first.positionsEnd(firstSlot) && !found; p++) {
+                int start = first.positions[p];
+                found = true;
+                for (int i = 1; i < clause.length; i++) {
+                    TermPostings next = clause[i];
+                    if (!next.hasPosition(cursors[distinct.indexOf(next)], start + i)) {
+                        found = false;
+                        break;
+                    }
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- Stats ---
+
+    /** Live (not replaced or removed) indexed paragraphs. */
+    public int getParagraphCount() {
+        lock.readLock().lock();
+        try {
+            return docCount - deletedDocs.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Compaction ---
+
+    /** Drops tombstoned paragraphs and renumbers the rest, shrinking every postings array to fit. */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            compactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactLocked() {
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            remap[doc] = deletedDocs.get(doc) ? -1 : live++;
+        }
+
+        int[] newParagraphIndexes = new int[Math.max(16, live)];
+        for (int doc = 0; doc < docCount; doc++) {
+            if (remap[doc] >= 0) {
+                newParagraphIndexes[remap[doc]] = paragraphIndexes[doc];
+            }
+        }
+
+        // Keep live parts only; a live part's docs are never tombstoned, so its new start is its first doc's new id
+        int newPartCount = 0;
+        long[] newStoryIds = new long[Math.max(16, liveParts.size())];
+        long[] newPartIds = new long[newStoryIds.length];
+        int[] newStarts = new int[newStoryIds.length];
+        liveParts.clear();
+        int nextStart = 0;
+        for (int part = 0; part < partCount; part++) {
+            int start = partStarts[part];
+            int end = partEnd(part);
+            boolean partLive = start == end ? !isReplaced(part) : !deletedDocs.get(start);
+            if (!partLive) {
+                continue;
+            }
+            newStoryIds[newPartCount] = partStoryIds[part];
+            newPartIds[newPartCount] = partIds[part];
+            newStarts[newPartCount] = nextStart;
+            liveParts.put(new PartKey(partStoryIds[part], partIds[part]), newPartCount);
+            nextStart += end - start;
+            newPartCount++;
+        }
+
+        terms.entrySet().removeIf(entry -> {
+            TermPostings old = entry.getValue();
+            TermPostings fresh = new TermPostings(old.docCount, old.positionCount);
+            for (int slot = 0; slot < old.docCount; slot++) {
+                int doc = remap[old.docs[slot]];
+                if (doc < 0) {
+                    continue;
+                }
+                for (int p = old.positionsStart(slot); p < old.positionsEnd(slot); p++) {
+                    fresh.add(doc, old.positions[p]);
+                }
+            }
+            if (fresh.docCount == 0) {
+                return true; // Term only occurred in removed paragraphs
+            }
+            fresh.trim();
+            entry.setValue(fresh);
+            return false;
+        });
+
+        paragraphIndexes = newParagraphIndexes;
+        docCount = live;
+        partStoryIds = newStoryIds;
+        partIds = newPartIds;
+        partStarts = newStarts;
+        partCount = newPartCount;
+        deletedDocs.clear();
+    }
+
+    // Empty parts have no docs to tombstone, so check whether the live-part map still points at this slot
+    private boolean isReplaced(int part) {
+        Integer current = liveParts.get(new PartKey(partStoryIds[part], partIds[part]));
+        return current == null || current != part;
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Compacts, then writes the index to {@code file} (via a temp file and an atomic rename).
+     * Doc ids, positions and offsets are delta-encoded varints, so the file is a fraction of the in-memory size.
+     */
+    public void save(Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.writeLock().lock(); // Compaction mutates; writing then needs a stable view anyway
+        try {
+            compactLocked();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                out.write(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(partCount);
+                for (int part = 0; part < partCount; part++) {
+                    out.writeLong(partStoryIds[part]);
+                    out.writeLong(partIds[part]);
+                    writeVarInt(out, partEnd(part) - partStarts[part]);
+                }
+                writeVarInt(out, docCount);
+                for (int doc = 0; doc < docCount; doc++) {
+                    writeVarInt(out, paragraphIndexes[doc]);
+                }
+                out.writeInt(terms.size());
+                for (Map.Entry<String, TermPostings> entry : terms.entrySet()) {
+                    TermPostings postings = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    writeVarInt(out, postings.docCount);
+                    int previousDoc = 0;
+                    for (int slot = 0; slot < postings.docCount; slot++) {
+                        writeVarInt(out, postings.docs[slot] - previousDoc);
+                        previousDoc = postings.docs[slot];
+                        int start = postings.positionsStart(slot);
+                        int end = postings.positionsEnd(slot);
+                        writeVarInt(out, end - start);
+                        int previousPosition = 0;
+                        for (int p = start; p < end; p++) {
+                            writeVarInt(out, postings.positions[p] - previousPosition);
+                            previousPosition = postings.positions[p];
+                        }
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try { Files.deleteIfExists(temp); } catch (IOException ignored) {}
+            throw new WattpadException("Failed to save paragraph index to " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public static ParagraphIndex load(Path file) {
+        ParagraphIndex index = new ParagraphIndex();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            short version = in.readShort();
+            if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+                throw new WattpadException("Not a paragraph index (or unsupported version): " + file);
+            }
+            int parts = in.readInt();
+            int start = 0;
+            for (int part = 0; part < parts; part++) {
+                long storyId = in.readLong();
+                long partId = in.readLong();
+                index.addPartLocked(storyId, partId, start);
+                start += readVarInt(in);
+            }
+            int docs = readVarInt(in);
+            index.paragraphIndexes = new int[Math.max(16, docs)];
+            for (int doc = 0; doc < docs; doc++) {
+                index.paragraphIndexes[doc] = readVarInt(in);
+            }
+            index.docCount = docs;
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                int postingsDocs = readVarInt(in);
+                TermPostings postings = new TermPostings(postingsDocs, postingsDocs);
+                int doc = 0;
+                for (int slot = 0; slot < postingsDocs; slot++) {
+                    doc += readVarInt(in);
+                    int frequency = readVarInt(in);
+                    int position = 0;
+                    for (int p = 0; p < frequency; p++) {
+                        position += readVarInt(in);
+                        postings.add(doc, position);
+                    }
+                }
+                postings.trim();
+                index.terms.put(term, postings);
+            }
+        } catch (IOException e) {
+            throw new WattpadException("Failed to load paragraph index from " + file, e);
+        }
+        return index;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in paragraph index");
+    }
+
+    private static final class PartKey {
+        final long storyId;
+        final long partId;
+
+        PartKey(long storyId, long partId) {
+            this.storyId = storyId;
+            this.partId = partId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PartKey)) return false;
+            PartKey other = (PartKey) o;
+            return storyId == other.storyId && partId == other.partId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(storyId, partId);
+        }
+    }
+}
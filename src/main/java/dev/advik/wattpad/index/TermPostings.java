@@ -0,0 +1,79 @@
+package dev.advik.wattpad.index;
+
+import java.util.Arrays;
+
+/**
+ * Postings of one term as primitive arrays: ascending doc ids, and for each doc the start of its positions
+ * in one flat positions array. Docs are only ever appended with increasing ids.
+ */
+final class TermPostings {
+    int[] docs;
+    int[] positionStarts;
+    int docCount;
+    int[] positions;
+    int positionCount;
+
+    TermPostings() {
+        this(1, 2);
+    }
+
+    TermPostings(int docCapacity, int positionCapacity) {
+        docs = new int[Math.max(1, docCapacity)];
+        positionStarts = new int[Math.max(1, docCapacity)];
+        positions = new int[Math.max(1, positionCapacity)];
+    }
+
+    void add(int doc, int position) {
+        if (docCount == 0 || docs[docCount - 1] != doc) {
+            if (docCount == docs.length) {
+                int capacity = docs.length + (docs.length >> 1) + 1;
+                docs = Arrays.copyOf(docs, capacity);
+                positionStarts = Arrays.copyOf(positionStarts, capacity);
+            }
+            docs[docCount] = doc;
+            positionStarts[docCount] = positionCount;
+            docCount++;
+        }
+        if (positionCount == positions.length) {
+            positions = Arrays.copyOf(positions, positions.length + (positions.length >> 1) + 1);
+        }
+        positions[positionCount++] = position;
+    }
+
+    int positionsStart(int docSlot) {
+        return positionStarts[docSlot];
+    }
+
+    int positionsEnd(int docSlot) {
+        return docSlot + 1 < docCount ? positionStarts[docSlot + 1] : positionCount;
+    }
+
+    /** Smallest slot {@code >= from} whose doc is {@code >= target}, or {@code docCount}. Gallops, then binary searches. */
+    int advance(int from, int target) {
+        if (from >= docCount || docs[from] >= target) {
+            return from;
+        }
+        int step = 1;
+        int low = from;
+        int high = from + 1;
+        while (high < docCount && docs[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, docCount);
+        int slot = Arrays.binarySearch(docs, low + 1, high, target);
+        return slot >= 0 ? slot : -slot - 1;
+    }
+
+    /** Whether {@code position} occurs in the doc at {@code docSlot}. */
+    boolean hasPosition(int docSlot, int position) {
+        return Arrays.binarySearch(positions, positionsStart(docSlot), positionsEnd(docSlot), position) >= 0;
+    }
+
+    void trim() {
+        docs = Arrays.copyOf(docs, Math.max(1, docCount));
+        positionStarts = Arrays.copyOf(positionStarts, Math.max(1, docCount));
+        positions = Arrays.copyOf(positions, Math.max(1, positionCount));
+    }
+}
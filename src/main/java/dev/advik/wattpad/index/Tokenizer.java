@@ -0,0 +1,47 @@
+package dev.advik.wattpad.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into lower-cased terms: maximal runs of letters and digits. Apostrophes inside a word are dropped
+ * ("don't" -> "dont") so contractions match however they were typed. Used for both indexing and queries.
+ */
+final class Tokenizer {
+    private Tokenizer() {} // Prevent instantiation
+
+    interface TermSink {
+        void accept(String term, int position);
+    }
+
+    /** Feeds each term of {@code text} to {@code sink} with positions counted from {@code firstPosition}; returns the next position. */
+    static int tokenize(CharSequence text, int firstPosition, StringBuilder scratch, TermSink sink) {
+        int position = firstPosition;
+        scratch.setLength(0);
+        int length = text.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                scratch.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if ((codePoint == '\'' || codePoint == '\u2019') && scratch.length() > 0
+                    && i < length && Character.isLetterOrDigit(Character.codePointAt(text, i))) {
+                // Inside-word apostrophe, keep going
+            } else if (scratch.length() > 0) {
+                sink.accept(scratch.toString(), position++);
+                scratch.setLength(0);
+            }
+        }
+        if (scratch.length() > 0) {
+            sink.accept(scratch.toString(), position++);
+            scratch.setLength(0);
+        }
+        return position;
+    }
+
+    static List<String> terms(CharSequence text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text, 0, new StringBuilder(), (term, position) -> terms.add(term));
+        return terms;
+    }
+}
@@ -0,0 +1,171 @@
+package dev.advik.wattpad.internal;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Access statistics shared by every process using a cache directory, kept in a memory-mapped file.
+ * <p>
+ * The file is a fixed-size open-addressing table. Each slot holds the first 8 bytes of the entry's key hash, its
+ * last access time, a hit count and its size. Every process maps the same file, so updates are visible host-wide
+ * immediately. Slots are claimed with a compare-and-set on the mapped memory, and the counters are updated with
+ * atomic adds, so no locks are taken. The numbers are advisory (for eviction): a full neighbourhood just means an
+ * access isn't recorded.
+ */
+final class CacheAccessStats implements AutoCloseable {
+    private static final int MAGIC = 0x57504153; // "WPAS"
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 32;
+    private static final int MAX_PROBES = 32;
+    private static final long EMPTY = 0L;
+    private static final long TOMBSTONE = -1L;
+
+    // Atomic access to longs in the mapping; the buffer is 8-byte aligned because the map starts at a page boundary
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel channel;
+    private final MappedByteBuffer table;
+    private final int slotCount;
+
+    /** One entry's stats as read from the table. */
+    static final class Entry {
+        final long lastAccessMillis;
+        final long hits;
+        final long size;
+
+        Entry(long lastAccessMillis, long hits, long size) {
+            this.lastAccessMillis = lastAccessMillis;
+            this.hits = hits;
+            this.size = size;
+        }
+    }
+
+    CacheAccessStats(Path file, int slotCount) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long length = HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+        // Growing to full size is idempotent, so processes racing to create the file end up with the same table
+        if (channel.size() < length) {
+            channel.write(java.nio.ByteBuffer.allocate(1), length - 1);
+        }
+        this.table = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        table.order(ByteOrder.nativeOrder());
+        int existingMagic = table.getInt(0);
+        if (existingMagic == 0) {
+            table.putInt(4, slotCount);
+            table.putInt(0, MAGIC);
+        } else if (existingMagic != MAGIC) {
+            throw new IOException("Not a cache access stats file: " + file);
+        }
+        this.slotCount = table.getInt(4) > 0 ? Math.min(table.getInt(4), slotCount) : slotCount;
+    }
+
+    /** Records a read (or write, with {@code hit} false) of the entry with this key hash. */
+    void record(long keyHash, long size, boolean hit) {
+        int slot = findOrClaim(normalize(keyHash));
+        if (slot < 0) {
+            return;
+        }
+        int base = slotOffset(slot);
+        LONGS.setVolatile(table, base + 8, System.currentTimeMillis());
+        if (hit) {
+            LONGS.getAndAdd(table, base + 16, 1L);
+        }
+        if (size >= 0) {
+            LONGS.setVolatile(table, base + 24, size);
+        }
+    }
+
+    Entry get(long keyHash) {
+        int slot = find(normalize(keyHash));
+        if (slot < 0) {
+            return null;
+        }
+        int base = slotOffset(slot);
+        return new Entry((long) LONGS.getVolatile(table, base + 8), (long) LONGS.getVolatile(table, base + 16),
+                (long) LONGS.getVolatile(table, base + 24));
+    }
+
+    /** Frees the entry's slot, e.g. after evicting it. */
+    void forget(long keyHash) {
+        int slot = find(normalize(keyHash));
+        if (slot >= 0) {
+            int base = slotOffset(slot);
+            LONGS.setVolatile(table, base + 8, 0L);
+            LONGS.setVolatile(table, base + 16, 0L);
+            LONGS.setVolatile(table, base + 24, 0L);
+            LONGS.setVolatile(table, base, TOMBSTONE);
+        }
+    }
+
+    /** Empties the table. Callers hold the cache's exclusive lock. */
+    void clear() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            int base = slotOffset(slot);
+            for (int field = 0; field < SLOT_BYTES; field += 8) {
+                LONGS.setVolatile(table, base + field, 0L);
+            }
+        }
+    }
+
+    private int find(long key) {
+        int start = startSlot(key);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (start + probe) % slotCount;
+            long current = (long) LONGS.getVolatile(table, slotOffset(slot));
+            if (current == key) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private int findOrClaim(long key) {
+        int existing = find(key);
+        if (existing >= 0) {
+            return existing;
+        }
+        int start = startSlot(key);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (start + probe) % slotCount;
+            int offset = slotOffset(slot);
+            long current = (long) LONGS.getVolatile(table, offset);
+            while (current == EMPTY || current == TOMBSTONE) {
+                if (LONGS.compareAndSet(table, offset, current, key)) {
+                    return slot;
+                }
+                // Lost the race for this slot: re-read it, the winner may have been recording the same key
+                current = (long) LONGS.getVolatile(table, offset);
+            }
+            if (current == key) {
+                return slot; // Claimed concurrently by another thread or process
+            }
+        }
+        return -1;
+    }
+
+    private int startSlot(long key) {
+        return (int) Math.floorMod(key ^ (key >>> 32), (long) slotCount);
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static long normalize(long keyHash) {
+        return keyHash == EMPTY || keyHash == TOMBSTONE ? 1L : keyHash; // Reserved markers
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close(); // The mapping stays valid until it is garbage collected
+    }
+}
@@ -0,0 +1,305 @@
+package dev.advik.wattpad.internal;
+
+import dev.advik.wattpad.metrics.EndpointFamily;
+import okhttp3.HttpUrl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Copies the contents of a {@link SimpleDiskCache} into a single compact archive and back, so a new node can start
+ * with a warm cache instead of re-fetching everything from Wattpad.
+ * <p>
+ * Layout: a 6-byte header ({@code "WPCS"} + version), then a deflated stream of entries, each a marker byte,
+ * the key (empty if unknown), the 16-byte hash that names the file, its modification time, its absolute expiry time
+ * (0 without a TTL), its size and its bytes. A zero marker and the entry count close the stream, so a truncated
+ * archive is detected on import. Expired entries are left out, and entries that expire before they are imported are
+ * skipped; the rest keep their expiry time. Version 1 archives, which have no expiry times, can still be imported.
+ * <p>
+ * Run from the command line with {@code ./gradlew cacheSnapshot -PcacheSnapshot.args="export cache snap.wpcs"}.
+ */
+public final class CacheSnapshot {
+    private CacheSnapshot() {} // Prevent instantiation
+
+    private static final byte[] MAGIC = {'W', 'P', 'C', 'S'};
+    private static final short VERSION = 2;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /** Which entries go into a snapshot. Immutable; each method returns a narrowed copy. */
+    public static final class Filter {
+        private final Set<EndpointFamily> families; // Null = any, including entries with unknown keys
+        private final Duration maxAge;              // Null = any
+
+        private Filter(Set<EndpointFamily> families, Duration maxAge) {
+            this.families = families;
+            this.maxAge = maxAge;
+        }
+
+        public static Filter all() {
+            return new Filter(null, null);
+        }
+
+        /** Keeps only entries for these endpoint families. Entries whose key isn't journaled are then skipped. */
+        public Filter families(EndpointFamily... families) {
+            EnumSet<EndpointFamily> set = EnumSet.noneOf(EndpointFamily.class);
+            set.addAll(Arrays.asList(families));
+            return new Filter(Collections.unmodifiableSet(set), maxAge);
+        }
+
+        /** Keeps only entries written or read within {@code maxAge}. */
+        public Filter newerThan(Duration maxAge) {
+            return new Filter(families, maxAge);
+        }
+
+        boolean accepts(String key, long lastAccessMillis, long nowMillis) {
+            if (maxAge != null && nowMillis - lastAccessMillis > maxAge.toMillis()) {
+                return false;
+            }
+            if (families == null) {
+                return true;
+            }
+            if (key == null) {
+                return false;
+            }
+            HttpUrl url = HttpUrl.parse(key);
+            return families.contains(url != null ? EndpointFamily.of(url) : EndpointFamily.OTHER);
+        }
+    }
+
+    /** What an export or import did. */
+    public static final class Result {
+        private final long entries;
+        private final long bytes;
+        private final long skipped;
+
+        Result(long entries, long bytes, long skipped) {
+            this.entries = entries;
+            this.bytes = bytes;
+            this.skipped = skipped;
+        }
+
+        /** Entries written to the archive, or to the cache on import. */
+        public long getEntryCount() {
+            return entries;
+        }
+
+        /** Uncompressed size of those entries. */
+        public long getByteCount() {
+            return bytes;
+        }
+
+        /** Entries left out by the filter, or on import expired or kept because the cache already had a newer copy. */
+        public long getSkippedCount() {
+            return skipped;
+        }
+
+        @Override
+        public String toString() {
+            return entries + " entries, " + bytes + " bytes, " + skipped + " skipped";
+        }
+    }
+
+    // --- Export ---
+
+    /** Writes a snapshot to {@code archive}, atomically replacing any existing file. */
+    public static Result export(SimpleDiskCache cache, Path archive, Filter filter) throws IOException {
+        Path parent = archive.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(parent, archive.getFileName().toString(), ".tmp");
+        try {
+            Result result;
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                result = export(cache, out, filter);
+            }
+            Files.move(tempFile, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            try { Files.deleteIfExists(tempFile); } catch (IOException ignored) {}
+            throw e;
+        }
+    }
+
+    /** Writes a snapshot to {@code out}, which is finished but not closed. */
+    public static Result export(SimpleDiskCache cache, OutputStream out, Filter filter) throws IOException {
+        Map<String, String> keys = cache.readKeyJournal();
+        long now = System.currentTimeMillis();
+        long entries = 0;
+        long bytes = 0;
+        long skipped = 0;
+
+        out.write(MAGIC);
+        out.write(VERSION >>> 8);
+        out.write(VERSION);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(deflated, BUFFER_SIZE));
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(cache.directory(), "*.cache")) {
+                for (Path entry : stream) {
+                    String fileName = entry.getFileName().toString();
+                    String hash = fileName.substring(0, fileName.length() - ".cache".length());
+                    String key = keys.get(hash);
+                    if (cache.expired(entry)) {
+                        skipped++;
+                        continue;
+                    }
+                    long expiresAt = cache.expiresAtMillis(entry);
+                    // Entries are replaced by rename, so the open file stays consistent even if a writer races us
+                    try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+                        BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                        if (!filter.accepts(key, cache.lastAccessMillis(entry, attributes), now)) {
+                            skipped++;
+                            continue;
+                        }
+                        long size = channel.size();
+                        data.writeByte(1);
+                        byte[] keyBytes = key != null ? key.getBytes(StandardCharsets.UTF_8) : new byte[0];
+                        data.writeInt(keyBytes.length);
+                        data.write(keyBytes);
+                        data.write(Hex.decode(hash));
+                        data.writeLong(attributes.lastModifiedTime().toMillis());
+                        data.writeLong(expiresAt);
+                        data.writeLong(size);
+                        long copied = Channels.newInputStream(channel).transferTo(data);
+                        if (copied != size) {
+                            throw new IOException("Cache entry " + entry + " changed size while exporting");
+                        }
+                        entries++;
+                        bytes += size;
+                    } catch (NoSuchFileException e) {
+                        skipped++; // Evicted while listing
+                    }
+                }
+            }
+            data.writeByte(0);
+            data.writeLong(entries);
+            data.flush();
+            deflated.finish();
+        } finally {
+            deflater.end();
+        }
+        out.flush();
+        return new Result(entries, bytes, skipped);
+    }
+
+    // --- Import ---
+
+    /** Restores a snapshot into {@code cache}. Entries the cache already holds a newer copy of are kept. */
+    public static Result importInto(SimpleDiskCache cache, Path archive) throws IOException {
+        try (InputStream in = Files.newInputStream(archive)) {
+            return importInto(cache, in);
+        }
+    }
+
+    public static Result importInto(SimpleDiskCache cache, InputStream in) throws IOException {
+        byte[] header = new byte[6];
+        new DataInputStream(in).readFully(header);
+        if (!Arrays.equals(Arrays.copyOf(header, 4), MAGIC)) {
+            throw new IOException("Not a cache snapshot");
+        }
+        int version = ((header[4] & 0xFF) << 8) | (header[5] & 0xFF);
+        if (version != VERSION && version != 1) {
+            throw new IOException("Unsupported cache snapshot version " + version);
+        }
+
+        long entries = 0;
+        long bytes = 0;
+        long skipped = 0;
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in), BUFFER_SIZE));
+        byte[] hashBytes = new byte[16];
+        try {
+            while (data.readByte() != 0) {
+                byte[] keyBytes = new byte[data.readInt()];
+                data.readFully(keyBytes);
+                data.readFully(hashBytes);
+                long lastModified = data.readLong();
+                long expiresAt = version >= 2 ? data.readLong() : 0L;
+                long size = data.readLong();
+                String key = keyBytes.length > 0 ? new String(keyBytes, StandardCharsets.UTF_8) : null;
+                if (cache.importEntry(Hex.encode(hashBytes), key, data, size, lastModified, expiresAt)) {
+                    entries++;
+                    bytes += size;
+                } else {
+                    skipped++;
+                }
+            }
+            long expected = data.readLong();
+            if (expected != entries + skipped) {
+                throw new IOException("Cache snapshot lists " + expected + " entries but holds " + (entries + skipped));
+            }
+        } catch (EOFException e) {
+            throw new IOException("Cache snapshot is truncated after " + (entries + skipped) + " entries", e);
+        }
+        return new Result(entries, bytes, skipped);
+    }
+
+    // --- Command line ---
+
+    /**
+     * {@code export <cacheDir> <archive> [--families=STORY,PART] [--max-age=PT24H] [--shared]} or
+     * {@code import <cacheDir> <archive> [--shared]}. Pass {@code --shared} when other processes use the cache.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("export") || args[0].equals("import"))) {
+            System.err.println("Usage: export <cacheDir> <archive> [--families=STORY,PART] [--max-age=PT24H] [--shared]");
+            System.err.println("       import <cacheDir> <archive> [--shared]");
+            System.exit(2);
+        }
+        Filter filter = Filter.all();
+        boolean export = args[0].equals("export");
+        boolean shared = false;
+        for (int i = 3; i < args.length; i++) {
+            String arg = args[i];
+            if (!export && (arg.startsWith("--families=") || arg.startsWith("--max-age="))) {
+                throw new IllegalArgumentException("Option only applies to export: " + arg);
+            } else if (arg.startsWith("--families=")) {
+                filter = filter.families(Arrays.stream(arg.substring("--families=".length()).split(","))
+                        .map(String::trim)
+                        .map(String::toUpperCase)
+                        .map(EndpointFamily::valueOf)
+                        .toArray(EndpointFamily[]::new));
+            } else if (arg.startsWith("--max-age=")) {
+                filter = filter.newerThan(Duration.parse(arg.substring("--max-age=".length())));
+            } else if (arg.equals("--shared")) {
+                shared = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        Path archive = Paths.get(args[2]);
+        long start = System.nanoTime();
+        Result result;
+        try (SimpleDiskCache cache = new SimpleDiskCache(args[1], shared)) {
+            result = export ? export(cache, archive, filter) : importInto(cache, archive);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%sed %s in %.2fs (%.1f MB/s)%n", args[0], result, seconds,
+                result.getByteCount() / 1e6 / Math.max(seconds, 1e-9));
+    }
+}
@@ -0,0 +1,45 @@
+package dev.advik.wattpad.internal;
+
+import dev.advik.wattpad.exceptions.DeadlineExceededException;
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.scheduler.Deadline;
+import okhttp3.Call;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs OkHttp calls within the current thread's {@link Deadline}, for every component that talks to the network.
+ */
+public final class DeadlineCalls {
+
+    private DeadlineCalls() {
+    }
+
+    /**
+     * Executes a call within the current thread's {@link Deadline}: the call timeout is cut to the remaining budget,
+     * and cancelling the deadline cancels the call while it waits for the response headers.
+     */
+    public static Response execute(Call call) throws IOException {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return call.execute();
+        }
+        deadline.check("requesting " + call.request().url());
+        // Covers reading the body too. At least 1ns: the budget can run out after check(), and 0 means no timeout
+        call.timeout().timeout(Math.max(1, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        try (Deadline.Registration ignored = deadline.onCancel(call::cancel)) {
+            return call.execute();
+        }
+    }
+
+    /** A call cut short by the deadline surfaces as an IOException; this reports it as the deadline it really is. */
+    public static WattpadException networkError(String message, IOException e) {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            return new DeadlineExceededException((deadline.isCancelled() ? "Cancelled: " : "Deadline exceeded: ") + message, e);
+        }
+        return new WattpadException(message, e);
+    }
+}
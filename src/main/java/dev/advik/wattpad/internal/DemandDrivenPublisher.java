@@ -0,0 +1,191 @@
+package dev.advik.wattpad.internal;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A cold {@link Flow.Publisher} whose fetches are driven by subscriber demand.
+ * <p>
+ * Each subscription gets its own {@link Source}. A fetch is only started while the items already
+ * buffered plus the items expected from fetches in flight fall short of the outstanding
+ * {@code request(n)} demand, and never more than {@code maxInFlight} at once. So a subscriber that
+ * requests one item at a time causes exactly one network call at a time. Items are delivered in
+ * the order their fetches were started.
+ */
+public final class DemandDrivenPublisher<T> implements Flow.Publisher<T> {
+
+    /** Produces batches of items for one subscription. Only called from the subscription's drain loop. */
+    public interface Source<T> {
+        /** Starts fetching the next batch, or returns null once there is nothing left to fetch. */
+        CompletableFuture<List<T>> fetchNext();
+
+        /** How many items a single fetch is expected to yield, used to size fetches against demand. */
+        default int itemsPerFetch() {
+            return 1;
+        }
+    }
+
+    private final Supplier<Source<T>> sourceFactory;
+    private final int maxInFlight;
+
+    public DemandDrivenPublisher(Supplier<Source<T>> sourceFactory, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be >= 1");
+        }
+        this.sourceFactory = Objects.requireNonNull(sourceFactory, "sourceFactory cannot be null");
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber cannot be null");
+        Source<T> source;
+        try {
+            source = sourceFactory.get();
+        } catch (RuntimeException e) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) {}
+                @Override public void cancel() {}
+            });
+            subscriber.onError(e);
+            return;
+        }
+        DemandSubscription subscription = new DemandSubscription(subscriber, source);
+        subscriber.onSubscribe(subscription);
+        subscription.drain(); // Picks up any demand requested from within onSubscribe
+    }
+
+    private final class DemandSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Source<T> source;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger(); // Serializes drain() across threads
+        private volatile boolean cancelled = false;
+        private volatile Throwable invalidRequest = null;
+
+        // Only touched inside drainLoop(), which never runs concurrently with itself
+        private final ArrayDeque<CompletableFuture<List<T>>> inFlight = new ArrayDeque<>();
+        private final ArrayDeque<T> ready = new ArrayDeque<>();
+        private boolean sourceExhausted = false;
+        private boolean terminated = false;
+
+        DemandSubscription(Flow.Subscriber<? super T> subscriber, Source<T> source) {
+            this.subscriber = subscriber;
+            this.source = source;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request(n) requires n > 0, got " + n); // Rule 3.9
+            } else {
+                requested.getAndUpdate(current -> {
+                    long sum = current + n;
+                    return sum < 0 ? Long.MAX_VALUE : sum; // Saturate, Long.MAX_VALUE means unbounded
+                });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return; // Another thread is draining, it will loop once more for us
+            }
+            do {
+                drainLoop();
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private void drainLoop() {
+            boolean progress = true;
+            while (progress && !terminated) {
+                progress = false;
+
+                if (cancelled) {
+                    terminate();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    fail(invalidRequest);
+                    return;
+                }
+
+                // Collect finished fetches in start order
+                while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+                    try {
+                        ready.addAll(inFlight.poll().join());
+                    } catch (CompletionException e) {
+                        fail(e.getCause() != null ? e.getCause() : e);
+                        return;
+                    } catch (RuntimeException e) {
+                        fail(e);
+                        return;
+                    }
+                    progress = true;
+                }
+
+                // Deliver whatever demand allows
+                while (!ready.isEmpty() && requested.get() > 0 && !cancelled) {
+                    T item = ready.poll();
+                    if (requested.get() != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                    subscriber.onNext(item);
+                    progress = true;
+                }
+
+                // Start fetches only for demand that isn't already covered
+                while (!sourceExhausted && !cancelled && inFlight.size() < maxInFlight
+                        && (long) inFlight.size() * source.itemsPerFetch() + ready.size() < requested.get()) {
+                    CompletableFuture<List<T>> fetch;
+                    try {
+                        fetch = source.fetchNext();
+                    } catch (RuntimeException e) {
+                        fail(e);
+                        return;
+                    }
+                    if (fetch == null) {
+                        sourceExhausted = true;
+                        break;
+                    }
+                    inFlight.add(fetch);
+                    fetch.whenComplete((items, error) -> drain());
+                    progress = true;
+                }
+
+                if (sourceExhausted && inFlight.isEmpty() && ready.isEmpty()) {
+                    terminated = true;
+                    subscriber.onComplete();
+                    return;
+                }
+            }
+        }
+
+        private void fail(Throwable error) {
+            terminate();
+            subscriber.onError(error);
+        }
+
+        private void terminate() {
+            terminated = true;
+            for (CompletableFuture<List<T>> fetch : inFlight) {
+                fetch.cancel(false);
+            }
+            inFlight.clear();
+            ready.clear();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package dev.advik.wattpad.internal;
+
+/**
+ * Lowercase hex encoding for digests used as file names and content hashes. Table-driven, so hashing a cache key
+ * costs one small char array rather than a formatter per byte.
+ */
+public final class Hex {
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private Hex() {
+    }
+
+    public static String encode(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            chars[2 * i] = DIGITS[b >>> 4];
+            chars[2 * i + 1] = DIGITS[b & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /** Decodes {@code hex}, which must have an even length. Accepts either case. */
+    public static byte[] decode(String hex) {
+        if ((hex.length() & 1) != 0) {
+            throw new IllegalArgumentException("Odd-length hex string: " + hex);
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (digit(hex, 2 * i) << 4 | digit(hex, 2 * i + 1));
+        }
+        return bytes;
+    }
+
+    private static int digit(String hex, int index) {
+        int digit = Character.digit(hex.charAt(index), 16);
+        if (digit < 0) {
+            throw new IllegalArgumentException("Invalid hex digit at " + index + ": " + hex);
+        }
+        return digit;
+    }
+}
@@ -0,0 +1,126 @@
+package dev.advik.wattpad.internal;
+
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.models.html.HTMLContent;
+import dev.advik.wattpad.models.html.HTMLStyle;
+import dev.advik.wattpad.models.html.HTMLWord;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns Wattpad part HTML into {@link HTMLContent} blocks. Pure CPU work with no I/O, so it can be
+ * run (and benchmarked) apart from fetching.
+ */
+public final class PartHtmlRenderer {
+
+    private PartHtmlRenderer() {} // Prevent instantiation
+
+    /** Renders the {@code p[data-p-id]} paragraphs of a parsed part into content blocks. */
+    public static List<HTMLContent> render(Document doc) {
+        Elements paragraphs = doc.select("p[data-p-id]"); // Select only paragraphs with Wattpad data-p-id
+
+        List<HTMLContent> contentStack = new ArrayList<>();
+
+        for (Element p : paragraphs) {
+            String paragraphId = p.attr("data-p-id");
+            // Check for images within the paragraph first
+            Elements images = p.select("img[src]"); // Find images with src attribute
+            if (!images.isEmpty()) {
+                for (Element img : images) {
+                    // Use abs:src to resolve relative URLs against the base URI provided to Jsoup.parse
+                    String imageUrl = img.attr("abs:src");
+                    if (imageUrl != null && !imageUrl.isEmpty()) {
+                        contentStack.add(new HTMLContent(imageUrl, paragraphId));
+                    }
+                }
+                // If the <p> tag ONLY contained images (or whitespace), don't process text.
+                // Jsoup's text() method correctly extracts text even around images if mixed.
+                // This check prevents adding empty text blocks if a <p> only has an <img>.
+                if (p.text().trim().isEmpty()) {
+                    continue; // Move to next paragraph if this one only contained image(s)
+                }
+            }
+
+            // Process text content within the paragraph
+            List<HTMLWord> words = new ArrayList<>();
+            processNodes(p.childNodes(), words); // Use a recursive helper
+
+            if (!words.isEmpty()) {
+                contentStack.add(new HTMLContent(words, paragraphId));
+            }
+        }
+
+        return contentStack;
+    }
+
+    /** Parses part HTML, streaming it when the body isn't already in memory. */
+    public static Document parse(RawBody body, String baseUri) {
+        try {
+            if (body.isInMemory()) {
+                return Jsoup.parse(body.asString(), baseUri);
+            }
+            try (InputStream in = body.openStream()) {
+                return Jsoup.parse(in, StandardCharsets.UTF_8.name(), baseUri);
+            }
+        } catch (IOException e) {
+            throw new WattpadException("Failed to read part text from " + baseUri, e);
+        }
+    }
+
+    // Helper to process text nodes recursively, handling styles
+    public static void processNodes(List<Node> nodes, List<HTMLWord> words) {
+        for (Node node : nodes) {
+            if (node instanceof TextNode) {
+                String text = ((TextNode) node).text(); // Don't trim yet, preserve spaces
+                if (!text.isEmpty()) {
+                    // Split text into words/tokens respecting spaces, add with GENERAL style
+                    for(String word : text.split("(?<=\\s)|(?=\\s+)")) { // Split keeping spaces
+                        if (!word.isEmpty()) words.add(new HTMLWord(word, HTMLStyle.GENERAL));
+                    }
+                }
+            } else if (node instanceof Element) {
+                Element element = (Element) node;
+                HTMLStyle style = HTMLStyle.GENERAL; // Default style for this element's children
+                String tagName = element.tagName().toLowerCase();
+
+                if (tagName.equals("b") || tagName.equals("strong")) {
+                    style = HTMLStyle.BOLD;
+                } else if (tagName.equals("i") || tagName.equals("em")) {
+                    style = HTMLStyle.ITALIC;
+                }
+                // Add other style checks if needed (e.g., 'u' for underline)
+
+                // Recursively process children, applying the determined style
+                processStyledNodes(element.childNodes(), words, style);
+            }
+        }
+    }
+
+    // Helper to apply style during recursive processing
+    private static void processStyledNodes(List<Node> nodes, List<HTMLWord> words, HTMLStyle style) {
+        for (Node node : nodes) {
+            if (node instanceof TextNode) {
+                String text = ((TextNode) node).text();
+                if (!text.isEmpty()) {
+                    for(String word : text.split("(?<=\\s)|(?=\\s+)")) {
+                        if (!word.isEmpty()) words.add(new HTMLWord(word, style)); // Apply parent style
+                    }
+                }
+            } else if (node instanceof Element) {
+                // Handle nested styling (e.g., bold inside italic) - recursively call main processor
+                // This allows nested elements to determine their own style overrides
+                processNodes(node.childNodes(), words);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package dev.advik.wattpad.internal;
+
+import dev.advik.wattpad.exceptions.WattpadException;
+import okhttp3.HttpUrl;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Iterates over the items of a paginated endpoint, fetching up to {@code prefetchDepth} pages ahead
+ * on a background executor while the current page is consumed.
+ * <p>
+ * Pages are chained: the next page is requested as soon as the previous one has been parsed (its
+ * next URL is only known then). With a depth of 0 pages are fetched on demand in the calling thread.
+ * Not thread-safe; meant to be consumed by one thread, e.g. through a sequential {@code Stream}.
+ */
+public final class PrefetchingPageIterator<T> implements Iterator<T>, AutoCloseable {
+
+    /** One page of results and the URL of the page after it (null on the last page). */
+    public static final class Page<T> {
+        private final List<T> items;
+        private final HttpUrl next;
+
+        public Page(List<T> items, HttpUrl next) {
+            this.items = items;
+            this.next = next;
+        }
+
+        public List<T> getItems() { return items; }
+        public HttpUrl getNext() { return next; }
+    }
+
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        Page<T> fetch(HttpUrl url) throws WattpadException;
+    }
+
+    private static final Page<?> END = new Page<>(Collections.emptyList(), null);
+
+    private final PageFetcher<T> fetcher;
+    private final Executor executor;
+    private final int prefetchDepth;
+    private final Deque<CompletableFuture<Page<T>>> pending = new ArrayDeque<>();
+    private CompletableFuture<Page<T>> tail; // Last scheduled page, the one the next fetch chains from
+    private Iterator<T> current = Collections.emptyIterator();
+    private volatile boolean closed = false;
+
+    public PrefetchingPageIterator(HttpUrl firstPage, PageFetcher<T> fetcher, Executor executor, int prefetchDepth) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("prefetchDepth must be >= 0");
+        }
+        this.fetcher = Objects.requireNonNull(fetcher, "fetcher cannot be null");
+        this.executor = Objects.requireNonNull(executor, "executor cannot be null");
+        this.prefetchDepth = prefetchDepth;
+        // The first page is always fetched lazily, on the first hasNext()
+        this.tail = CompletableFuture.completedFuture(new Page<>(Collections.emptyList(), firstPage));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed) {
+                return false;
+            }
+            if (pending.isEmpty()) {
+                schedule(false); // Nothing prefetched (depth 0, or we consumed faster than the network)
+            }
+            Page<T> page = await(pending.poll());
+            if (page == END || page.getItems().isEmpty()) {
+                closed = true; // An empty page also ends the stream, guards against endless next links
+                return false;
+            }
+            current = page.getItems().iterator();
+            fillPrefetch();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /** Stops prefetching. Pages already being downloaded finish, but nothing new is requested. */
+    @Override
+    public void close() {
+        closed = true;
+        for (CompletableFuture<Page<T>> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+    }
+
+    // --- Internals ---
+
+    private void fillPrefetch() {
+        while (pending.size() < prefetchDepth && !closed) {
+            schedule(true);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void schedule(boolean async) {
+        CompletableFuture<Page<T>> next;
+        if (async) {
+            next = tail.thenApplyAsync(previous -> {
+                if (closed || previous == END || previous.getNext() == null) {
+                    return (Page<T>) END;
+                }
+                return fetcher.fetch(previous.getNext());
+            }, executor);
+        } else {
+            Page<T> previous = await(tail);
+            next = CompletableFuture.completedFuture(
+                    previous == END || previous.getNext() == null ? (Page<T>) END : fetcher.fetch(previous.getNext()));
+        }
+        pending.add(next);
+        tail = next;
+    }
+
+    private Page<T> await(CompletableFuture<Page<T>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            closed = true;
+            Throwable cause = e.getCause();
+            if (cause instanceof WattpadException) {
+                throw (WattpadException) cause; // Surface API/network errors as-is
+            }
+            throw new WattpadException("Failed to fetch result page", cause);
+        } catch (CancellationException e) {
+            closed = true;
+            throw new WattpadException("Result page fetch was cancelled", e);
+        }
+    }
+}
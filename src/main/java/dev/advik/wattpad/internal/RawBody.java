@@ -0,0 +1,146 @@
+package dev.advik.wattpad.internal;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A fetched response body, either held in memory, backed by a file (a cache entry, or a temp file
+ * when caching is off) or by a memory-mapped cache entry. File-backed and mapped bodies are read as
+ * streams so parsers never need the whole payload as a {@code String}. Always UTF-8. Close to release temp files.
+ */
+public abstract class RawBody implements Closeable {
+
+    public static RawBody ofString(String value) {
+        return new StringBody(value);
+    }
+
+    /** @param deleteOnClose true for temp files that should go away once the body is consumed */
+    public static RawBody ofFile(Path file, boolean deleteOnClose) {
+        return new FileBody(file, deleteOnClose);
+    }
+
+    /**
+     * A body over a memory-mapped cache entry. Readers decode straight out of the mapping, so repeated
+     * reads are served from the OS page cache without copying the entry onto the heap first.
+     */
+    public static RawBody ofMapped(ByteBuffer mapped) {
+        return new MappedBody(mapped);
+    }
+
+    /** True if the body is already in memory, so {@link #asString()} is free. */
+    public abstract boolean isInMemory();
+
+    /** Body size in bytes (UTF-8). */
+    public abstract long length();
+
+    public abstract InputStream openStream() throws IOException;
+
+    public Reader openReader() throws IOException {
+        return new BufferedReader(new InputStreamReader(openStream(), StandardCharsets.UTF_8));
+    }
+
+    /** Reads the whole body into a String. Avoid on large file-backed bodies. */
+    public abstract String asString() throws IOException;
+
+    /** Up to {@code maxChars} characters from the start of the body, for error messages. */
+    public String preview(int maxChars) {
+        try (Reader reader = openReader()) {
+            char[] buffer = new char[maxChars];
+            int read = 0;
+            int n;
+            while (read < maxChars && (n = reader.read(buffer, read, maxChars - read)) != -1) {
+                read += n;
+            }
+            return new String(buffer, 0, read);
+        } catch (IOException e) {
+            return "<Response body not available: " + e.getMessage() + ">";
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release by default
+    }
+
+    private static final class StringBody extends RawBody {
+        private final String value;
+
+        StringBody(String value) {
+            this.value = value;
+        }
+
+        @Override public boolean isInMemory() { return true; }
+        @Override public long length() { return value.getBytes(StandardCharsets.UTF_8).length; }
+        @Override public InputStream openStream() { return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8)); }
+        @Override public Reader openReader() { return new StringReader(value); }
+        @Override public String asString() { return value; }
+    }
+
+    private static final class FileBody extends RawBody {
+        private final Path file;
+        private final boolean deleteOnClose;
+
+        FileBody(Path file, boolean deleteOnClose) {
+            this.file = file;
+            this.deleteOnClose = deleteOnClose;
+        }
+
+        @Override public boolean isInMemory() { return false; }
+
+        @Override
+        public long length() {
+            try {
+                return Files.size(file);
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+        }
+
+        @Override
+        public String asString() throws IOException {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+            if (deleteOnClose) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete temp body " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static final class MappedBody extends RawBody {
+        private final ByteBuffer mapped;
+
+        MappedBody(ByteBuffer mapped) {
+            this.mapped = mapped;
+        }
+
+        @Override public boolean isInMemory() { return false; } // Mapped, but not decoded yet
+        @Override public long length() { return mapped.remaining(); }
+        @Override public InputStream openStream() { return new ByteBufferInputStream(mapped); }
+
+        @Override
+        public Reader openReader() {
+            // InputStreamReader decodes through a small internal buffer, the mapping itself is never copied
+            return new InputStreamReader(new ByteBufferInputStream(mapped), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String asString() {
+            return StandardCharsets.UTF_8.decode(mapped.duplicate()).toString();
+        }
+    }
+}
\ No newline at end of file
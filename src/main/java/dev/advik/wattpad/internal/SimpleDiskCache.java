@@ -1,60 +1,187 @@
 package dev.advik.wattpad.internal;
 
+import dev.advik.wattpad.cache.FileBackedCache;
 import dev.advik.wattpad.exceptions.CacheInitializationException;
+import dev.advik.wattpad.jfr.CacheEvent;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * A very basic file-based disk cache. Not thread-safe for writes without external locking.
- * Keys are hashed to create filenames.
+ * A very basic file-based disk cache. Key hashing is thread-safe, and every write is published with an atomic rename,
+ * so readers (in any process) never see a partial entry. Keys are hashed to create filenames.
+ * <p>
+ * In shared mode, several processes may use the same directory: clearing and eviction take an exclusive
+ * {@link FileLock} on {@code cache.lock}, and reads and writes are recorded in a memory-mapped {@code access.stats}
+ * table that every process updates, so eviction sees host-wide recency.
+ * <p>
+ * New keys are appended to a {@code keys.log} journal, so a {@link CacheSnapshot} can tell which endpoint an entry
+ * came from even though files are named by hash. Entries put with a TTL get a {@code .expires} sidecar holding
+ * their expiry time; they are deleted by the first read after it.
  * Consider using a robust library like Ehcache or OkHttp's built-in cache for production.
  */
-public class SimpleDiskCache {
+public class SimpleDiskCache implements FileBackedCache {
+
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024; // Max bytes held in memory while streaming an entry
+
+    private static final int MAX_MAPPED_ENTRIES = 64; // Mappings kept open for hot entries
+
+    private static final int ACCESS_STATS_SLOTS = 1 << 16;
+    private static final int EVICTION_CHECK_INTERVAL = 64; // Writes between size checks when a max size is set
+    private static final long STALE_TEMP_MILLIS = 60 * 60 * 1000L; // Temp files older than this were left by a crash
+
+    // FileLock is per process, so threads (and caches) in this JVM sharing a directory also queue on one lock here
+    private static final Map<Path, ReentrantLock> DIRECTORY_LOCKS = new ConcurrentHashMap<>();
 
     private final Path cacheDir;
-    private final MessageDigest md5Digest; // For hashing keys to filenames
+    private final boolean shared;
+    private final ReentrantLock directoryLock;
+    private final FileChannel lockChannel;   // Null unless shared
+    private final CacheAccessStats accessStats; // Null unless shared
+    private volatile long maxSizeBytes = 0;  // 0 = unbounded
+    private final AtomicInteger writesSinceEvictionCheck = new AtomicInteger();
+    private final Path keyJournal;
+    private volatile boolean hasExpiringEntries; // Until an entry gets a TTL, reads skip the sidecar check
+    private FileChannel keyJournalChannel; // Opened on first write, guarded by keyJournal
+
+    // A mapping stays valid only while the file it was created from is still the published entry
+    private static final class MappedEntry {
+        final Object fileKey; // Inode where available, so a replaced entry isn't mistaken for the old one
+        final long size;
+        final long lastModified;
+        final MappedByteBuffer buffer;
+
+        MappedEntry(BasicFileAttributes attributes, MappedByteBuffer buffer) {
+            this.fileKey = attributes.fileKey();
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.buffer = buffer;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && lastModified == attributes.lastModifiedTime().toMillis()
+                    && Objects.equals(fileKey, attributes.fileKey());
+        }
+    }
+
+    // Access-ordered LRU of open mappings, guarded by itself
+    private final Map<Path, MappedEntry> mappedEntries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, MappedEntry> eldest) {
+            return size() > MAX_MAPPED_ENTRIES;
+        }
+    };
+    // MessageDigest isn't thread-safe, keep one per thread for hashing keys to filenames
+    private static final ThreadLocal<MessageDigest> MD5_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Checked for in the constructor
+        }
+    });
 
     public SimpleDiskCache(String cacheDirectoryPath) {
+        this(cacheDirectoryPath, false);
+    }
+
+    /** @param shared whether other processes may use the same directory at the same time */
+    public SimpleDiskCache(String cacheDirectoryPath, boolean shared) {
         this.cacheDir = Paths.get(cacheDirectoryPath);
+        this.shared = shared;
         try {
             Files.createDirectories(cacheDir);
-            this.md5Digest = MessageDigest.getInstance("MD5");
+            MessageDigest.getInstance("MD5");
         } catch (IOException e) {
             throw new CacheInitializationException("Failed to create cache directory: " + cacheDir, e);
         } catch (NoSuchAlgorithmException e) {
             // MD5 should always be available
             throw new CacheInitializationException("MD5 algorithm not found", e);
         }
+        this.keyJournal = cacheDir.resolve("keys.log");
+        this.directoryLock = DIRECTORY_LOCKS.computeIfAbsent(cacheDir.toAbsolutePath().normalize(), dir -> new ReentrantLock());
+        if (shared) {
+            try {
+                this.lockChannel = FileChannel.open(cacheDir.resolve("cache.lock"),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                this.accessStats = new CacheAccessStats(cacheDir.resolve("access.stats"), ACCESS_STATS_SLOTS);
+            } catch (IOException e) {
+                throw new CacheInitializationException("Failed to open shared cache files in " + cacheDir, e);
+            }
+        } else {
+            this.hasExpiringEntries = containsExpiringEntries();
+            this.lockChannel = null;
+            this.accessStats = null;
+        }
+        deleteStaleTempFiles(); // put and putStream write through temp files in both modes
     }
 
-    private String hashKey(String key) {
-        byte[] digest = md5Digest.digest(key.getBytes(StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder();
-        for (byte b : digest) {
-            sb.append(String.format("%02x", b));
+    /**
+     * Caps the total size of cached entries. Every {@value #EVICTION_CHECK_INTERVAL} writes, least recently used
+     * entries are evicted until the cache fits again. 0 (the default) means unbounded.
+     */
+    public void setMaxSize(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("max cache size must be >= 0");
         }
-        return sb.toString();
+        this.maxSizeBytes = bytes;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    String hashKey(String key) { // Package-private for benchmarks
+        return Hex.encode(MD5_DIGEST.get().digest(key.getBytes(StandardCharsets.UTF_8)));
     }
 
     private Path getCacheFilePath(String key) {
         return cacheDir.resolve(hashKey(key) + ".cache");
     }
 
+    @Override
     public String get(String key) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        String value = null;
+        try {
+            value = read(key);
+            return value;
+        } finally {
+            commit(event, "get", key, value != null, value != null ? value.length() : 0);
+        }
+    }
+
+    private String read(String key) {
         Path cacheFile = getCacheFilePath(key);
-        if (Files.exists(cacheFile)) {
+        if (Files.exists(cacheFile) && !expired(cacheFile)) {
             try {
-                // Basic check: read last modified time if needed for expiry
-                // long lastModified = Files.getLastModifiedTime(cacheFile).toMillis();
-                // if (System.currentTimeMillis() - lastModified > EXPIRY_TIME) {
-                //    Files.deleteIfExists(cacheFile);
-                //    return null;
-                // }
-                return Files.readString(cacheFile, StandardCharsets.UTF_8);
+                String value = Files.readString(cacheFile, StandardCharsets.UTF_8);
+                recordRead(cacheFile);
+                return value;
+            } catch (NoSuchFileException e) {
+                return null; // Evicted or cleared (possibly by another process) since the exists check
             } catch (IOException e) {
                 System.err.println("Cache read error for key " + key + ": " + e.getMessage());
                 // Optionally delete corrupted file
@@ -65,31 +192,270 @@ public class SimpleDiskCache {
         return null;
     }
 
+    // Records a JFR event for an operation if it ran past the event threshold; near free otherwise
+    private static void commit(CacheEvent event, String operation, String key, boolean hit, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.key = key;
+            event.hit = hit;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    @Override
     public void put(String key, String value) {
-        Path cacheFile = getCacheFilePath(key);
+        put(key, value, null);
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        String hash = hashKey(key);
+        Path cacheFile = cacheDir.resolve(hash + ".cache");
+        Path tempFile = null;
         try {
-            // Simple write - potentially implement temp file + rename for atomicity
-            Files.writeString(cacheFile, value, StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            // Write aside and rename over the entry, so concurrent readers see the old or the new value, never a mix
+            tempFile = Files.createTempFile(cacheDir, hash, ".tmp");
+            Files.writeString(tempFile, value, StandardCharsets.UTF_8);
+            writeExpiry(hash, ttl);
+            boolean existed = Files.exists(cacheFile);
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forgetMapping(cacheFile);
+            if (!existed) {
+                journalKey(key);
+            }
+            recordWrite(hash, cacheFile);
         } catch (IOException e) {
             System.err.println("Cache write error for key " + key + ": " + e.getMessage());
             // Don't let cache errors stop the main flow usually
+            if (tempFile != null) {
+                try { Files.deleteIfExists(tempFile); } catch (IOException ignored) {}
+            }
+        } finally {
+            commit(event, "put", key, false, value.length());
         }
     }
 
-    public boolean remove(String key) {
+    /**
+     * Returns a read-only, memory-mapped view of the entry for {@code key}, or null if there is none.
+     * Mappings of hot entries are reused across calls until the entry is replaced or removed, so repeated
+     * reads cost no heap copy at all. Note that on Windows a mapped entry can't be deleted until it is unmapped by GC.
+     */
+    @Override
+    public ByteBuffer getMapped(String key) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        ByteBuffer mapped = null;
+        try {
+            mapped = map(key);
+            return mapped;
+        } finally {
+            commit(event, "getMapped", key, mapped != null, mapped != null ? mapped.remaining() : 0);
+        }
+    }
+
+    private ByteBuffer map(String key) {
+        Path cacheFile = getCacheFilePath(key);
+        try {
+            if (expired(cacheFile)) {
+                return null;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(cacheFile, BasicFileAttributes.class);
+            synchronized (mappedEntries) {
+                MappedEntry entry = mappedEntries.get(cacheFile);
+                if (entry != null && entry.matches(attributes)) {
+                    recordRead(cacheFile);
+                    return entry.buffer.asReadOnlyBuffer();
+                }
+            }
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays valid after close
+            }
+            synchronized (mappedEntries) {
+                mappedEntries.put(cacheFile, new MappedEntry(attributes, buffer));
+            }
+            recordRead(cacheFile);
+            return buffer.asReadOnlyBuffer();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Cache map error for key " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void forgetMapping(Path cacheFile) {
+        synchronized (mappedEntries) {
+            mappedEntries.remove(cacheFile);
+        }
+    }
+
+    /** Returns the file holding the entry for {@code key}, or null if there is none. */
+    @Override
+    public Path getPath(String key) {
+        Path cacheFile = peekPath(key);
+        if (cacheFile != null) {
+            recordRead(cacheFile);
+        }
+        return cacheFile;
+    }
+
+    @Override
+    public Path peekPath(String key) {
+        Path cacheFile = getCacheFilePath(key);
+        return Files.exists(cacheFile) && !expired(cacheFile) ? cacheFile : null;
+    }
+
+    /**
+     * Streams an entry straight from {@code source} into the cache, {@value #STREAM_CHUNK_SIZE} bytes at a time.
+     * The data goes to a temp file first and is published with an atomic rename, so readers never see a partial entry.
+     *
+     * @return the published cache file
+     * @throws IOException if reading the source or writing the file fails; nothing is published then
+     */
+    public Path putStream(String key, ReadableByteChannel source) throws IOException {
+        return putStream(key, source, null);
+    }
+
+    @Override
+    public Path putStream(String key, ReadableByteChannel source, Duration ttl) throws IOException {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        long written = 0;
         Path cacheFile = getCacheFilePath(key);
+        Path tempFile = Files.createTempFile(cacheDir, hashKey(key), ".tmp");
         try {
-            return Files.deleteIfExists(cacheFile);
+            written = copy(source, tempFile);
+            writeExpiry(hashKey(key), ttl);
+            boolean existed = Files.exists(cacheFile);
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forgetMapping(cacheFile);
+            if (!existed) {
+                journalKey(key);
+            }
+            recordWrite(hashKey(key), cacheFile);
+            return cacheFile;
+        } catch (IOException | RuntimeException e) {
+            try { Files.deleteIfExists(tempFile); } catch (IOException ignored) {}
+            throw e;
+        } finally {
+            commit(event, "putStream", key, false, written);
+        }
+    }
+
+    /** Copies a channel into a file using a single bounded buffer. Also used for uncached temp bodies. */
+    public static long copy(ReadableByteChannel source, Path target) throws IOException {
+        long written = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(STREAM_CHUNK_SIZE);
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        String hash = hashKey(key);
+        Path cacheFile = cacheDir.resolve(hash + ".cache");
+        forgetMapping(cacheFile);
+        boolean removed = false;
+        try {
+            removed = Files.deleteIfExists(cacheFile);
+            Files.deleteIfExists(expiryFile(cacheFile));
+            if (accessStats != null) {
+                accessStats.forget(statsKey(hash));
+            }
+            return removed;
         } catch (IOException e) {
             System.err.println("Cache remove error for key " + key + ": " + e.getMessage());
             return false;
+        } finally {
+            commit(event, "remove", key, removed, 0);
         }
     }
 
 
+    @Override
     public void clear() {
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, "*.cache")) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        try {
+            withExclusiveLock(() -> {
+                clearEntries();
+                truncateKeyJournal();
+                if (accessStats != null) {
+                    accessStats.clear();
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error locking cache directory " + cacheDir + " for clear: " + e.getMessage());
+        } finally {
+            commit(event, "clear", null, false, 0);
+        }
+    }
+
+    /**
+     * Releases the key journal, and in shared mode the directory lock file and {@code access.stats}. Waits for
+     * maintenance in progress in this JVM. The cache must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        directoryLock.lock();
+        try {
+            synchronized (keyJournal) {
+                if (keyJournalChannel != null) {
+                    try {
+                        keyJournalChannel.close();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                    keyJournalChannel = null;
+                }
+            }
+            synchronized (mappedEntries) {
+                mappedEntries.clear(); // Unmapped once collected
+            }
+            if (accessStats != null) {
+                try {
+                    accessStats.close();
+                } catch (IOException e) {
+                    failure = failure != null ? failure : e;
+                }
+            }
+            if (lockChannel != null) {
+                try {
+                    lockChannel.close(); // Releases any FileLock still held through it
+                } catch (IOException e) {
+                    failure = failure != null ? failure : e;
+                }
+            }
+        } finally {
+            directoryLock.unlock();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void clearEntries() {
+        synchronized (mappedEntries) {
+            mappedEntries.clear();
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, "*.{cache,expires}")) {
             for (Path entry : stream) {
                 try {
                     Files.delete(entry);
@@ -101,4 +467,368 @@ public class SimpleDiskCache {
             System.err.println("Error clearing cache directory " + cacheDir + ": " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // --- Expiry ---
+
+    private static Path expiryFile(Path cacheFile) {
+        String name = cacheFile.getFileName().toString();
+        return cacheFile.resolveSibling(name.substring(0, name.length() - ".cache".length()) + ".expires");
+    }
+
+    private boolean containsExpiringEntries() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, "*.expires")) {
+            return stream.iterator().hasNext();
+        } catch (IOException e) {
+            return true; // Can't tell, so check on every read
+        }
+    }
+
+    private void writeExpiry(String hash, Duration ttl) throws IOException {
+        writeExpiryAt(hash, ttl != null ? System.currentTimeMillis() + ttl.toMillis() : 0L);
+    }
+
+    // Written before the entry is published, so a TTL'd value is never briefly visible without one. 0 = no TTL
+    private void writeExpiryAt(String hash, long expiresAtMillis) throws IOException {
+        Path expiryFile = cacheDir.resolve(hash + ".expires");
+        if (expiresAtMillis == 0L) {
+            if (shared || hasExpiringEntries) {
+                Files.deleteIfExists(expiryFile);
+            }
+            return;
+        }
+        hasExpiringEntries = true;
+        Path tempFile = Files.createTempFile(cacheDir, hash, ".tmp");
+        try {
+            Files.writeString(tempFile, Long.toString(expiresAtMillis));
+            Files.move(tempFile, expiryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try { Files.deleteIfExists(tempFile); } catch (IOException ignored) {}
+            throw e;
+        }
+    }
+
+    /** Absolute expiry time of the entry in epoch millis, or 0 if it has no TTL. */
+    long expiresAtMillis(Path cacheFile) {
+        if (!shared && !hasExpiringEntries) {
+            return 0L; // Another process can only have added a TTL in shared mode
+        }
+        Path expiryFile = expiryFile(cacheFile);
+        if (!Files.exists(expiryFile)) {
+            return 0L; // The usual case; cheaper than a read that throws
+        }
+        try {
+            return Long.parseLong(Files.readString(expiryFile).trim());
+        } catch (NoSuchFileException e) {
+            return 0L; // Removed since the check
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Cache expiry read error for " + cacheFile + ": " + e.getMessage());
+            return 0L;
+        }
+    }
+
+    /** Whether the entry's TTL has passed. Expired entries are deleted on the spot. */
+    boolean expired(Path cacheFile) {
+        long expiresAt = expiresAtMillis(cacheFile);
+        if (expiresAt == 0L || System.currentTimeMillis() < expiresAt) {
+            return false;
+        }
+        Path expiryFile = expiryFile(cacheFile);
+        forgetMapping(cacheFile);
+        try {
+            Files.deleteIfExists(cacheFile);
+            Files.deleteIfExists(expiryFile);
+        } catch (IOException e) {
+            System.err.println("Error deleting expired cache file " + cacheFile + ": " + e.getMessage());
+        }
+        if (accessStats != null) {
+            accessStats.forget(statsKey(cacheFile));
+        }
+        return true;
+    }
+
+    // --- Key journal and snapshots ---
+
+    // One key per line. Appends are single O_APPEND writes, so lines from several processes don't interleave
+    private void journalKey(String key) {
+        if (key.indexOf('\n') >= 0) {
+            return; // Can't be journaled; the entry is still exported, just without a known family
+        }
+        ByteBuffer line = ByteBuffer.wrap((key + "\n").getBytes(StandardCharsets.UTF_8));
+        synchronized (keyJournal) {
+            try {
+                if (keyJournalChannel == null) {
+                    keyJournalChannel = FileChannel.open(keyJournal,
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                while (line.hasRemaining()) {
+                    keyJournalChannel.write(line);
+                }
+            } catch (IOException e) {
+                System.err.println("Cache key journal write error in " + cacheDir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void truncateKeyJournal() throws IOException {
+        synchronized (keyJournal) {
+            if (keyJournalChannel != null) {
+                keyJournalChannel.close();
+                keyJournalChannel = null;
+            }
+            Files.deleteIfExists(keyJournal);
+        }
+    }
+
+    /**
+     * Reads the key journal into a map from entry hash to key. The journal may name entries that were evicted
+     * since, and entries written before it existed are missing from it.
+     */
+    Map<String, String> readKeyJournal() throws IOException {
+        Map<String, String> keys = new HashMap<>();
+        if (!Files.exists(keyJournal)) {
+            return keys;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(keyJournal, StandardCharsets.UTF_8)) {
+            String key;
+            while ((key = reader.readLine()) != null) {
+                if (!key.isEmpty()) {
+                    keys.put(hashKey(key), key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    Path directory() {
+        return cacheDir;
+    }
+
+    /** When an entry was last written or, in shared mode, read by any process. */
+    long lastAccessMillis(Path cacheFile, BasicFileAttributes attributes) {
+        long lastAccess = attributes.lastModifiedTime().toMillis();
+        if (accessStats != null) {
+            CacheAccessStats.Entry stats = accessStats.get(statsKey(cacheFile));
+            if (stats != null && stats.lastAccessMillis > lastAccess) {
+                lastAccess = stats.lastAccessMillis;
+            }
+        }
+        return lastAccess;
+    }
+
+    /**
+     * Publishes an entry copied from a snapshot. {@code hash} names the file directly, so entries whose key is
+     * unknown can be restored too. An existing entry is only replaced if the imported copy is newer, and entries
+     * that expired since the snapshot was taken are skipped.
+     *
+     * @param expiresAtMillis absolute expiry time in epoch millis, or 0 for none
+     * @return whether the entry was written
+     */
+    boolean importEntry(String hash, String key, InputStream content, long size, long lastModifiedMillis,
+                        long expiresAtMillis) throws IOException {
+        Path cacheFile = cacheDir.resolve(hash + ".cache");
+        boolean existed = Files.exists(cacheFile);
+        if ((expiresAtMillis != 0L && expiresAtMillis <= System.currentTimeMillis())
+                || (existed && Files.getLastModifiedTime(cacheFile).toMillis() >= lastModifiedMillis)) {
+            long remaining = size;
+            while (remaining > 0) {
+                long skipped = content.skip(remaining);
+                if (skipped <= 0) {
+                    if (content.read() < 0) {
+                        throw new EOFException("Snapshot entry " + hash + " is truncated");
+                    }
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+            return false;
+        }
+        Path tempFile = Files.createTempFile(cacheDir, hash, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                long remaining = size;
+                byte[] buffer = new byte[STREAM_CHUNK_SIZE];
+                while (remaining > 0) {
+                    int read = content.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new EOFException("Snapshot entry " + hash + " is truncated");
+                    }
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+            Files.setLastModifiedTime(tempFile, FileTime.fromMillis(lastModifiedMillis)); // Keep recency for eviction
+            writeExpiryAt(hash, expiresAtMillis);
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try { Files.deleteIfExists(tempFile); } catch (IOException ignored) {}
+            throw e;
+        }
+        forgetMapping(cacheFile);
+        if (!existed && key != null) {
+            journalKey(key);
+        }
+        recordWrite(hash, cacheFile);
+        return true;
+    }
+
+    // --- Cross-process coordination and eviction ---
+
+    private interface LockedAction {
+        void run() throws IOException;
+    }
+
+    // Serializes maintenance across this JVM (ReentrantLock) and, in shared mode, across processes (FileLock)
+    private void withExclusiveLock(LockedAction action) throws IOException {
+        directoryLock.lock();
+        try {
+            if (lockChannel == null) {
+                action.run();
+                return;
+            }
+            try (FileLock ignored = lockChannel.lock()) {
+                action.run();
+            }
+        } finally {
+            directoryLock.unlock();
+        }
+    }
+
+    // Like withExclusiveLock, but gives up immediately if another thread or process is already doing maintenance
+    private boolean tryWithExclusiveLock(LockedAction action) throws IOException {
+        if (!directoryLock.tryLock()) {
+            return false;
+        }
+        try {
+            if (lockChannel == null) {
+                action.run();
+                return true;
+            }
+            try (FileLock lock = lockChannel.tryLock()) {
+                if (lock == null) {
+                    return false;
+                }
+                action.run();
+                return true;
+            }
+        } finally {
+            directoryLock.unlock();
+        }
+    }
+
+    private void recordRead(Path cacheFile) {
+        if (accessStats != null) {
+            accessStats.record(statsKey(cacheFile), -1, true);
+        }
+    }
+
+    private void recordWrite(String hash, Path cacheFile) {
+        if (accessStats != null) {
+            accessStats.record(statsKey(hash), sizeOrZero(cacheFile), false);
+        }
+        if (maxSizeBytes > 0 && writesSinceEvictionCheck.incrementAndGet() >= EVICTION_CHECK_INTERVAL) {
+            writesSinceEvictionCheck.set(0);
+            try {
+                tryWithExclusiveLock(() -> evictLocked(maxSizeBytes));
+            } catch (IOException e) {
+                System.err.println("Cache eviction error in " + cacheDir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Deletes least recently used entries until the cache holds at most {@code maxBytes}.
+     * Recency comes from the shared access stats in shared mode, and from file modification times otherwise.
+     *
+     * @return the number of bytes freed
+     */
+    public long evict(long maxBytes) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        long[] freed = {0};
+        try {
+            withExclusiveLock(() -> freed[0] = evictLocked(maxBytes));
+        } catch (IOException e) {
+            System.err.println("Cache eviction error in " + cacheDir + ": " + e.getMessage());
+        } finally {
+            commit(event, "evict", null, false, freed[0]);
+        }
+        return freed[0];
+    }
+
+    private long evictLocked(long maxBytes) throws IOException {
+        List<Object[]> entries = new ArrayList<>(); // {path, size, lastAccess}
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, "*.cache")) {
+            for (Path entry : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue; // Removed while listing
+                }
+                long lastAccess = lastAccessMillis(entry, attributes);
+                entries.add(new Object[]{entry, attributes.size(), lastAccess});
+                total += attributes.size();
+            }
+        }
+        if (total <= maxBytes) {
+            return 0;
+        }
+        entries.sort(Comparator.comparingLong(entry -> (long) entry[2]));
+        long freed = 0;
+        for (Object[] entry : entries) {
+            if (total - freed <= maxBytes) {
+                break;
+            }
+            Path file = (Path) entry[0];
+            forgetMapping(file);
+            if (Files.deleteIfExists(file)) {
+                Files.deleteIfExists(expiryFile(file));
+                freed += (long) entry[1];
+                if (accessStats != null) {
+                    accessStats.forget(statsKey(file));
+                }
+            }
+        }
+        return freed;
+    }
+
+    // Temp files are normally renamed within milliseconds; old ones were left behind by a crashed writer
+    private void deleteStaleTempFiles() {
+        try {
+            tryWithExclusiveLock(() -> {
+                long cutoff = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, "*.tmp")) {
+                    for (Path temp : stream) {
+                        try {
+                            if (Files.getLastModifiedTime(temp).toMillis() < cutoff) {
+                                Files.deleteIfExists(temp);
+                            }
+                        } catch (IOException ignored) {
+                            // Renamed or removed meanwhile
+                        }
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error cleaning temp files in " + cacheDir + ": " + e.getMessage());
+        }
+    }
+
+    // The stats table is keyed by the first 64 bits of the MD5 that also names the entry's file
+    private static long statsKey(String hash) {
+        return Long.parseUnsignedLong(hash.substring(0, 16), 16);
+    }
+
+    private static long statsKey(Path cacheFile) {
+        return statsKey(cacheFile.getFileName().toString());
+    }
+
+    private static long sizeOrZero(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
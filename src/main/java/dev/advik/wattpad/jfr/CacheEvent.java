@@ -0,0 +1,33 @@
+package dev.advik.wattpad.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** One {@code SimpleDiskCache} operation. Committed only when slower than the threshold (5 ms by default). */
+@Name("dev.advik.wattpad.Cache")
+@Label("Wattpad Cache Operation")
+@Category({"Wattpad", "Cache"})
+@Description("A read, write, mapping or removal in the Wattpad disk cache")
+@Threshold("5 ms")
+@StackTrace(false)
+public final class CacheEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    @Description("get, put, putStream, getMapped, remove or clear")
+    public String operation;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Hit")
+    @Description("For reads, whether the entry existed")
+    public boolean hit;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
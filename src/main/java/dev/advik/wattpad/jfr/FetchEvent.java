@@ -0,0 +1,49 @@
+package dev.advik.wattpad.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One {@code WattpadClient.fetchRaw} call, whether served from the cache or the network.
+ * Only calls slower than the threshold (20 ms unless overridden in the recording settings) are committed.
+ */
+@Name("dev.advik.wattpad.Fetch")
+@Label("Wattpad Fetch")
+@Category({"Wattpad", "Network"})
+@Description("A response body fetched by WattpadClient, from the disk cache or the network")
+@Threshold("20 ms")
+@StackTrace(false)
+public final class FetchEvent extends jdk.jfr.Event {
+    @Label("URL")
+    public String url;
+
+    @Label("Endpoint Family")
+    public String family;
+
+    @Label("Cache Policy")
+    public String cachePolicy;
+
+    @Label("Cache Hit")
+    public boolean cacheHit;
+
+    @Label("Status")
+    @Description("HTTP status code, 0 for cache hits and failed calls")
+    public int status;
+
+    @Label("Body Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Forwarded To")
+    @Description("Cluster node that fetched the body for this one, null if fetched here")
+    public String forwardedTo;
+
+    @Label("Streamed")
+    @Description("Whether the body was streamed to disk instead of held in memory")
+    public boolean streamed;
+}
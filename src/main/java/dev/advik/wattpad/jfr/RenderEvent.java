@@ -0,0 +1,36 @@
+package dev.advik.wattpad.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * One {@code WattpadClient.renderPart} call, fetch included. Committed only when slower than the threshold
+ * (50 ms by default).
+ */
+@Name("dev.advik.wattpad.Render")
+@Label("Wattpad Render Part")
+@Category({"Wattpad", "Render"})
+@Description("A story part fetched, parsed with Jsoup and walked into HTMLContent blocks")
+@Threshold("50 ms")
+@StackTrace(false)
+public final class RenderEvent extends jdk.jfr.Event {
+    @Label("Part Id")
+    public long partId;
+
+    @Label("Paragraphs")
+    @Description("Number of rendered content blocks")
+    public int paragraphCount;
+
+    @Label("Words")
+    public int wordCount;
+
+    @Label("Parse Duration")
+    @Description("Time spent in the Jsoup parse and the processNodes walk, excluding the fetch")
+    @Timespan(Timespan.NANOSECONDS)
+    public long parseDuration;
+}
@@ -0,0 +1,166 @@
+package dev.advik.wattpad.metrics;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-phase latency histograms for one client, broken down by {@link EndpointFamily}.
+ * Network phases are fed by {@link #eventListenerFactory()}; the client times cache lookups and parsing itself.
+ * All histograms are allocated up front, so recording a sample never allocates or locks.
+ */
+public final class ClientMetrics implements ClientMetricsMXBean {
+    private final Map<EndpointFamily, Map<Phase, LatencyHistogram>> histograms = new EnumMap<>(EndpointFamily.class);
+    private final LongAdder bytesRead = new LongAdder();
+
+    public ClientMetrics() {
+        for (EndpointFamily family : EndpointFamily.values()) {
+            Map<Phase, LatencyHistogram> byPhase = new EnumMap<>(Phase.class);
+            for (Phase phase : Phase.values()) {
+                byPhase.put(phase, new LatencyHistogram());
+            }
+            histograms.put(family, byPhase);
+        }
+    }
+
+    public void record(EndpointFamily family, Phase phase, long nanos) {
+        histograms.get(family).get(phase).record(nanos);
+    }
+
+    public LatencyHistogram histogram(EndpointFamily family, Phase phase) {
+        return histograms.get(family).get(phase);
+    }
+
+    @Override
+    public List<PhaseStats> getPhaseStats() {
+        List<PhaseStats> stats = new ArrayList<>();
+        histograms.forEach((family, byPhase) -> byPhase.forEach((phase, histogram) -> {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.getCount() > 0) {
+                stats.add(new PhaseStats(family, phase, snapshot));
+            }
+        }));
+        return stats;
+    }
+
+    /** Response body bytes read from the network (cache hits excluded). */
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public void reset() {
+        histograms.values().forEach(byPhase -> byPhase.values().forEach(LatencyHistogram::reset));
+        bytesRead.reset();
+    }
+
+    /** Registers this instance with the platform MBean server as {@code dev.advik.wattpad:type=ClientMetrics,name=<name>}. */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("dev.advik.wattpad:type=ClientMetrics,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics MBean '" + name + "'", e);
+        }
+    }
+
+    // --- Network phases ---
+
+    /** Factory for OkHttp listeners that time DNS, connect, TLS, time to first byte and body reads per call. */
+    public EventListener.Factory eventListenerFactory() {
+        return call -> new PhaseListener(EndpointFamily.of(call.request().url()));
+    }
+
+    private final class PhaseListener extends EventListener {
+        private final EndpointFamily family;
+        // Calls are driven by one thread at a time, so plain fields are enough
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestStart;
+        private long bodyStart;
+
+        PhaseListener(EndpointFamily family) {
+            this.family = family;
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+            record(family, Phase.DNS, System.nanoTime() - dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+            record(family, Phase.CONNECT, System.nanoTime() - connectStart);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol, IOException ioe) {
+            record(family, Phase.CONNECT, System.nanoTime() - connectStart);
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            record(family, Phase.TLS, System.nanoTime() - secureConnectStart);
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            if (requestStart != 0) {
+                record(family, Phase.TIME_TO_FIRST_BYTE, System.nanoTime() - requestStart);
+            }
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            bodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            if (bodyStart != 0) {
+                record(family, Phase.BODY_READ, System.nanoTime() - bodyStart);
+            }
+            bytesRead.add(byteCount);
+        }
+    }
+}
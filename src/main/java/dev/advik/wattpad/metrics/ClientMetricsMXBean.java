@@ -0,0 +1,13 @@
+package dev.advik.wattpad.metrics;
+
+import java.util.List;
+
+/** JMX view of {@link ClientMetrics}. Register with {@link ClientMetrics#registerMBean(String)}. */
+public interface ClientMetricsMXBean {
+    /** One entry per (endpoint family, phase) that has recorded at least one sample. */
+    List<PhaseStats> getPhaseStats();
+
+    long getBytesRead();
+
+    void reset();
+}
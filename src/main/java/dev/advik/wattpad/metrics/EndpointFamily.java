@@ -0,0 +1,41 @@
+package dev.advik.wattpad.metrics;
+
+import okhttp3.HttpUrl;
+
+import java.util.List;
+
+/** Groups URLs by the API they hit, so metrics for cheap metadata calls and big chapter downloads stay apart. */
+public enum EndpointFamily {
+    STORY,       // api/v3/stories/{id}
+    PART,        // api/v4/parts/{id}
+    STORY_TEXT,  // apiv2/?m=storytext
+    SEARCH,      // v4/search/...
+    BROWSE,      // v5/browse/...
+    OTHER;
+
+    public static EndpointFamily of(HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        if (segments.isEmpty()) {
+            return OTHER;
+        }
+        String first = segments.get(0);
+        if (first.equals("apiv2")) {
+            return STORY_TEXT;
+        }
+        if (segments.contains("search")) {
+            return SEARCH;
+        }
+        if (segments.contains("browse")) {
+            return BROWSE;
+        }
+        if (first.equals("api") && segments.size() > 2) {
+            if (segments.get(2).equals("stories")) {
+                return STORY;
+            }
+            if (segments.get(2).equals("parts")) {
+                return PART;
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,14 @@
+package dev.advik.wattpad.metrics;
+
+/** A timed step of a client call. Network phases come from OkHttp events, the rest from the client itself. */
+public enum Phase {
+    DNS,
+    CONNECT,             // TCP connect, including TLS when present
+    TLS,
+    TIME_TO_FIRST_BYTE,  // Request headers sent until response headers start
+    BODY_READ,           // Response body start until fully read
+    CACHE_LOOKUP,        // Disk cache probe and read, hits and misses alike
+    JSON_PARSE,
+    HTML_PARSE,          // Jsoup parse of a part's text
+    PROCESS_NODES        // Walk of the parsed part into HTMLContent blocks
+}
@@ -0,0 +1,39 @@
+package dev.advik.wattpad.metrics;
+
+/** Summary of one (endpoint family, phase) histogram, in milliseconds. Exposed as CompositeData over JMX. */
+public final class PhaseStats {
+    private final String family;
+    private final String phase;
+    private final long count;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+
+    PhaseStats(EndpointFamily family, Phase phase, LatencyHistogram.Snapshot snapshot) {
+        this.family = family.name();
+        this.phase = phase.name();
+        this.count = snapshot.getCount();
+        this.meanMillis = snapshot.getMeanNanos() / 1e6;
+        this.p50Millis = snapshot.percentileNanos(50) / 1e6;
+        this.p99Millis = snapshot.percentileNanos(99) / 1e6;
+        this.p999Millis = snapshot.percentileNanos(99.9) / 1e6;
+        this.maxMillis = snapshot.getMaxNanos() / 1e6;
+    }
+
+    public String getFamily() { return family; }
+    public String getPhase() { return phase; }
+    public long getCount() { return count; }
+    public double getMeanMillis() { return meanMillis; }
+    public double getP50Millis() { return p50Millis; }
+    public double getP99Millis() { return p99Millis; }
+    public double getP999Millis() { return p999Millis; }
+    public double getMaxMillis() { return maxMillis; }
+
+    @Override
+    public String toString() {
+        return String.format("%s/%s n=%d mean=%.2fms p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+                family, phase, count, meanMillis, p50Millis, p99Millis, p999Millis, maxMillis);
+    }
+}
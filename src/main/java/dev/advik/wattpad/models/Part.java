@@ -2,9 +2,12 @@ package dev.advik.wattpad.models;
 
 
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.annotations.SerializedName;
+import java.time.LocalDateTime;
 import java.util.Objects;
 import dev.advik.wattpad.WattpadClient; // Forward reference
+import dev.advik.wattpad.adapters.FlexibleLocalDateTimeAdapter;
 import dev.advik.wattpad.exceptions.WattpadException;
 
 
@@ -13,6 +16,8 @@ public final class Part {
     private final String title;
     @SerializedName("text_url") // Map the nested structure
     private final TextUrl textUrlInfo;
+    private final LocalDateTime modifyDate; // Only present when requested in the fields projection
+    private final int length;               // Text length reported by the API, 0 if not requested
 
     // Inner class to match the JSON structure for text_url
     private static class TextUrl {
@@ -22,10 +27,12 @@ public final class Part {
 
 
     // Constructor for Gson
-    private Part(long id, String title, TextUrl textUrlInfo) {
+    private Part(long id, String title, TextUrl textUrlInfo, LocalDateTime modifyDate, int length) {
         this.id = id;
         this.title = title;
         this.textUrlInfo = textUrlInfo;
+        this.modifyDate = modifyDate;
+        this.length = length;
     }
 
 
@@ -39,8 +46,14 @@ public final class Part {
             TextUrl textUrl = new TextUrl();
             textUrl.text = textUrlJson.get("text").getAsString();
 
-            return new Part(partId, partTitle, textUrl);
-        } catch (NullPointerException | ClassCastException e) {
+            int length = json.has("length") && !json.get("length").isJsonNull() ? json.get("length").getAsInt() : 0;
+
+            // Same parsing as the Gson path, so parts built either way agree
+            LocalDateTime modifyDate = new FlexibleLocalDateTimeAdapter()
+                    .deserialize(json.get("modifyDate"), LocalDateTime.class, null);
+
+            return new Part(partId, partTitle, textUrl, modifyDate, length);
+        } catch (NullPointerException | ClassCastException | JsonParseException e) {
             throw new WattpadException("Failed to parse Part from JSON: " + json, e);
         }
     }
@@ -59,6 +72,15 @@ public final class Part {
         return textUrlInfo != null ? textUrlInfo.text : null;
     }
 
+    /** Last edit time of this part, or null if the story was fetched without {@code modifyDate}. */
+    public LocalDateTime getModifyDate() {
+        return modifyDate;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
 
     /**
      * Fetches and renders the content of this part.
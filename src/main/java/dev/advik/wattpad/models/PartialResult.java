@@ -0,0 +1,69 @@
+package dev.advik.wattpad.models;
+
+import dev.advik.wattpad.exceptions.WattpadException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a bulk operation that may stop early: the items that completed, in request order, plus why the others
+ * didn't. {@link #get(int)} is null for any item that is missing.
+ */
+public final class PartialResult<T> {
+    private final List<T> items;                          // Request order, null where missing
+    private final Map<Integer, WattpadException> failures; // Index -> error, for items that failed on their own
+    private final boolean deadlineExceeded;
+
+    public PartialResult(List<T> items, Map<Integer, WattpadException> failures, boolean deadlineExceeded) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.failures = Collections.unmodifiableMap(new TreeMap<>(failures));
+        this.deadlineExceeded = deadlineExceeded;
+    }
+
+    /** Number of items requested. */
+    public int size() {
+        return items.size();
+    }
+
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    /** The completed items, in request order. */
+    public List<T> getCompleted() {
+        List<T> completed = new ArrayList<>();
+        for (T item : items) {
+            if (item != null) {
+                completed.add(item);
+            }
+        }
+        return completed;
+    }
+
+    public int getCompletedCount() {
+        int count = 0;
+        for (T item : items) {
+            if (item != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Items that failed for a reason other than the deadline. */
+    public Map<Integer, WattpadException> getFailures() {
+        return failures;
+    }
+
+    /** Whether the deadline ran out (or was cancelled) before every item was attempted. */
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+
+    public boolean isComplete() {
+        return getCompletedCount() == items.size();
+    }
+}
@@ -1,19 +1,30 @@
 package dev.advik.wattpad.models;
 
 import dev.advik.wattpad.models.html.HTMLContent;
+import dev.advik.wattpad.models.html.ParagraphDiff;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 public final class RenderedPage {
+    private final long partId; // 0 if the page wasn't rendered from a known part
     private final String title;
     private final List<HTMLContent> contentStack; // Renamed from 'stack'
 
     public RenderedPage(String title, List<HTMLContent> contentStack) {
+        this(0L, title, contentStack);
+    }
+
+    public RenderedPage(long partId, String title, List<HTMLContent> contentStack) {
+        this.partId = partId;
         this.title = Objects.requireNonNull(title, "title cannot be null");
         this.contentStack = Objects.requireNonNull(contentStack, "contentStack cannot be null");
     }
 
+    public long getPartId() {
+        return partId;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -30,4 +41,11 @@ public final class RenderedPage {
                 .map(HTMLContent::getSanitizedText)
                 .collect(Collectors.joining("\n\n")); // Add spacing between blocks
     }
+
+    /**
+     * Compares this page with an earlier render of the same part, paragraph by paragraph.
+     */
+    public ParagraphDiff diffFrom(RenderedPage previous) {
+        return ParagraphDiff.between(previous, this);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package dev.advik.wattpad.models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A story as returned by the search endpoint. Lighter than {@link Story}: the author only carries a
+ * display name and parts aren't included, so use {@link Story#fromId} to get the full story.
+ */
+public class StorySearchResult {
+    // Field names match the v4 search JSON, populated reflectively by Gson
+    private long id;
+    private String title;
+    private String description;
+    private String cover;
+    private String url;
+    private AuthorRef user;
+    private int numParts;
+    private long voteCount;
+    private long readCount;
+    private long commentCount;
+    private boolean mature;
+    private boolean completed;
+    private boolean isPaywalled;
+    private long length;
+    private PublishedPart lastPublishedPart;
+    private List<String> tags;
+
+    private static class AuthorRef {
+        String name;
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public String getCoverUrl() { return cover; }
+    public String getUrl() { return url; }
+    public String getAuthorName() { return user != null ? user.name : null; }
+    public int getNumParts() { return numParts; }
+    public long getVoteCount() { return voteCount; }
+    public long getReadCount() { return readCount; }
+    public long getCommentCount() { return commentCount; }
+    public boolean isMature() { return mature; }
+    public boolean isCompleted() { return completed; }
+    public boolean isPaywalled() { return isPaywalled; }
+    public long getLength() { return length; }
+    public PublishedPart getLastPublishedPart() { return lastPublishedPart; }
+    public List<String> getTags() { return tags != null ? tags : Collections.emptyList(); }
+
+    @Override
+    public String toString() {
+        return title + " (" + id + ")";
+    }
+}
@@ -0,0 +1,21 @@
+package dev.advik.wattpad.models;
+
+/** A browse topic (category) as returned by the browse endpoint. */
+public class Topic {
+    // Field names match the v5 browse JSON, populated reflectively by Gson
+    private String name;
+    private int categoryID;
+    private String browseURL;
+    private String tagURL;
+
+    // Getters
+    public String getName() { return name; }
+    public int getCategoryId() { return categoryID; }
+    public String getBrowseUrl() { return browseURL; }
+    public String getTagUrl() { return tagURL; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,27 @@
+package dev.advik.wattpad.models;
+
+/** A user as returned by the user search endpoint. */
+public class UserSearchResult {
+    // Field names match the v4 search JSON, populated reflectively by Gson
+    private String username;
+    private String name;
+    private String avatar;
+    private String description;
+    private int numLists;
+    private long numFollowers;
+    private int numStoriesPublished;
+
+    // Getters
+    public String getUsername() { return username; }
+    public String getName() { return name; }
+    public String getAvatar() { return avatar; }
+    public String getDescription() { return description; }
+    public int getNumLists() { return numLists; }
+    public long getNumFollowers() { return numFollowers; }
+    public int getNumStoriesPublished() { return numStoriesPublished; }
+
+    @Override
+    public String toString() {
+        return name + " (@" + username + ")";
+    }
+}
@@ -8,25 +8,45 @@ public final class HTMLContent {
     private final List<HTMLWord> textData; // Null if type is IMAGE
     private final String imageUrl;       // Null if type is TEXT
     private final HTMLType type;
+    private final String paragraphId;    // Wattpad's data-p-id, null if unknown
 
     // Constructor for Text
     public HTMLContent(List<HTMLWord> textData) {
+        this(textData, null);
+    }
+
+    public HTMLContent(List<HTMLWord> textData, String paragraphId) {
         this.textData = Objects.requireNonNull(textData, "textData cannot be null");
         this.imageUrl = null;
         this.type = HTMLType.TEXT;
+        this.paragraphId = paragraphId;
     }
 
     // Constructor for Image
     public HTMLContent(String imageUrl) {
+        this(imageUrl, null);
+    }
+
+    public HTMLContent(String imageUrl, String paragraphId) {
         this.textData = null;
         this.imageUrl = Objects.requireNonNull(imageUrl, "imageUrl cannot be null");
         this.type = HTMLType.IMAGE;
+        this.paragraphId = paragraphId;
     }
 
     public HTMLType getType() {
         return type;
     }
 
+    /**
+     * The {@code data-p-id} of the paragraph this block came from. Stable across edits of other paragraphs,
+     * so it can be used to key stored or indexed paragraphs. Several blocks (e.g. an image and its caption text)
+     * can share the same id.
+     */
+    public String getParagraphId() {
+        return paragraphId;
+    }
+
     public List<HTMLWord> getTextData() {
         if (type != HTMLType.TEXT) {
             throw new IllegalStateException("Cannot get text data for non-TEXT content");
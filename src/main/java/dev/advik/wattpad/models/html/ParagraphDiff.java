@@ -0,0 +1,168 @@
+package dev.advik.wattpad.models.html;
+
+import dev.advik.wattpad.internal.Hex;
+import dev.advik.wattpad.models.RenderedPage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Paragraph-level difference between two renders of the same part, keyed by Wattpad's {@code data-p-id}.
+ * <p>
+ * Blocks without a paragraph id are keyed by their position ({@code "#<index>"}), so they only match
+ * a block at the same position in the other render. Reordered paragraphs with unchanged content are
+ * not reported.
+ */
+public final class ParagraphDiff {
+
+    /** All content blocks of one paragraph, plus a hash over their text, styles and image URLs. */
+    public static final class Paragraph {
+        private final String id;
+        private final int index; // Position of the paragraph within its page
+        private final List<HTMLContent> blocks;
+        private final String hash;
+
+        Paragraph(String id, int index, List<HTMLContent> blocks) {
+            this.id = id;
+            this.index = index;
+            this.blocks = List.copyOf(blocks);
+            this.hash = hashBlocks(blocks);
+        }
+
+        public String getId() { return id; }
+        public int getIndex() { return index; }
+        public List<HTMLContent> getBlocks() { return blocks; }
+        public String getHash() { return hash; }
+
+        @Override
+        public String toString() {
+            return id + "@" + index;
+        }
+    }
+
+    /** A paragraph present in both renders whose hash differs. */
+    public static final class Change {
+        private final Paragraph before;
+        private final Paragraph after;
+
+        Change(Paragraph before, Paragraph after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getId() { return after.getId(); }
+        public Paragraph getBefore() { return before; }
+        public Paragraph getAfter() { return after; }
+
+        @Override
+        public String toString() {
+            return "changed " + after.getId();
+        }
+    }
+
+    private final List<Paragraph> added;
+    private final List<Paragraph> removed;
+    private final List<Change> changed;
+    private final int unchangedCount;
+
+    private ParagraphDiff(List<Paragraph> added, List<Paragraph> removed, List<Change> changed, int unchangedCount) {
+        this.added = List.copyOf(added);
+        this.removed = List.copyOf(removed);
+        this.changed = List.copyOf(changed);
+        this.unchangedCount = unchangedCount;
+    }
+
+    /** Compares two renders of the same part. Results are listed in page order. */
+    public static ParagraphDiff between(RenderedPage before, RenderedPage after) {
+        Map<String, Paragraph> oldParagraphs = paragraphs(before);
+        Map<String, Paragraph> newParagraphs = paragraphs(after);
+
+        List<Paragraph> added = new ArrayList<>();
+        List<Change> changed = new ArrayList<>();
+        int unchanged = 0;
+        for (Paragraph paragraph : newParagraphs.values()) {
+            Paragraph old = oldParagraphs.get(paragraph.getId());
+            if (old == null) {
+                added.add(paragraph);
+            } else if (!old.getHash().equals(paragraph.getHash())) {
+                changed.add(new Change(old, paragraph));
+            } else {
+                unchanged++;
+            }
+        }
+
+        List<Paragraph> removed = new ArrayList<>();
+        for (Paragraph paragraph : oldParagraphs.values()) {
+            if (!newParagraphs.containsKey(paragraph.getId())) {
+                removed.add(paragraph);
+            }
+        }
+        return new ParagraphDiff(added, removed, changed, unchanged);
+    }
+
+    /**
+     * Groups a page's content blocks into paragraphs, in page order.
+     * Useful on its own for storing per-paragraph hashes of a render.
+     */
+    public static Map<String, Paragraph> paragraphs(RenderedPage page) {
+        Map<String, List<HTMLContent>> grouped = new LinkedHashMap<>();
+        List<HTMLContent> stack = page.getContentStack();
+        for (int i = 0; i < stack.size(); i++) {
+            HTMLContent block = stack.get(i);
+            String key = block.getParagraphId() != null && !block.getParagraphId().isEmpty()
+                    ? block.getParagraphId() : "#" + i;
+            grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(block);
+        }
+
+        Map<String, Paragraph> paragraphs = new LinkedHashMap<>();
+        int index = 0;
+        for (Map.Entry<String, List<HTMLContent>> entry : grouped.entrySet()) {
+            paragraphs.put(entry.getKey(), new Paragraph(entry.getKey(), index++, entry.getValue()));
+        }
+        return paragraphs;
+    }
+
+    // --- Getters ---
+    public List<Paragraph> getAdded() { return added; }
+    public List<Paragraph> getRemoved() { return removed; }
+    public List<Change> getChanged() { return changed; }
+    public int getUnchangedCount() { return unchangedCount; }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ParagraphDiff{added=" + added.size() + ", removed=" + removed.size()
+                + ", changed=" + changed.size() + ", unchanged=" + unchangedCount + "}";
+    }
+
+    // --- Hashing ---
+
+    private static String hashBlocks(List<HTMLContent> blocks) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not found", e);
+        }
+        for (HTMLContent block : blocks) {
+            if (block.getType() == HTMLType.TEXT) {
+                sha256.update((byte) 'T');
+                for (HTMLWord word : block.getTextData()) {
+                    sha256.update((byte) word.getStyle().ordinal()); // Bolding a word counts as a change
+                    sha256.update(word.getData().getBytes(StandardCharsets.UTF_8));
+                    sha256.update((byte) 0);
+                }
+            } else {
+                sha256.update((byte) 'I');
+                sha256.update(block.getImageUrl().getBytes(StandardCharsets.UTF_8));
+            }
+            sha256.update((byte) 0);
+        }
+        return Hex.encode(sha256.digest());
+    }
+}
@@ -0,0 +1,141 @@
+package dev.advik.wattpad.scheduler;
+
+import dev.advik.wattpad.exceptions.DeadlineExceededException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A time budget shared by every request an operation makes, however deeply nested.
+ * <p>
+ * Like the request priority, the deadline comes from the calling thread (see {@link #callWithin}) and is carried
+ * over to the client's background tasks. Each fetch sizes its HTTP call timeout to the remaining budget, waits for a
+ * scheduler slot no longer than that, and checks the deadline again before parsing, so work stops soon after the
+ * budget runs out. {@link #cancel()} ends it early and aborts the calls in flight.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos; // System.nanoTime() based
+    private final Set<Runnable> cancelHooks = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled = false;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /** The deadline of the current thread, or null if it has none. */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs {@code action} with {@code deadline} applied to everything it does on this thread. If the thread already
+     * has a deadline, the earlier of the two applies; a null deadline keeps the current one.
+     */
+    public static <T> T callWithin(Deadline deadline, Supplier<T> action) {
+        Deadline previous = CURRENT.get();
+        Deadline effective = earlier(previous, deadline);
+        if (effective == previous) {
+            return action.get();
+        }
+        CURRENT.set(effective);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /** Throws if the current thread's deadline has passed or been cancelled. A no-op without a deadline. */
+    public static void checkCurrent(String operation) {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.check(operation);
+        }
+    }
+
+    private static Deadline earlier(Deadline a, Deadline b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        // A cancelled deadline wins; it has already ended the operation
+        if (a.cancelled || b.cancelled) {
+            return a.cancelled ? a : b;
+        }
+        return a.deadlineNanos - b.deadlineNanos < 0 ? a : b; // Ties go to the new one, so children take effect
+    }
+
+    /**
+     * A deadline ending at the same time as this one that can be cancelled on its own, e.g. by a bulk operation
+     * giving up on its remaining work. Link it with {@code onCancel(child::cancel)} to pass cancellation down.
+     */
+    public Deadline newChild() {
+        return new Deadline(deadlineNanos);
+    }
+
+    /** Nanoseconds left, never negative; 0 once expired or cancelled. */
+    public long remainingNanos() {
+        return cancelled ? 0 : Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() == 0;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** @throws DeadlineExceededException if the deadline has passed or been cancelled */
+    public void check(String operation) {
+        if (cancelled) {
+            throw new DeadlineExceededException("Cancelled before " + operation);
+        }
+        long overdue = System.nanoTime() - deadlineNanos;
+        if (overdue >= 0) {
+            throw new DeadlineExceededException("Deadline exceeded by " + overdue / 1_000_000 + " ms before " + operation);
+        }
+    }
+
+    /** Ends the deadline now: later checks fail, and calls registered with {@link #onCancel} are aborted. */
+    public void cancel() {
+        cancelled = true;
+        for (Runnable hook : cancelHooks) {
+            hook.run();
+        }
+        cancelHooks.clear();
+    }
+
+    /**
+     * Registers {@code hook} to run if the deadline is cancelled while the returned registration is open.
+     * Runs it right away if the deadline is already cancelled.
+     */
+    public Registration onCancel(Runnable hook) {
+        cancelHooks.add(hook);
+        if (cancelled && cancelHooks.remove(hook)) {
+            hook.run();
+        }
+        return () -> cancelHooks.remove(hook);
+    }
+
+    /** Unregisters a cancel hook once the work it would abort is done. */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
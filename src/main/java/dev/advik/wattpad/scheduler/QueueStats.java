@@ -0,0 +1,39 @@
+package dev.advik.wattpad.scheduler;
+
+import java.time.Duration;
+
+/** Point-in-time statistics for one priority class of a {@link RequestScheduler}. */
+public final class QueueStats {
+    private final RequestPriority priority;
+    private final int queued;
+    private final int running;
+    private final long admitted;       // Requests that got a slot, whether they waited or not
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    QueueStats(RequestPriority priority, int queued, int running, long admitted, long totalWaitNanos, long maxWaitNanos) {
+        this.priority = priority;
+        this.queued = queued;
+        this.running = running;
+        this.admitted = admitted;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public RequestPriority getPriority() { return priority; }
+    public int getQueued() { return queued; }
+    public int getRunning() { return running; }
+    public long getAdmitted() { return admitted; }
+    public Duration getTotalWait() { return Duration.ofNanos(totalWaitNanos); }
+    public Duration getMaxWait() { return Duration.ofNanos(maxWaitNanos); }
+
+    public Duration getMeanWait() {
+        return admitted == 0 ? Duration.ZERO : Duration.ofNanos(totalWaitNanos / admitted);
+    }
+
+    @Override
+    public String toString() {
+        return priority + "{queued=" + queued + ", running=" + running + ", admitted=" + admitted
+                + ", meanWait=" + getMeanWait().toMillis() + "ms, maxWait=" + getMaxWait().toMillis() + "ms}";
+    }
+}
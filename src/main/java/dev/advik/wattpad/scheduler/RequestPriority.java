@@ -0,0 +1,11 @@
+package dev.advik.wattpad.scheduler;
+
+/**
+ * Priority class of a network request, highest first.
+ * Requests made directly on the caller's thread default to {@link #INTERACTIVE}.
+ */
+public enum RequestPriority {
+    INTERACTIVE, // A user is waiting on the result (renderPart, getStoryById, ...)
+    PREFETCH,    // Speculative read-ahead (search page prefetching)
+    BULK         // Crawls, syncs and publisher-driven ingest
+}
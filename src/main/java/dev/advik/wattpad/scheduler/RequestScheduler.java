@@ -0,0 +1,290 @@
+package dev.advik.wattpad.scheduler;
+
+import dev.advik.wattpad.exceptions.WattpadException;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for network requests by {@link RequestPriority}.
+ * <p>
+ * At most {@code totalLimit} requests run at once, and each priority class has its own limit on top.
+ * When a slot frees up it goes to the oldest waiter of the highest priority class that is under its
+ * limit, so interactive requests jump ahead of any queued prefetch or bulk work. Keeping the
+ * background class limits below the total leaves headroom that background traffic can never take.
+ * <p>
+ * The priority of a request comes from the calling thread, see {@link #callWithPriority}.
+ * A scheduler can be shared by several clients.
+ */
+public final class RequestScheduler {
+
+    private static final ThreadLocal<RequestPriority> CURRENT_PRIORITY = new ThreadLocal<>();
+
+    public static class Builder {
+        private int totalLimit = 16;
+        private final Map<RequestPriority, Integer> limits = new EnumMap<>(RequestPriority.class);
+
+        public Builder() {
+            limits.put(RequestPriority.INTERACTIVE, 16);
+            limits.put(RequestPriority.PREFETCH, 4);
+            limits.put(RequestPriority.BULK, 8);
+        }
+
+        /** Maximum number of requests running at once across all classes. */
+        public Builder totalLimit(int totalLimit) {
+            if (totalLimit < 1) {
+                throw new IllegalArgumentException("totalLimit must be >= 1");
+            }
+            this.totalLimit = totalLimit;
+            return this;
+        }
+
+        /** Maximum number of requests of one priority class running at once. */
+        public Builder limit(RequestPriority priority, int limit) {
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit must be >= 1");
+            }
+            limits.put(priority, limit);
+            return this;
+        }
+
+        public RequestScheduler build() {
+            return new RequestScheduler(this);
+        }
+    }
+
+    /** A granted slot. Closing it hands the slot to the next waiter. */
+    public final class Permit implements AutoCloseable {
+        private final RequestPriority priority;
+        private boolean released = false;
+
+        private Permit(RequestPriority priority) {
+            this.priority = priority;
+        }
+
+        public RequestPriority getPriority() {
+            return priority;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    // A thread blocked in acquire()
+    private static final class Waiter {
+        final Condition condition;
+        boolean granted = false;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    // Per-class bookkeeping, guarded by lock
+    private static final class ClassState {
+        final int limit;
+        final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        int running = 0;
+        long admitted = 0;
+        long totalWaitNanos = 0;
+        long maxWaitNanos = 0;
+
+        ClassState(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    private final int totalLimit;
+    private final Map<RequestPriority, ClassState> classes = new EnumMap<>(RequestPriority.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private int totalRunning = 0;
+
+    private RequestScheduler(Builder builder) {
+        this.totalLimit = builder.totalLimit;
+        for (RequestPriority priority : RequestPriority.values()) {
+            classes.put(priority, new ClassState(builder.limits.get(priority)));
+        }
+    }
+
+    // --- Priority context ---
+
+    /** Priority of requests made from the current thread. */
+    public static RequestPriority currentPriority() {
+        RequestPriority priority = CURRENT_PRIORITY.get();
+        return priority != null ? priority : RequestPriority.INTERACTIVE;
+    }
+
+    /** Runs {@code action} with every request it makes on this thread scheduled at {@code priority}. */
+    public static <T> T callWithPriority(RequestPriority priority, Supplier<T> action) {
+        RequestPriority previous = CURRENT_PRIORITY.get();
+        CURRENT_PRIORITY.set(priority);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_PRIORITY.remove();
+            } else {
+                CURRENT_PRIORITY.set(previous);
+            }
+        }
+    }
+
+    // --- Admission ---
+
+    /** Blocks until a slot for the current thread's priority is free, or the thread's {@link Deadline} passes. */
+    public Permit acquire() {
+        return acquire(currentPriority());
+    }
+
+    public Permit acquire(RequestPriority priority) {
+        ClassState state = classes.get(priority);
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            deadline.check("waiting for a " + priority + " request slot");
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (canAdmitImmediately(priority)) {
+                admit(state, 0L);
+                return new Permit(priority);
+            }
+
+            Waiter waiter = new Waiter(lock.newCondition());
+            state.queue.add(waiter);
+            // Cancelling the deadline wakes us so we give up now rather than when the budget would have run out
+            Deadline.Registration cancelHook = deadline != null ? deadline.onCancel(() -> wake(waiter)) : null;
+            try {
+                while (!waiter.granted) {
+                    if (deadline == null) {
+                        waiter.condition.await();
+                        continue;
+                    }
+                    long remaining = deadline.remainingNanos();
+                    if (remaining <= 0) {
+                        state.queue.remove(waiter); // Not granted (checked above), so no slot to hand back
+                        deadline.check("getting a " + priority + " request slot");
+                    }
+                    waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    // Slot was handed to us just as we were interrupted, give it to someone else
+                    state.running--;
+                    totalRunning--;
+                    dispatch();
+                } else {
+                    state.queue.remove(waiter);
+                }
+                Thread.currentThread().interrupt();
+                throw new WattpadException("Interrupted while waiting for a " + priority + " request slot", e);
+            } finally {
+                if (cancelHook != null) {
+                    cancelHook.close();
+                }
+            }
+            recordWait(state, System.nanoTime() - start);
+            return new Permit(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called from Deadline.cancel(), on any thread
+    private void wake(Waiter waiter) {
+        lock.lock();
+        try {
+            waiter.condition.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public QueueStats stats(RequestPriority priority) {
+        lock.lock();
+        try {
+            ClassState state = classes.get(priority);
+            return new QueueStats(priority, state.queue.size(), state.running, state.admitted,
+                    state.totalWaitNanos, state.maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<RequestPriority, QueueStats> stats() {
+        Map<RequestPriority, QueueStats> all = new EnumMap<>(RequestPriority.class);
+        for (RequestPriority priority : RequestPriority.values()) {
+            all.put(priority, stats(priority));
+        }
+        return all;
+    }
+
+    // --- Internals (all called with lock held) ---
+
+    private boolean canAdmitImmediately(RequestPriority priority) {
+        if (totalRunning >= totalLimit || classes.get(priority).running >= classes.get(priority).limit) {
+            return false;
+        }
+        // Don't overtake queued requests of our own class, or of a higher class that could use the slot
+        for (RequestPriority other : RequestPriority.values()) {
+            ClassState state = classes.get(other);
+            if (other == priority) {
+                return state.queue.isEmpty();
+            }
+            if (!state.queue.isEmpty() && state.running < state.limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void admit(ClassState state, long waitNanos) {
+        state.running++;
+        totalRunning++;
+        recordWait(state, waitNanos);
+    }
+
+    private void recordWait(ClassState state, long waitNanos) {
+        state.admitted++;
+        state.totalWaitNanos += waitNanos;
+        state.maxWaitNanos = Math.max(state.maxWaitNanos, waitNanos);
+    }
+
+    private void release(Permit permit) {
+        lock.lock();
+        try {
+            if (permit.released) {
+                return;
+            }
+            permit.released = true;
+            classes.get(permit.priority).running--;
+            totalRunning--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Hands free slots to waiters, highest priority class first
+    private void dispatch() {
+        for (RequestPriority priority : RequestPriority.values()) {
+            ClassState state = classes.get(priority);
+            while (totalRunning < totalLimit && state.running < state.limit && !state.queue.isEmpty()) {
+                Waiter waiter = state.queue.poll();
+                waiter.granted = true;
+                state.running++;
+                totalRunning++;
+                waiter.condition.signal();
+            }
+            if (totalRunning >= totalLimit) {
+                return;
+            }
+        }
+    }
+}
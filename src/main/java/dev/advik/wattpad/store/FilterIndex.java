@@ -0,0 +1,158 @@
+package dev.advik.wattpad.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Tag-to-rows and author-to-rows bitmaps over a {@link StoryMetadataStore}, plus the set of superseded rows.
+ * <p>
+ * Saved to {@code filters.bin} when the store is flushed and loaded on first query, then brought up to date from
+ * the rows appended since, so it never has to scan the whole store unless the file is missing or damaged. Sets are
+ * indexed by dictionary id. All sets only grow, since rows are append-only.
+ */
+final class FilterIndex {
+    private static final int MAGIC = 0x57504649; // "WPFI"
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private final List<RowSet> byAuthor = new ArrayList<>();
+    private final List<RowSet> byTag = new ArrayList<>();
+    private RowSet superseded = new RowSet();
+    private int rows; // Rows covered
+    private boolean dirty;
+
+    private FilterIndex(Path path) {
+        this.path = path;
+    }
+
+    /** Loads the saved index, or starts empty if there is none usable. */
+    static FilterIndex load(Path path, int storeRows) {
+        FilterIndex index = new FilterIndex(path);
+        CRC32 crc = new CRC32();
+        try (InputStream raw = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(raw), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a filter index");
+            }
+            int rows = in.readInt();
+            RowSet superseded = RowSet.read(in);
+            List<RowSet> byAuthor = readSets(in);
+            List<RowSet> byTag = readSets(in);
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("checksum mismatch");
+            }
+            if (rows > storeRows) {
+                throw new IOException("covers " + rows + " rows, store has " + storeRows); // Store meta lost on crash
+            }
+            index.rows = rows;
+            index.superseded = superseded;
+            index.byAuthor.addAll(byAuthor);
+            index.byTag.addAll(byTag);
+        } catch (NoSuchFileException e) {
+            // New store, or flushed before the first query
+        } catch (IOException e) {
+            System.err.println("Rebuilding story filter index " + path + ": " + e.getMessage());
+        }
+        return index;
+    }
+
+    private static List<RowSet> readSets(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<RowSet> sets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sets.add(RowSet.read(in));
+        }
+        return sets;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    // --- Updates ---
+
+    /** Indexes row {@code row}, which is the next one; {@code previousRow} is the row it supersedes, or -1. */
+    synchronized void add(int row, int authorId, int[] tagIds, int previousRow) {
+        if (previousRow >= 0) {
+            superseded.add(previousRow);
+        }
+        if (authorId >= 0) {
+            set(byAuthor, authorId).add(row);
+        }
+        for (int tagId : tagIds) {
+            set(byTag, tagId).add(row);
+        }
+        rows = row + 1;
+        dirty = true;
+    }
+
+    private static RowSet set(List<RowSet> sets, int id) {
+        while (sets.size() <= id) {
+            sets.add(new RowSet());
+        }
+        return sets.get(id);
+    }
+
+    // --- Queries: each returns a private copy, so callers combine them without locking ---
+
+    synchronized RowSet author(int authorId) {
+        return latest(authorId >= 0 && authorId < byAuthor.size() ? byAuthor.get(authorId) : null);
+    }
+
+    synchronized RowSet tag(int tagId) {
+        return latest(tagId >= 0 && tagId < byTag.size() ? byTag.get(tagId) : null);
+    }
+
+    synchronized RowSet all() {
+        return RowSet.range(0, rows).andNot(superseded);
+    }
+
+    private RowSet latest(RowSet set) {
+        return set != null ? set.andNot(superseded) : new RowSet();
+    }
+
+    // --- Persistence ---
+
+    /** Writes the index if it changed, through a temporary file and an atomic move. */
+    synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream raw = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(raw), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            superseded.write(out);
+            writeSets(out, byAuthor);
+            writeSets(out, byTag);
+            out.writeLong(crc.getValue());
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private static void writeSets(DataOutputStream out, List<RowSet> sets) throws IOException {
+        out.writeInt(sets.size());
+        for (RowSet set : sets) {
+            set.write(out);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package dev.advik.wattpad.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A memory-mapped open-addressing hash table from positive long keys to int values (row numbers), with linear
+ * probing. Opening it reads nothing but the header; lookups touch one or two pages of the file.
+ * <p>
+ * Layout: a 16-byte header (capacity, entry count), then {@code capacity} 16-byte slots of key, value and padding.
+ * Key 0 marks a free slot, so a fresh zero-filled file is an empty table. Past 70% load the table is rehashed into a
+ * file twice the size, which then atomically replaces this one.
+ * <p>
+ * Entries are never removed. A value may point at a row that was never committed (the store crashed between
+ * indexing and committing) or at an older version of a record; callers verify the row before trusting it.
+ */
+final class LongIndex implements Closeable {
+    private static final int HEADER = 16;
+    private static final int SLOT = 16;
+    private static final double MAX_LOAD = 0.7;
+
+    private final Path path;
+    private final boolean writable;
+    private volatile MappedFile file;
+    private long capacity; // Power of two
+    private long count;
+
+    LongIndex(Path path, boolean writable, long initialCapacity) throws IOException {
+        this.path = path;
+        this.writable = writable;
+        if (!Files.exists(path) && writable) {
+            create(path, Long.highestOneBit(Math.max(16, initialCapacity) - 1) << 1);
+        }
+        open();
+    }
+
+    private static void create(Path path, long capacity) throws IOException {
+        try (MappedFile created = new MappedFile(path, true)) {
+            created.ensureCapacity(HEADER + capacity * SLOT);
+            created.putLong(0, capacity);
+            created.putLong(8, 0);
+        }
+    }
+
+    private void open() throws IOException {
+        MappedFile opened = new MappedFile(path, writable);
+        if (opened.capacity() < HEADER) {
+            opened.close();
+            throw new IOException("Index file is truncated: " + path);
+        }
+        this.capacity = opened.getLong(0);
+        this.count = opened.getLong(8);
+        this.file = opened;
+    }
+
+    /** The value stored for {@code key}, or -1. */
+    int get(long key) {
+        MappedFile current = file;
+        long mask = current.getLong(0) - 1; // The capacity of this file, even if the table grows meanwhile
+        for (long slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long position = HEADER + slot * SLOT;
+            long stored = current.getLong(position);
+            if (stored == key) {
+                return current.getInt(position + 8);
+            }
+            if (stored == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /** Inserts or replaces {@code key}. Single writer. */
+    void put(long key, int value) throws IOException {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Index keys must be positive: " + key);
+        }
+        if (count + 1 > capacity * MAX_LOAD) {
+            grow();
+        }
+        if (insert(file, capacity, key, value)) {
+            count++;
+            file.putLong(8, count);
+        }
+    }
+
+    // Returns true if the key was new
+    private static boolean insert(MappedFile target, long capacity, long key, int value) {
+        long mask = capacity - 1;
+        for (long slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long position = HEADER + slot * SLOT;
+            long stored = target.getLong(position);
+            if (stored == 0 || stored == key) {
+                target.putInt(position + 8, value);
+                target.putLong(position, key); // Key last, so a crash never leaves a key without its value
+                return stored == 0;
+            }
+        }
+    }
+
+    private void grow() throws IOException {
+        long newCapacity = capacity * 2;
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        create(temp, newCapacity);
+        try (MappedFile grown = new MappedFile(temp, true)) {
+            MappedFile current = file;
+            long moved = 0;
+            for (long slot = 0; slot < capacity; slot++) {
+                long position = HEADER + slot * SLOT;
+                long key = current.getLong(position);
+                if (key != 0) {
+                    insert(grown, newCapacity, key, current.getInt(position + 8));
+                    moved++;
+                }
+            }
+            grown.putLong(8, moved);
+            grown.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        MappedFile old = file;
+        open(); // Readers still holding the old mapping finish against it
+        old.close();
+    }
+
+    long size() {
+        return count;
+    }
+
+    void force() {
+        file.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    // MurmurHash3's 64-bit finalizer: ids are often sequential, so spread them before masking
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,146 @@
+package dev.advik.wattpad.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file accessed through memory mappings, split into segments since one mapping can't exceed 2 GB.
+ * Fixed-size values must not straddle segments: callers keep them aligned to a size that divides the segment size.
+ * Writable files grow by remapping, and the mapped size can run ahead of the data (the tail is sparse on most file
+ * systems); the real data length is tracked by the caller.
+ */
+final class MappedFile implements Closeable {
+    static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+    private static final long MIN_CAPACITY = 64 * 1024;
+
+    private final FileChannel channel;
+    private final boolean writable;
+    private final long segmentSize;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile long capacity = 0;
+
+    MappedFile(Path path, boolean writable) throws IOException {
+        this(path, writable, DEFAULT_SEGMENT_SIZE);
+    }
+
+    MappedFile(Path path, boolean writable, long segmentSize) throws IOException {
+        this.writable = writable;
+        this.segmentSize = segmentSize;
+        this.channel = writable
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size > 0) {
+            remap(size);
+        }
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    /** Makes at least {@code bytes} addressable, doubling the mapping as needed. */
+    void ensureCapacity(long bytes) throws IOException {
+        if (bytes <= capacity) {
+            return;
+        }
+        if (!writable) {
+            throw new IOException("Store is open read-only");
+        }
+        long newCapacity = Math.max(MIN_CAPACITY, capacity);
+        while (newCapacity < bytes) {
+            newCapacity *= 2;
+        }
+        remap(newCapacity);
+    }
+
+    private synchronized void remap(long newCapacity) throws IOException {
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        int count = (int) ((newCapacity + segmentSize - 1) / segmentSize);
+        MappedByteBuffer[] remapped = Arrays.copyOf(segments, count);
+        // Full segments already mapped stay as they are; the last partial one and any new ones are (re)mapped
+        int first = segments.length > 0 && capacity % segmentSize != 0 ? segments.length - 1 : segments.length;
+        for (int i = first; i < count; i++) {
+            long start = i * segmentSize;
+            remapped[i] = channel.map(mode, start, Math.min(segmentSize, newCapacity - start));
+        }
+        segments = remapped;
+        capacity = newCapacity;
+    }
+
+    // --- Reads ---
+
+    byte get(long position) {
+        return segments[(int) (position / segmentSize)].get((int) (position % segmentSize));
+    }
+
+    int getInt(long position) {
+        return segments[(int) (position / segmentSize)].getInt((int) (position % segmentSize));
+    }
+
+    long getLong(long position) {
+        return segments[(int) (position / segmentSize)].getLong((int) (position % segmentSize));
+    }
+
+    void get(long position, byte[] dst, int offset, int length) {
+        MappedByteBuffer[] current = segments;
+        while (length > 0) {
+            int index = (int) (position / segmentSize);
+            int within = (int) (position % segmentSize);
+            int chunk = (int) Math.min(length, segmentSize - within);
+            ByteBuffer view = current[index].duplicate(); // Absolute bulk get needs Java 13
+            view.position(within);
+            view.get(dst, offset, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    // --- Writes (single writer; call ensureCapacity first) ---
+
+    void put(long position, byte value) {
+        segments[(int) (position / segmentSize)].put((int) (position % segmentSize), value);
+    }
+
+    void putInt(long position, int value) {
+        segments[(int) (position / segmentSize)].putInt((int) (position % segmentSize), value);
+    }
+
+    void putLong(long position, long value) {
+        segments[(int) (position / segmentSize)].putLong((int) (position % segmentSize), value);
+    }
+
+    void put(long position, byte[] src, int offset, int length) {
+        MappedByteBuffer[] current = segments;
+        while (length > 0) {
+            int index = (int) (position / segmentSize);
+            int within = (int) (position % segmentSize);
+            int chunk = (int) Math.min(length, segmentSize - within);
+            ByteBuffer view = current[index].duplicate();
+            view.position(within);
+            view.put(src, offset, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /** Writes mapped changes through to the storage device. */
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close(); // The mappings stay valid until collected
+    }
+}
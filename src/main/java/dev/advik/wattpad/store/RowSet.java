@@ -0,0 +1,447 @@
+package dev.advik.wattpad.store;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of row numbers of a {@link StoryMetadataStore}, for combining tag and author filters.
+ * <p>
+ * Rows are split by their high 16 bits into chunks of 65536. A chunk with at most 4096 rows is a sorted
+ * {@code char[]} (2 bytes per row); a denser one an 8 KB bitmap. So a tag on a handful of stories costs a few
+ * bytes, one on half of them 1 bit per row, and {@link #and}, {@link #or} and {@link #andNot} work chunk by chunk,
+ * skipping chunks absent on either side, with word-wide operations on bitmaps.
+ * <p>
+ * Sets returned to callers are never changed afterwards; every operation returns a new set.
+ */
+public final class RowSet {
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024; // 65536 bits
+
+    private char[] keys = new char[4];      // High 16 bits of each chunk, ascending
+    private Object[] chunks = new Object[4]; // char[] of low bits, or long[WORDS]
+    private int[] cardinalities = new int[4];
+    private int count;                      // Chunks in use
+
+    RowSet() {
+    }
+
+    public static RowSet empty() {
+        return new RowSet();
+    }
+
+    /** Rows {@code from} (inclusive) to {@code to} (exclusive). Built a chunk at a time, so it's cheap at any size. */
+    public static RowSet range(int from, int to) {
+        RowSet set = new RowSet();
+        for (int start = from; start < to; ) {
+            int end = Math.min(to, ((start >>> 16) + 1) << 16); // Up to the end of this chunk
+            if (end <= start) {
+                end = to; // Past the last chunk boundary an int can hold
+            }
+            int low = start & 0xFFFF;
+            int cardinality = end - start;
+            if (cardinality <= ARRAY_MAX) {
+                char[] values = new char[cardinality];
+                for (int i = 0; i < cardinality; i++) {
+                    values[i] = (char) (low + i);
+                }
+                set.append((char) (start >>> 16), values, cardinality);
+            } else {
+                long[] words = new long[WORDS];
+                int high = low + cardinality; // Exclusive, at most 65536
+                for (int w = low >>> 6; w <= (high - 1) >>> 6; w++) {
+                    long mask = -1L;
+                    if (w == low >>> 6) {
+                        mask &= -1L << (low & 63);
+                    }
+                    if (w == (high - 1) >>> 6) {
+                        mask &= -1L >>> (63 - ((high - 1) & 63));
+                    }
+                    words[w] = mask;
+                }
+                set.append((char) (start >>> 16), words, cardinality);
+            }
+            start = end;
+        }
+        return set;
+    }
+
+    // --- Queries ---
+
+    public boolean contains(int row) {
+        int i = find((char) (row >>> 16));
+        return i >= 0 && chunkContains(chunks[i], cardinalities[i], (char) row);
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            size += cardinalities[i];
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** Calls {@code action} for each row in ascending order. */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < count; i++) {
+            int high = keys[i] << 16;
+            Object chunk = chunks[i];
+            if (chunk instanceof char[]) {
+                char[] values = (char[]) chunk;
+                for (int j = 0; j < cardinalities[i]; j++) {
+                    action.accept(high | values[j]);
+                }
+            } else {
+                long[] words = (long[]) chunk;
+                for (int w = 0; w < WORDS; w++) {
+                    for (long word = words[w]; word != 0; word &= word - 1) {
+                        action.accept(high | w << 6 | Long.numberOfTrailingZeros(word));
+                    }
+                }
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] rows = new int[size()];
+        int[] next = {0};
+        forEach(row -> rows[next[0]++] = row);
+        return rows;
+    }
+
+    // --- Set operations ---
+
+    /** Rows in both sets. */
+    public RowSet and(RowSet other) {
+        RowSet result = new RowSet();
+        for (int i = 0, j = 0; i < count && j < other.count; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.append(keys[i], and(chunks[i], cardinalities[i], other.chunks[j], other.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /** Rows in either set. */
+    public RowSet or(RowSet other) {
+        RowSet result = new RowSet();
+        int i = 0;
+        int j = 0;
+        while (i < count || j < other.count) {
+            if (j == other.count || (i < count && keys[i] < other.keys[j])) {
+                result.append(keys[i], copy(chunks[i], cardinalities[i]));
+                i++;
+            } else if (i == count || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], copy(other.chunks[j], other.cardinalities[j]));
+                j++;
+            } else {
+                result.append(keys[i], or(chunks[i], cardinalities[i], other.chunks[j], other.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /** Rows in this set but not in {@code other}. */
+    public RowSet andNot(RowSet other) {
+        RowSet result = new RowSet();
+        for (int i = 0, j = 0; i < count; i++) {
+            while (j < other.count && other.keys[j] < keys[i]) {
+                j++;
+            }
+            result.append(keys[i], j < other.count && other.keys[j] == keys[i]
+                    ? andNot(chunks[i], cardinalities[i], other.chunks[j], other.cardinalities[j])
+                    : copy(chunks[i], cardinalities[i]));
+        }
+        return result;
+    }
+
+    RowSet copy() {
+        RowSet copy = new RowSet();
+        for (int i = 0; i < count; i++) {
+            copy.append(keys[i], copy(chunks[i], cardinalities[i]));
+        }
+        return copy;
+    }
+
+    // --- Building, package-private: sets handed out are immutable ---
+
+    void add(int row) {
+        char key = (char) (row >>> 16);
+        char low = (char) row;
+        int i = count > 0 && keys[count - 1] == key ? count - 1 : find(key); // Rows mostly arrive in order
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key, new char[4], 0);
+        }
+        Object chunk = chunks[i];
+        if (chunk instanceof long[]) {
+            long[] words = (long[]) chunk;
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                cardinalities[i]++;
+            }
+            return;
+        }
+        char[] values = (char[]) chunk;
+        int cardinality = cardinalities[i];
+        int at = cardinality > 0 && values[cardinality - 1] < low ? -cardinality - 1
+                : Arrays.binarySearch(values, 0, cardinality, low);
+        if (at >= 0) {
+            return;
+        }
+        at = -at - 1;
+        if (cardinality == ARRAY_MAX) {
+            long[] words = toBitmap(values, cardinality);
+            words[low >>> 6] |= 1L << low;
+            chunks[i] = words;
+        } else {
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+                chunks[i] = values;
+            }
+            System.arraycopy(values, at, values, at + 1, cardinality - at);
+            values[at] = low;
+        }
+        cardinalities[i]++;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeChar(keys[i]);
+            out.writeInt(cardinalities[i]);
+            if (chunks[i] instanceof char[]) {
+                char[] values = (char[]) chunks[i];
+                for (int j = 0; j < cardinalities[i]; j++) {
+                    out.writeChar(values[j]);
+                }
+            } else {
+                for (long word : (long[]) chunks[i]) {
+                    out.writeLong(word);
+                }
+            }
+        }
+    }
+
+    static RowSet read(DataInput in) throws IOException {
+        RowSet set = new RowSet();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            char key = in.readChar();
+            int cardinality = in.readInt();
+            if (cardinality <= 0 || cardinality > 65536) {
+                throw new IOException("Corrupt row set");
+            }
+            if (cardinality <= ARRAY_MAX) {
+                char[] values = new char[cardinality];
+                for (int j = 0; j < cardinality; j++) {
+                    values[j] = in.readChar();
+                }
+                set.append(key, values, cardinality);
+            } else {
+                long[] words = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] = in.readLong();
+                }
+                set.append(key, words, cardinality);
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public String toString() {
+        return "RowSet{size=" + size() + ", chunks=" + count + "}";
+    }
+
+    // --- Chunks ---
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, count, key);
+    }
+
+    private void insertChunk(int at, char key, Object chunk, int cardinality) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            chunks = Arrays.copyOf(chunks, count * 2);
+            cardinalities = Arrays.copyOf(cardinalities, count * 2);
+        }
+        System.arraycopy(keys, at, keys, at + 1, count - at);
+        System.arraycopy(chunks, at, chunks, at + 1, count - at);
+        System.arraycopy(cardinalities, at, cardinalities, at + 1, count - at);
+        keys[at] = key;
+        chunks[at] = chunk;
+        cardinalities[at] = cardinality;
+        count++;
+    }
+
+    // Appends a chunk with a key above all others; empty results are dropped
+    private void append(char key, Object chunk, int cardinality) {
+        if (cardinality > 0) {
+            insertChunk(count, key, chunk, cardinality);
+        }
+    }
+
+    // The chunk operations below return {chunk, cardinality}
+    private void append(char key, Object[] chunkAndCardinality) {
+        append(key, chunkAndCardinality[0], (Integer) chunkAndCardinality[1]);
+    }
+
+    private static boolean chunkContains(Object chunk, int cardinality, char low) {
+        if (chunk instanceof long[]) {
+            return (((long[]) chunk)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunk, 0, cardinality, low) >= 0;
+    }
+
+    private static Object[] copy(Object chunk, int cardinality) {
+        Object copied = chunk instanceof long[]
+                ? ((long[]) chunk).clone()
+                : Arrays.copyOf((char[]) chunk, cardinality);
+        return new Object[]{copied, cardinality};
+    }
+
+    private static Object[] and(Object a, int aCardinality, Object b, int bCardinality) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] x = (long[]) a;
+            long[] y = (long[]) b;
+            long[] words = new long[WORDS];
+            for (int w = 0; w < WORDS; w++) {
+                words[w] = x[w] & y[w];
+            }
+            return normalize(words);
+        }
+        if (a instanceof long[]) { // Keep the array side first: filter it against the other chunk
+            return and(b, bCardinality, a, aCardinality);
+        }
+        char[] values = (char[]) a;
+        char[] kept = new char[Math.min(aCardinality, bCardinality)];
+        int n = 0;
+        if (b instanceof long[]) {
+            long[] words = (long[]) b;
+            for (int i = 0; i < aCardinality; i++) {
+                if ((words[values[i] >>> 6] & (1L << values[i])) != 0) {
+                    kept[n++] = values[i];
+                }
+            }
+        } else {
+            char[] others = (char[]) b;
+            for (int i = 0, j = 0; i < aCardinality && j < bCardinality; ) {
+                if (values[i] < others[j]) {
+                    i++;
+                } else if (values[i] > others[j]) {
+                    j++;
+                } else {
+                    kept[n++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return new Object[]{kept, n};
+    }
+
+    private static Object[] or(Object a, int aCardinality, Object b, int bCardinality) {
+        if (a instanceof char[] && b instanceof char[] && aCardinality + bCardinality <= ARRAY_MAX) {
+            char[] x = (char[]) a;
+            char[] y = (char[]) b;
+            char[] merged = new char[aCardinality + bCardinality];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < aCardinality || j < bCardinality) {
+                if (j == bCardinality || (i < aCardinality && x[i] < y[j])) {
+                    merged[n++] = x[i++];
+                } else if (i == aCardinality || x[i] > y[j]) {
+                    merged[n++] = y[j++];
+                } else {
+                    merged[n++] = x[i++];
+                    j++;
+                }
+            }
+            return new Object[]{merged, n};
+        }
+        long[] words = a instanceof long[] ? ((long[]) a).clone() : toBitmap((char[]) a, aCardinality);
+        if (b instanceof long[]) {
+            long[] y = (long[]) b;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] |= y[w];
+            }
+        } else {
+            char[] y = (char[]) b;
+            for (int j = 0; j < bCardinality; j++) {
+                words[y[j] >>> 6] |= 1L << y[j];
+            }
+        }
+        return normalize(words);
+    }
+
+    private static Object[] andNot(Object a, int aCardinality, Object b, int bCardinality) {
+        if (a instanceof char[]) {
+            char[] values = (char[]) a;
+            char[] kept = new char[aCardinality];
+            int n = 0;
+            for (int i = 0; i < aCardinality; i++) {
+                if (!chunkContains(b, bCardinality, values[i])) {
+                    kept[n++] = values[i];
+                }
+            }
+            return new Object[]{kept, n};
+        }
+        long[] words = ((long[]) a).clone();
+        if (b instanceof long[]) {
+            long[] y = (long[]) b;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] &= ~y[w];
+            }
+        } else {
+            char[] y = (char[]) b;
+            for (int j = 0; j < bCardinality; j++) {
+                words[y[j] >>> 6] &= ~(1L << y[j]);
+            }
+        }
+        return normalize(words);
+    }
+
+    private static long[] toBitmap(char[] values, int cardinality) {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    // A bitmap that got sparse goes back to an array
+    private static Object[] normalize(long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        if (cardinality > ARRAY_MAX) {
+            return new Object[]{words, cardinality};
+        }
+        char[] values = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                values[n++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return new Object[]{values, cardinality};
+    }
+}
@@ -0,0 +1,61 @@
+package dev.advik.wattpad.store;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One story's row in a {@link StoryMetadataStore}. A thin view: each getter decodes its column from the mapped
+ * files on call, so holding one costs a few bytes of heap.
+ */
+public final class StoryMetadata {
+    private final StoryMetadataStore store;
+    private final int row;
+
+    StoryMetadata(StoryMetadataStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    /** Position in the store, in append order. Stable, so usable as a dense document number. */
+    public int getRow() {
+        return row;
+    }
+
+    public long getId() {
+        return store.storyId(row);
+    }
+
+    public String getTitle() {
+        return store.title(row);
+    }
+
+    /** Null if the story had no author. */
+    public String getAuthorUsername() {
+        return store.authorUsername(row);
+    }
+
+    public List<String> getTags() {
+        return store.tags(row);
+    }
+
+    /** Part ids in reading order. */
+    public long[] getPartIds() {
+        return store.partIds(row);
+    }
+
+    /** 0 if the story has no published part. */
+    public long getLastPublishedPartId() {
+        return store.lastPublishedPartId(row);
+    }
+
+    /** Creation date of the last published part, to the second; null if unknown. */
+    public LocalDateTime getLastPublishedDate() {
+        return store.lastPublishedDate(row);
+    }
+
+    @Override
+    public String toString() {
+        return "StoryMetadata{id=" + getId() + ", title='" + getTitle() + "', author=" + getAuthorUsername()
+                + ", parts=" + getPartIds().length + "}";
+    }
+}
@@ -0,0 +1,592 @@
+package dev.advik.wattpad.store;
+
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.models.Part;
+import dev.advik.wattpad.models.PublishedPart;
+import dev.advik.wattpad.models.Story;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Story metadata (id, title, author username, tags, part ids, last published part) for millions of stories,
+ * kept in memory-mapped column files instead of on the heap.
+ * <p>
+ * Opening a store maps its files and reads a 128-byte meta file, nothing else, so it's immediate at any size;
+ * pages are faulted in as lookups touch them. Each column is its own file: fixed-width ones ({@code story_id},
+ * {@code last_part_id}, {@code last_part_time}, {@code author}) hold one value per row, variable-width ones
+ * ({@code title}, {@code tags}, {@code parts}) an offset file plus the data. Author names and tags are interned in
+ * dictionaries, and part ids are stored as zig-zag varint deltas, so a typical row takes well under 100 bytes.
+ * Two mapped hash indexes find rows by story id and by part id, and compressed bitmaps ({@link RowSet}) find them
+ * by tag and author.
+ * <p>
+ * Rows are only ever appended; appending a story again supersedes its previous row. An append writes the columns,
+ * then commits the new row count to one of two checksummed meta slots, then indexes the rows and commits again,
+ * so a process crash at any point leaves the last committed state readable, and rows committed but not yet indexed
+ * are indexed on the next writable open. Mapped pages are not forced before a commit, so after an OS crash or power
+ * loss only the state as of the last {@link #flush()} is safe; anything later may be lost or torn.
+ * <p>
+ * One writer at a time (appends are synchronized); any number of threads can read while it appends. A writable
+ * open takes an exclusive {@link FileLock} on {@code store.lock}, so a second writer, in this process or another,
+ * fails to open instead of corrupting the store.
+ */
+public final class StoryMetadataStore implements Closeable {
+
+    private static final int MAGIC = 0x57504d53; // "WPMS"
+    private static final int VERSION = 1;
+    private static final int META_SLOT = 64;
+    private static final int META_BYTES = 56; // Magic, version, sequence, rows, indexed rows, authors, tags, CRC
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    // Stores open for writing in this JVM; a FileLock only excludes other processes
+    private static final Set<Path> LOCKED_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
+    private final Path directory;
+    private final boolean writable;
+    private final FileChannel lockChannel; // Holds the writer lock; null when read-only
+    private final MappedFile meta;
+    private final MappedFile storyIds;
+    private final MappedFile lastPartIds;
+    private final MappedFile lastPartTimes;
+    private final MappedFile authors;
+    private final MappedFile previousRows;
+    private final VarColumn titles;
+    private final VarColumn tagLists;
+    private final VarColumn partLists;
+    private final StringDictionary authorNames;
+    private final StringDictionary tagNames;
+    private final LongIndex byStory;
+    private final LongIndex byPart;
+    private volatile FilterIndex filters; // Loaded on first query
+    private volatile int rows;
+    private int indexedRows;
+    private long sequence;
+
+    /** Opens the store in {@code directory} for reading and appending, creating it if needed. */
+    public static StoryMetadataStore open(Path directory) {
+        return new StoryMetadataStore(directory, true);
+    }
+
+    /** Opens an existing store for lookups only. */
+    public static StoryMetadataStore openReadOnly(Path directory) {
+        return new StoryMetadataStore(directory, false);
+    }
+
+    private StoryMetadataStore(Path directory, boolean writable) {
+        this.directory = directory;
+        this.writable = writable;
+        FileChannel lock = null;
+        try {
+            if (writable) {
+                Files.createDirectories(directory);
+                lock = lockForWriting(directory);
+            } else if (!Files.exists(directory.resolve("meta"))) {
+                throw new WattpadException("No story store in " + directory);
+            }
+            this.lockChannel = lock;
+            this.meta = new MappedFile(directory.resolve("meta"), writable);
+            long[] state = readMeta();
+            this.sequence = state[0];
+            this.rows = (int) state[1];
+            this.indexedRows = (int) state[2];
+
+            this.storyIds = new MappedFile(directory.resolve("story_id.col"), writable);
+            this.lastPartIds = new MappedFile(directory.resolve("last_part_id.col"), writable);
+            this.lastPartTimes = new MappedFile(directory.resolve("last_part_time.col"), writable);
+            this.authors = new MappedFile(directory.resolve("author.col"), writable);
+            this.previousRows = new MappedFile(directory.resolve("previous_row.col"), writable);
+            this.titles = new VarColumn(directory, "title", writable);
+            this.tagLists = new VarColumn(directory, "tags", writable);
+            this.partLists = new VarColumn(directory, "parts", writable);
+            this.authorNames = new StringDictionary(directory, "author_names", writable, (int) state[3]);
+            this.tagNames = new StringDictionary(directory, "tag_names", writable, (int) state[4]);
+            this.byStory = new LongIndex(directory.resolve("story.idx"), writable, 1024);
+            this.byPart = new LongIndex(directory.resolve("part.idx"), writable, 16 * 1024);
+
+            if (writable && indexedRows < rows) {
+                synchronized (this) {
+                    indexRows(indexedRows, rows); // Committed before a crash, but not indexed
+                    indexedRows = rows;
+                    commit(rows, authorNames.size(), tagNames.size());
+                }
+            }
+        } catch (IOException e) {
+            release(directory, lock);
+            throw new WattpadException("Failed to open story store in " + directory, e);
+        } catch (RuntimeException e) {
+            release(directory, lock); // So a retry in this JVM isn't refused as a second writer
+            throw e;
+        }
+    }
+
+    private static void release(Path directory, FileChannel lock) {
+        if (lock == null) {
+            return;
+        }
+        try {
+            lock.close();
+        } catch (IOException e) {
+            System.err.println("Failed to release story store lock: " + e.getMessage());
+        } finally {
+            LOCKED_DIRECTORIES.remove(directory.toAbsolutePath().normalize());
+        }
+    }
+
+    private static FileChannel lockForWriting(Path directory) throws IOException {
+        // Checked before touching the lock file: closing any channel to it would drop this JVM's lock on it
+        Path key = directory.toAbsolutePath().normalize();
+        if (!LOCKED_DIRECTORIES.add(key)) {
+            throw new WattpadException("Story store in " + directory + " is already open for writing");
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.resolve("store.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } catch (IOException | RuntimeException e) {
+            LOCKED_DIRECTORIES.remove(key);
+            throw e;
+        }
+        try {
+            if (channel.tryLock() != null) {
+                return channel; // Released when the channel is closed
+            }
+        } catch (IOException | RuntimeException e) {
+            release(directory, channel);
+            throw e;
+        }
+        release(directory, channel);
+        throw new WattpadException("Story store in " + directory + " is open for writing by another process");
+    }
+
+    // --- Lookups ---
+
+    /** Rows in the store, superseded ones included. */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /** The latest row for {@code storyId}, or null. */
+    public StoryMetadata get(long storyId) {
+        int row = byStory.get(storyId);
+        // Cheap insurance: never trust an index entry past the committed rows or for another story
+        if (row < 0 || row >= rows || storyId(row) != storyId) {
+            return null;
+        }
+        return new StoryMetadata(this, row);
+    }
+
+    /** The latest row of the story that lists {@code partId}, or null. */
+    public StoryMetadata getByPartId(long partId) {
+        int row = byPart.get(partId);
+        if (row < 0 || row >= rows || !contains(partIds(row), partId)) {
+            return null;
+        }
+        StoryMetadata latest = get(storyId(row));
+        if (latest != null && latest.getRow() != row) {
+            // The story was appended again since; the part may have been removed from it
+            return contains(latest.getPartIds(), partId) ? latest : null;
+        }
+        return new StoryMetadata(this, row);
+    }
+
+    /** The row at {@code row}, superseded or not. */
+    public StoryMetadata getRow(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        }
+        return new StoryMetadata(this, row);
+    }
+
+    /** Whether {@code row} is the latest row of its story. */
+    public boolean isLatest(int row) {
+        return byStory.get(storyId(row)) == row;
+    }
+
+    // --- Filtering ---
+
+    /** Latest rows of the stories tagged {@code tag}. */
+    public RowSet withTag(String tag) {
+        FilterIndex index = filters();
+        return index.tag(tagNames.find(tag));
+    }
+
+    /** Latest rows of the stories by {@code username}. */
+    public RowSet byAuthor(String username) {
+        FilterIndex index = filters();
+        return index.author(authorNames.find(username));
+    }
+
+    /** Latest rows of all stories, for negating a filter: {@code all().andNot(withTag("horror"))}. */
+    public RowSet all() {
+        return filters().all();
+    }
+
+    /** The rows of {@code rows}, in row order. */
+    public List<StoryMetadata> getAll(RowSet rows) {
+        List<StoryMetadata> stories = new ArrayList<>(rows.size());
+        rows.forEach(row -> stories.add(getRow(row)));
+        return stories;
+    }
+
+    private FilterIndex filters() {
+        FilterIndex index = filters;
+        if (index == null) {
+            synchronized (this) {
+                index = filters;
+                if (index == null) {
+                    index = FilterIndex.load(directory.resolve("filters.bin"), rows);
+                    updateFilters(index, rows);
+                    filters = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // Catches the filter index up to row {@code to}; the caller holds the store lock
+    private void updateFilters(FilterIndex index, int to) {
+        for (int row = index.rows(); row < to; row++) {
+            index.add(row, authorId(row), tagIds(row), previousRows.getInt(row * 4L));
+        }
+    }
+
+    // --- Column access, for StoryMetadata ---
+
+    long storyId(int row) {
+        return storyIds.getLong(row * 8L);
+    }
+
+    String title(int row) {
+        return new String(titles.read(row), StandardCharsets.UTF_8);
+    }
+
+    String authorUsername(int row) {
+        int id = authors.getInt(row * 4L);
+        return id >= 0 ? authorNames.get(id) : null;
+    }
+
+    int authorId(int row) {
+        return authors.getInt(row * 4L);
+    }
+
+    List<String> tags(int row) {
+        int[] ids = tagIds(row);
+        List<String> tags = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            tags.add(tagNames.get(id));
+        }
+        return Collections.unmodifiableList(tags);
+    }
+
+    int[] tagIds(int row) {
+        byte[] encoded = tagLists.read(row);
+        int[] position = {0};
+        int[] ids = new int[(int) readVarLong(encoded, position)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (int) readVarLong(encoded, position);
+        }
+        return ids;
+    }
+
+    long[] partIds(int row) {
+        byte[] encoded = partLists.read(row);
+        int[] position = {0};
+        long[] ids = new long[(int) readVarLong(encoded, position)];
+        long previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            long zigzag = readVarLong(encoded, position);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    long lastPublishedPartId(int row) {
+        return lastPartIds.getLong(row * 8L);
+    }
+
+    LocalDateTime lastPublishedDate(int row) {
+        long seconds = lastPartTimes.getLong(row * 8L);
+        return seconds != NO_DATE ? LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC) : null;
+    }
+
+    /** Dictionary id of an author username, or -1 if no row has it. */
+    int findAuthor(String username) {
+        return authorNames.find(username);
+    }
+
+    /** Dictionary id of a tag, or -1 if no row has it. */
+    int findTag(String tag) {
+        return tagNames.find(tag);
+    }
+
+    // --- Appending ---
+
+    /** Appends one story, superseding any earlier row for it, and returns its new row. */
+    public StoryMetadata append(Story story) {
+        return appendAll(Collections.singletonList(story)).get(0);
+    }
+
+    /** Appends stories with a single commit, which is much faster than appending them one by one. */
+    public synchronized List<StoryMetadata> appendAll(Collection<Story> stories) {
+        if (!writable) {
+            throw new IllegalStateException("Story store is open read-only");
+        }
+        int first = rows;
+        int row = first;
+        int authorCount = authorNames.size();
+        int tagCount = tagNames.size();
+        ByteSink sink = new ByteSink();
+        Map<Long, Integer> batchRows = new HashMap<>(); // Not in byStory until the batch is indexed
+        try {
+            for (Story story : stories) {
+                if (story.getId() <= 0) {
+                    throw new IllegalArgumentException("Story ids must be positive: " + story.getId());
+                }
+                storyIds.ensureCapacity((row + 1) * 8L);
+                storyIds.putLong(row * 8L, story.getId());
+                Integer previousRow = batchRows.put(story.getId(), row);
+                if (previousRow == null) {
+                    StoryMetadata previous = get(story.getId());
+                    previousRow = previous != null ? previous.getRow() : -1;
+                }
+                previousRows.ensureCapacity((row + 1) * 4L);
+                previousRows.putInt(row * 4L, previousRow);
+
+                PublishedPart last = story.getLastPublishedPart();
+                lastPartIds.ensureCapacity((row + 1) * 8L);
+                lastPartIds.putLong(row * 8L, last != null ? last.getId() : 0);
+                lastPartTimes.ensureCapacity((row + 1) * 8L);
+                lastPartTimes.putLong(row * 8L, last != null && last.getCreateDate() != null
+                        ? last.getCreateDate().toEpochSecond(ZoneOffset.UTC)
+                        : NO_DATE);
+
+                String username = story.getAuthor() != null ? story.getAuthor().getUsername() : null;
+                int authorId = -1;
+                if (username != null) {
+                    authorId = authorNames.add(username, authorCount);
+                    if (authorId == authorCount) {
+                        authorCount++;
+                    }
+                }
+                authors.ensureCapacity((row + 1) * 4L);
+                authors.putInt(row * 4L, authorId);
+
+                byte[] title = story.getTitle() != null ? story.getTitle().getBytes(StandardCharsets.UTF_8) : new byte[0];
+                titles.write(row, title, title.length);
+
+                sink.reset();
+                sink.writeVarLong(story.getTags().size());
+                for (String tag : story.getTags()) {
+                    int tagId = tagNames.add(tag, tagCount);
+                    if (tagId == tagCount) {
+                        tagCount++;
+                    }
+                    sink.writeVarLong(tagId);
+                }
+                tagLists.write(row, sink.bytes, sink.length);
+
+                sink.reset();
+                sink.writeVarLong(story.getParts().size());
+                long previous = 0;
+                for (Part part : story.getParts()) {
+                    long delta = part.getId() - previous;
+                    sink.writeVarLong((delta << 1) ^ (delta >> 63)); // Zig-zag, so going back in id stays short
+                    previous = part.getId();
+                }
+                partLists.write(row, sink.bytes, sink.length);
+                row++;
+            }
+
+            // Commit the rows, then index them. A crash in between is repaired on the next open.
+            commit(row, authorCount, tagCount);
+            authorNames.setSize(authorCount);
+            tagNames.setSize(tagCount);
+            rows = row;
+            indexRows(first, row);
+            indexedRows = row;
+            commit(row, authorCount, tagCount);
+            if (filters != null) {
+                updateFilters(filters, row);
+            }
+        } catch (IOException e) {
+            throw new WattpadException("Failed to append to story store in " + directory, e);
+        }
+
+        List<StoryMetadata> appended = new ArrayList<>(row - first);
+        for (int r = first; r < row; r++) {
+            appended.add(new StoryMetadata(this, r));
+        }
+        return appended;
+    }
+
+    private void indexRows(int from, int to) throws IOException {
+        for (int row = from; row < to; row++) {
+            byStory.put(storyId(row), row);
+            for (long partId : partIds(row)) {
+                if (partId > 0) {
+                    byPart.put(partId, row);
+                }
+            }
+        }
+    }
+
+    // --- Meta record ---
+
+    // Returns {sequence, rows, indexed rows, authors, tags} from the newer valid slot
+    private long[] readMeta() throws IOException {
+        long[] best = null;
+        boolean blank = true;
+        for (int slot = 0; slot < 2 && meta.capacity() >= (slot + 1) * META_SLOT; slot++) {
+            byte[] bytes = new byte[META_BYTES];
+            meta.get(slot * (long) META_SLOT, bytes, 0, META_BYTES);
+            ByteBuffer record = ByteBuffer.wrap(bytes);
+            int magic = record.getInt();
+            blank &= magic == 0;
+            if (magic != MAGIC || record.getInt() != VERSION) {
+                continue;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, META_BYTES - 8);
+            if (ByteBuffer.wrap(bytes, META_BYTES - 8, 8).getLong() != crc.getValue()) {
+                continue; // Torn write; the other slot has the previous commit
+            }
+            long[] state = {record.getLong(), record.getLong(), record.getLong(), record.getLong(), record.getLong()};
+            if (best == null || state[0] > best[0]) {
+                best = state;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        if (!blank) {
+            throw new IOException("Story store meta record is corrupt");
+        }
+        return new long[5]; // New store
+    }
+
+    private void commit(int rowCount, int authorCount, int tagCount) throws IOException {
+        sequence++;
+        ByteBuffer record = ByteBuffer.allocate(META_BYTES);
+        record.putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(rowCount).putLong(indexedRows)
+                .putLong(authorCount).putLong(tagCount);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, META_BYTES - 8);
+        record.putLong(crc.getValue());
+        meta.ensureCapacity(2 * META_SLOT);
+        meta.put((sequence % 2) * META_SLOT, record.array(), 0, META_BYTES); // Alternate slots
+    }
+
+    // --- Lifecycle ---
+
+    /** Forces all columns and indexes to the storage device, then the meta record. */
+    public synchronized void flush() {
+        if (!writable) {
+            return;
+        }
+        for (MappedFile column : Arrays.asList(storyIds, lastPartIds, lastPartTimes, authors, previousRows)) {
+            column.force();
+        }
+        titles.force();
+        tagLists.force();
+        partLists.force();
+        authorNames.force();
+        tagNames.force();
+        byStory.force();
+        byPart.force();
+        meta.force();
+        if (filters != null) {
+            try {
+                filters.save(); // After the meta record, so it never covers rows the store could lose
+            } catch (IOException e) {
+                System.err.println("Failed to save story filter index: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        try {
+            flush();
+            for (Closeable closeable : Arrays.<Closeable>asList(meta, storyIds, lastPartIds, lastPartTimes,
+                    authors, previousRows, titles, tagLists, partLists, authorNames, tagNames, byStory, byPart)) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } finally {
+            release(directory, lockChannel); // Last, so the next writer only starts once everything is forced
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // --- Encoding ---
+
+    private static boolean contains(long[] values, long value) {
+        for (long candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long readVarLong(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = bytes[position[0]++] & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new WattpadException("Malformed varint in story store");
+    }
+
+    // Reusable buffer for one encoded value
+    private static final class ByteSink {
+        byte[] bytes = new byte[256];
+        int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void writeVarLong(long value) {
+            if (length + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+}
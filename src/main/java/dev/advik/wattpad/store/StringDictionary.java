@@ -0,0 +1,85 @@
+package dev.advik.wattpad.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Interns repeated strings (author names, tags) as dense int ids, so rows store 1-4 varint bytes instead of the text.
+ * Strings live in a {@link VarColumn}; a {@link LongIndex} keyed by a 64-bit hash of the UTF-8 bytes finds them.
+ * On the (astronomically rare) hash collision the second string simply gets its own id without an index entry, so
+ * lookups stay correct and only deduplication of that one string is lost.
+ */
+final class StringDictionary implements Closeable {
+    private final VarColumn strings;
+    private final LongIndex byHash;
+    private volatile int size; // Committed entries; set by the store from its meta record
+
+    StringDictionary(Path directory, String name, boolean writable, int size) throws IOException {
+        this.strings = new VarColumn(directory, name, writable);
+        this.byHash = new LongIndex(directory.resolve(name + ".idx"), writable, 1024);
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    String get(int id) {
+        return new String(strings.read(id), StandardCharsets.UTF_8);
+    }
+
+    /** The id of {@code value}, or -1 if it was never added. */
+    int find(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int id = byHash.get(hash(bytes));
+        // Entries past the committed size are leftovers of a crashed append
+        return id >= 0 && id < size && Arrays.equals(strings.read(id), bytes) ? id : -1;
+    }
+
+    /** The id of {@code value}, adding it as entry {@code nextId} if needed. Single writer. */
+    int add(String value, int nextId) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(bytes);
+        int id = byHash.get(hash);
+        if (id >= 0 && id < nextId && Arrays.equals(strings.read(id), bytes)) {
+            return id;
+        }
+        strings.write(nextId, bytes, bytes.length);
+        if (id < 0 || id >= nextId) {
+            byHash.put(hash, nextId); // Otherwise a different string owns the hash: keep its entry
+        }
+        return nextId;
+    }
+
+    void force() {
+        strings.force();
+        byHash.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            strings.close();
+        } finally {
+            byHash.close();
+        }
+    }
+
+    // 64-bit FNV-1a, forced positive and non-zero since LongIndex reserves keys <= 0
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash &= Long.MAX_VALUE;
+        return hash != 0 ? hash : 1;
+    }
+}
@@ -0,0 +1,57 @@
+package dev.advik.wattpad.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A column of variable-length byte values: {@code <name>.off} holds the end offset of each value as a long,
+ * {@code <name>.dat} the values back to back. Value {@code i} spans {@code [end(i - 1), end(i))}.
+ */
+final class VarColumn implements Closeable {
+    private final MappedFile offsets;
+    private final MappedFile data;
+
+    VarColumn(Path directory, String name, boolean writable) throws IOException {
+        this.offsets = new MappedFile(directory.resolve(name + ".off"), writable);
+        this.data = new MappedFile(directory.resolve(name + ".dat"), writable);
+    }
+
+    private long start(long index) {
+        return index == 0 ? 0 : offsets.getLong((index - 1) * 8);
+    }
+
+    private long end(long index) {
+        return offsets.getLong(index * 8);
+    }
+
+    byte[] read(long index) {
+        long start = start(index);
+        byte[] value = new byte[(int) (end(index) - start)];
+        data.get(start, value, 0, value.length);
+        return value;
+    }
+
+    /** Writes value {@code index} after value {@code index - 1}; anything after it is overwritten later. */
+    void write(long index, byte[] value, int length) throws IOException {
+        long start = start(index);
+        data.ensureCapacity(start + length);
+        data.put(start, value, 0, length);
+        offsets.ensureCapacity((index + 1) * 8);
+        offsets.putLong(index * 8, start + length);
+    }
+
+    void force() {
+        data.force();
+        offsets.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            data.close();
+        } finally {
+            offsets.close();
+        }
+    }
+}
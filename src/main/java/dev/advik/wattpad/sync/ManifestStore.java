@@ -0,0 +1,71 @@
+package dev.advik.wattpad.sync;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dev.advik.wattpad.exceptions.CacheInitializationException;
+import dev.advik.wattpad.exceptions.WattpadException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Stores one {@link StoryManifest} per story as {@code <storyId>.manifest.json} in a directory.
+ * Writes go through a temp file and an atomic rename, so a crash never leaves a half-written manifest.
+ */
+public class ManifestStore {
+
+    private final Path directory;
+    private final Gson gson = new Gson();
+
+    public ManifestStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new CacheInitializationException("Failed to create manifest directory: " + directory, e);
+        }
+    }
+
+    private Path fileFor(long storyId) {
+        return directory.resolve(storyId + ".manifest.json");
+    }
+
+    /** Returns the stored manifest, or null if the story was never synced (or its manifest is unreadable). */
+    public StoryManifest load(long storyId) {
+        Path file = fileFor(storyId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, StoryManifest.class);
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Manifest read error for story " + storyId + ": " + e.getMessage());
+            return null; // Treat as never synced; the next poll rebuilds it
+        }
+    }
+
+    public void save(StoryManifest manifest) {
+        Path target = fileFor(manifest.storyId);
+        Path temp = directory.resolve(manifest.storyId + ".manifest.json.tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(manifest, writer);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new WattpadException("Failed to save manifest for story " + manifest.storyId, e);
+        }
+    }
+
+    public boolean delete(long storyId) {
+        try {
+            return Files.deleteIfExists(fileFor(storyId));
+        } catch (IOException e) {
+            System.err.println("Manifest delete error for story " + storyId + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
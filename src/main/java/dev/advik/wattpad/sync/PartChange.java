@@ -0,0 +1,42 @@
+package dev.advik.wattpad.sync;
+
+import dev.advik.wattpad.models.Part;
+import dev.advik.wattpad.models.RenderedPage;
+
+/** A single part-level entry in a {@link SyncDelta}. */
+public final class PartChange {
+
+    public enum Kind {
+        ADDED,   // Part wasn't in the previous manifest
+        CHANGED, // Part was edited and its rendered text hashes differently
+        REMOVED  // Part disappeared from the story (unpublished or deleted)
+    }
+
+    private final Kind kind;
+    private final long partId;
+    private final Part part;          // Null for REMOVED
+    private final RenderedPage page;  // Null for REMOVED
+    private final String previousHash; // Null for ADDED
+    private final String newHash;      // Null for REMOVED
+
+    PartChange(Kind kind, long partId, Part part, RenderedPage page, String previousHash, String newHash) {
+        this.kind = kind;
+        this.partId = partId;
+        this.part = part;
+        this.page = page;
+        this.previousHash = previousHash;
+        this.newHash = newHash;
+    }
+
+    public Kind getKind() { return kind; }
+    public long getPartId() { return partId; }
+    public Part getPart() { return part; }
+    public RenderedPage getPage() { return page; }
+    public String getPreviousHash() { return previousHash; }
+    public String getNewHash() { return newHash; }
+
+    @Override
+    public String toString() {
+        return kind + " part " + partId;
+    }
+}
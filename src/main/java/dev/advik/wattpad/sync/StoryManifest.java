@@ -0,0 +1,52 @@
+package dev.advik.wattpad.sync;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent record of what the sync engine last saw for a story.
+ * Serialized as JSON by {@link ManifestStore}; dates are kept as ISO strings so the
+ * manifest round-trips without any custom adapters.
+ */
+public final class StoryManifest {
+
+    /** Per-part state remembered between polls. */
+    public static final class PartState {
+        String title;
+        String modifyDate;  // ISO-8601, null if the API didn't report one
+        int length;
+        String contentHash; // SHA-256 of the rendered full text
+
+        PartState() {} // For Gson
+
+        PartState(String title, String modifyDate, int length, String contentHash) {
+            this.title = title;
+            this.modifyDate = modifyDate;
+            this.length = length;
+            this.contentHash = contentHash;
+        }
+
+        public String getTitle() { return title; }
+        public String getModifyDate() { return modifyDate; }
+        public int getLength() { return length; }
+        public String getContentHash() { return contentHash; }
+    }
+
+    long storyId;
+    long lastPublishedPartId;
+    String lastPublishedPartCreateDate;
+    long lastSyncedAt; // Epoch millis of the last successful poll
+    Map<Long, PartState> parts = new LinkedHashMap<>(); // Keeps the story's reading order
+
+    StoryManifest() {} // For Gson
+
+    StoryManifest(long storyId) {
+        this.storyId = storyId;
+    }
+
+    public long getStoryId() { return storyId; }
+    public long getLastPublishedPartId() { return lastPublishedPartId; }
+    public String getLastPublishedPartCreateDate() { return lastPublishedPartCreateDate; }
+    public long getLastSyncedAt() { return lastSyncedAt; }
+    public Map<Long, PartState> getParts() { return parts; }
+}
@@ -0,0 +1,164 @@
+package dev.advik.wattpad.sync;
+
+import dev.advik.wattpad.WattpadClient;
+import dev.advik.wattpad.exceptions.WattpadException;
+import dev.advik.wattpad.internal.Hex;
+import dev.advik.wattpad.models.Part;
+import dev.advik.wattpad.models.PublishedPart;
+import dev.advik.wattpad.models.RenderedPage;
+import dev.advik.wattpad.models.Story;
+import dev.advik.wattpad.scheduler.RequestPriority;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Incrementally syncs followed stories.
+ * <p>
+ * Each poll fetches only a small, uncached watermark of the story (part list with modify dates and
+ * {@code lastPublishedPart}) and compares it with the story's stored {@link StoryManifest}.
+ * Only parts that are new, or whose modify date/length moved, are downloaded and rendered; edited
+ * parts are then confirmed by content hash so metadata-only touches don't show up as changes.
+ * <p>
+ * Polls of different stories may run concurrently; polls of the same story should not.
+ */
+public class StorySyncEngine {
+
+    private final WattpadClient client;
+    private final ManifestStore manifests;
+
+    public StorySyncEngine(WattpadClient client, Path manifestDirectory) {
+        this(client, new ManifestStore(manifestDirectory));
+    }
+
+    public StorySyncEngine(WattpadClient client, ManifestStore manifests) {
+        this.client = Objects.requireNonNull(client, "client cannot be null");
+        this.manifests = Objects.requireNonNull(manifests, "manifests cannot be null");
+    }
+
+    public ManifestStore getManifests() {
+        return manifests;
+    }
+
+    /**
+     * Polls one story and returns what changed since the previous poll.
+     * On the first poll of a story every part is reported as {@link PartChange.Kind#ADDED}.
+     * Requests are scheduled as {@link RequestPriority#BULK} so syncing never delays interactive reads.
+     */
+    public SyncDelta poll(long storyId) {
+        return client.withPriority(RequestPriority.BULK, () -> pollStory(storyId));
+    }
+
+    private SyncDelta pollStory(long storyId) {
+        StoryManifest previous = manifests.load(storyId);
+        boolean initialSync = previous == null;
+        Map<Long, StoryManifest.PartState> knownParts = initialSync ? Collections.emptyMap() : previous.parts;
+
+        Story story = client.getStoryWatermark(storyId);
+
+        StoryManifest next = new StoryManifest(storyId);
+        PublishedPart lastPublished = story.getLastPublishedPart();
+        if (lastPublished != null) {
+            next.lastPublishedPartId = lastPublished.getId();
+            next.lastPublishedPartCreateDate = isoOrNull(lastPublished.getCreateDate());
+        }
+
+        List<PartChange> changes = new ArrayList<>();
+        List<Long> failedParts = new ArrayList<>();
+        int rendered = 0;
+
+        for (Part part : story.getParts()) {
+            StoryManifest.PartState known = knownParts.get(part.getId());
+            String modifyDate = isoOrNull(part.getModifyDate());
+
+            if (known != null && !metadataMoved(known, part, modifyDate)) {
+                // Nothing suggests an edit, carry the old state forward without touching the network
+                next.parts.put(part.getId(), new StoryManifest.PartState(part.getTitle(), known.modifyDate, known.length, known.contentHash));
+                continue;
+            }
+
+            RenderedPage page;
+            try {
+                // New parts may already be cached (e.g. read interactively); edited ones must be re-downloaded
+                page = known == null ? client.renderPart(part) : client.renderPartFresh(part);
+                rendered++;
+            } catch (WattpadException e) {
+                System.err.println("Sync: failed to render part " + part.getId() + " of story " + storyId + ": " + e.getMessage());
+                failedParts.add(part.getId());
+                if (known != null) {
+                    next.parts.put(part.getId(), known); // Keep the old state so the edit is retried next poll
+                }
+                continue; // Unknown parts are left out of the manifest and show up as ADDED next time
+            }
+
+            String hash = contentHash(page);
+            next.parts.put(part.getId(), new StoryManifest.PartState(part.getTitle(), modifyDate, part.getLength(), hash));
+
+            if (known == null) {
+                changes.add(new PartChange(PartChange.Kind.ADDED, part.getId(), part, page, null, hash));
+            } else if (!hash.equals(known.contentHash)) {
+                changes.add(new PartChange(PartChange.Kind.CHANGED, part.getId(), part, page, known.contentHash, hash));
+            }
+        }
+
+        for (Map.Entry<Long, StoryManifest.PartState> entry : knownParts.entrySet()) {
+            if (!next.parts.containsKey(entry.getKey()) && !failedParts.contains(entry.getKey())) {
+                changes.add(new PartChange(PartChange.Kind.REMOVED, entry.getKey(), null, null, entry.getValue().contentHash, null));
+            }
+        }
+
+        next.lastSyncedAt = System.currentTimeMillis();
+        manifests.save(next);
+
+        return new SyncDelta(storyId, story, initialSync, changes, rendered, failedParts);
+    }
+
+    /**
+     * Polls several stories one after another. Stories that fail entirely (e.g. deleted or network down)
+     * are logged and left out of the result; their manifests are untouched.
+     */
+    public Map<Long, SyncDelta> pollAll(Collection<Long> storyIds) {
+        Map<Long, SyncDelta> deltas = new LinkedHashMap<>();
+        for (long storyId : storyIds) {
+            try {
+                deltas.put(storyId, poll(storyId));
+            } catch (WattpadException e) {
+                System.err.println("Sync: failed to poll story " + storyId + ": " + e.getMessage());
+            }
+        }
+        return deltas;
+    }
+
+    /** Drops the manifest of a story so the next poll treats it as never seen. */
+    public boolean forget(long storyId) {
+        return manifests.delete(storyId);
+    }
+
+    // --- Helpers ---
+
+    private static boolean metadataMoved(StoryManifest.PartState known, Part part, String modifyDate) {
+        if (!Objects.equals(known.modifyDate, modifyDate)) {
+            return true;
+        }
+        // Length is only meaningful if the API actually reported it
+        return part.getLength() != 0 && part.getLength() != known.length;
+    }
+
+    private static String isoOrNull(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toString() : null;
+    }
+
+    static String contentHash(RenderedPage page) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Hex.encode(sha256.digest(page.getFullText().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required on every Java platform
+            throw new IllegalStateException("SHA-256 algorithm not found", e);
+        }
+    }
+}
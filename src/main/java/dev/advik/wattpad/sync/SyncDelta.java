@@ -0,0 +1,50 @@
+package dev.advik.wattpad.sync;
+
+import dev.advik.wattpad.models.Story;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/** Result of one {@link StorySyncEngine#poll(long)}: what changed in a story since the previous poll. */
+public final class SyncDelta {
+    private final long storyId;
+    private final Story story;            // Watermark snapshot used for this poll
+    private final boolean initialSync;    // True if there was no manifest before this poll
+    private final List<PartChange> changes;
+    private final int partsRendered;      // Number of part texts downloaded for this poll
+    private final List<Long> failedPartIds; // Parts that couldn't be rendered; retried on the next poll
+
+    SyncDelta(long storyId, Story story, boolean initialSync, List<PartChange> changes, int partsRendered, List<Long> failedPartIds) {
+        this.storyId = storyId;
+        this.story = story;
+        this.initialSync = initialSync;
+        this.changes = List.copyOf(changes);
+        this.partsRendered = partsRendered;
+        this.failedPartIds = List.copyOf(failedPartIds);
+    }
+
+    public long getStoryId() { return storyId; }
+    public Story getStory() { return story; }
+    public boolean isInitialSync() { return initialSync; }
+    public List<PartChange> getChanges() { return changes; }
+    public int getPartsRendered() { return partsRendered; }
+    public List<Long> getFailedPartIds() { return failedPartIds; }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public List<PartChange> getAdded() { return ofKind(PartChange.Kind.ADDED); }
+    public List<PartChange> getChanged() { return ofKind(PartChange.Kind.CHANGED); }
+    public List<PartChange> getRemoved() { return ofKind(PartChange.Kind.REMOVED); }
+
+    private List<PartChange> ofKind(PartChange.Kind kind) {
+        return changes.stream().filter(c -> c.getKind() == kind).collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return "SyncDelta{story=" + storyId + ", added=" + getAdded().size() + ", changed=" + getChanged().size()
+                + ", removed=" + getRemoved().size() + ", rendered=" + partsRendered + "}";
+    }
+}